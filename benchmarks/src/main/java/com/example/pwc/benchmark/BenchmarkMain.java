@@ -0,0 +1,25 @@
+package com.example.pwc.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks with the gc profiler enabled, so the allocation rate is reported next to the throughput of
+ * every operation. Passing any {@code -prof} option replaces the default profiler.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-prof") && !arguments.contains("-h") && !arguments.contains("-l")) {
+            arguments.add(0, "-prof");
+            arguments.add(1, "gc");
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.pwc.benchmark;
+
+import com.example.pwc.ExternalSortPrinter;
+import com.example.pwc.MappedPhonebookLoader;
+import com.example.pwc.Phonebook;
+import com.example.pwc.PhonebookEntryWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the {@link Phonebook} operations on synthetic books of 1k to 10M entries. The books are
+ * generated once into {@code java.io.tmpdir} (or {@code -Dpwc.benchmark.dir}) and reused by later runs. The other book
+ * of {@link PhonebookBenchmark#printUniqueEntries()} shares half of its names with the first one.
+ * <p>
+ * Mutations run against a copy of the book which is restored before every iteration. {@link
+ * PhonebookBenchmark#removeEntry()} removes a different existing name on every call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+@State(Scope.Benchmark)
+public class PhonebookBenchmark {
+    private static final PrintStream NULL_OUT = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Path book;
+    private Path anotherBook;
+    private Path workBook;
+    private Path printedBook;
+    private Phonebook phonebook;
+    private Phonebook anotherPhonebook;
+    private PrintStream stdout;
+    private Random random;
+    private int removed;
+
+    @Setup(Level.Trial)
+    public void generateBooks() throws IOException {
+        Path directory = Paths.get(System.getProperty("pwc.benchmark.dir", System.getProperty("java.io.tmpdir")));
+        book = PhonebookGenerator.generate(directory.resolve("pwc-" + size + ".txt"), 0, size);
+        anotherBook = PhonebookGenerator.generate(directory.resolve("pwc-" + size + "-other.txt"), size / 2, size);
+        workBook = directory.resolve("pwc-" + size + "-work.txt");
+        printedBook = directory.resolve("pwc-" + size + "-printed.txt");
+        anotherPhonebook = new Phonebook(anotherBook.toString());
+        stdout = System.out;
+        System.setOut(NULL_OUT);
+    }
+
+    @Setup(Level.Iteration)
+    public void restoreWorkBook() throws IOException {
+        Files.copy(book, workBook, StandardCopyOption.REPLACE_EXISTING);
+        phonebook = new Phonebook(workBook.toString());
+        random = new Random(size);
+        removed = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        Files.deleteIfExists(workBook);
+        Files.deleteIfExists(printedBook);
+    }
+
+    @Benchmark
+    public int loadPhonebook() {
+        return new Phonebook(book.toString()).getPhonebookEntryList().size();
+    }
+
+    @Benchmark
+    public int loadPhonebookMapped() throws IOException {
+        return new MappedPhonebookLoader().load(book).size();
+    }
+
+    @Benchmark
+    public boolean addEntry() {
+        return phonebook.addEntry(PhonebookGenerator.line(size + random.nextInt(size), random));
+    }
+
+    @Benchmark
+    public boolean removeEntry() {
+        return phonebook.removeEntry(PhonebookGenerator.name(removed++ % size));
+    }
+
+    @Benchmark
+    public boolean printPhonebook() {
+        return phonebook.printPhonebook();
+    }
+
+    @Benchmark
+    public boolean printPhonebookToFile() throws IOException {
+        try (PhonebookEntryWriter out = PhonebookEntryWriter.toFile(printedBook)) {
+            return phonebook.printPhonebook(out);
+        }
+    }
+
+    @Benchmark
+    public boolean printPhonebookExternalSort() throws IOException {
+        return new ExternalSortPrinter(ExternalSortPrinter.DEFAULT_MEMORY_BUDGET).print(book, NULL_OUT);
+    }
+
+    @Benchmark
+    public Phonebook printUniqueEntries() {
+        phonebook.printUniqueEntries(anotherPhonebook);
+        return phonebook;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.pwc.benchmark;
+
+import com.example.pwc.CompressedPhonebook;
+import com.example.pwc.Phonebook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and persisting a book in the text format against the same book compressed with gzip by {@link
+ * CompressedPhonebook}, for 1M and 10M entries. The compressed copy is written once next to the generated book and
+ * reused by later runs, see {@link PhonebookBenchmark} for the books.
+ * <p>
+ * Text books of these sizes are loaded by the parallel {@link com.example.pwc.MappedPhonebookLoader}, compressed books
+ * are inflated and parsed on one thread, so the difference includes the parallelism of the machine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+@State(Scope.Benchmark)
+public class PhonebookCompressionBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private Path book;
+    private Path compressedBook;
+    private Path workBook;
+    private Path compressedWorkBook;
+    private Phonebook phonebook;
+
+    @Setup(Level.Trial)
+    public void generateBooks() throws IOException {
+        Path directory = Paths.get(System.getProperty("pwc.benchmark.dir", System.getProperty("java.io.tmpdir")));
+        book = PhonebookGenerator.generate(directory.resolve("pwc-" + size + ".txt"), 0, size);
+        compressedBook = directory.resolve("pwc-" + size + ".txt" + CompressedPhonebook.EXTENSION);
+        phonebook = new Phonebook(book.toString());
+        if (!Files.exists(compressedBook)) {
+            phonebook.writePhonebook(compressedBook.toString(), false);
+        }
+        workBook = directory.resolve("pwc-" + size + "-work.txt");
+        compressedWorkBook = directory.resolve("pwc-" + size + "-work.txt" + CompressedPhonebook.EXTENSION);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(workBook);
+        Files.deleteIfExists(compressedWorkBook);
+    }
+
+    @Benchmark
+    public int loadText() {
+        return new Phonebook(book.toString()).getPhonebookEntryList().size();
+    }
+
+    @Benchmark
+    public int loadCompressed() {
+        return new Phonebook(compressedBook.toString()).getPhonebookEntryList().size();
+    }
+
+    @Benchmark
+    public Phonebook persistText() {
+        phonebook.writePhonebook(workBook.toString(), false);
+        return phonebook;
+    }
+
+    @Benchmark
+    public Phonebook persistCompressed() {
+        phonebook.writePhonebook(compressedWorkBook.toString(), false);
+        return phonebook;
+    }
+}
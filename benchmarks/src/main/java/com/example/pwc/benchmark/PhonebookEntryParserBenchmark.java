@@ -0,0 +1,34 @@
+package com.example.pwc.benchmark;
+
+import com.example.pwc.PhonebookEntry;
+import com.example.pwc.PhonebookEntryParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written {@link PhonebookEntryParser#parse(String)} with the regular expression reference
+ * implementation on valid and invalid lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhonebookEntryParserBenchmark {
+    @Param({"PhonebookEntry(name=Cr. Dany-Slate O'Field, number=+61#(02)9800-2333*1)",
+            "PhonebookEntry(name=Danny O'Connell, number=null)",
+            "PhonebookEntry(name=Daniel McBean, number=0418100200?)"})
+    public String line;
+
+    @Benchmark
+    public PhonebookEntry parse() {
+        return PhonebookEntryParser.parse(line);
+    }
+
+    @Benchmark
+    public PhonebookEntry parseWithRegex() {
+        return PhonebookEntryParser.parseWithRegex(line);
+    }
+}
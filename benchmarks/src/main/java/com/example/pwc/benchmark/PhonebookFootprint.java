@@ -0,0 +1,58 @@
+package com.example.pwc.benchmark;
+
+import com.example.pwc.ColumnarEntryStore;
+import com.example.pwc.Phonebook;
+import com.example.pwc.PhonebookEntry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Measures the heap retained by the entries of a synthetic book of {@link PhonebookGenerator}, once loaded into the
+ * default list of {@link PhonebookEntry} and once into a {@link ColumnarEntryStore}. The retained heap is the used heap
+ * after a full collection with the entries reachable, minus the used heap after a full collection without them.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.example.pwc.benchmark.PhonebookFootprint <entries>...}
+ */
+public final class PhonebookFootprint {
+    private PhonebookFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: PhonebookFootprint <entries>...");
+            return;
+        }
+        Path directory = Paths.get(System.getProperty("pwc.benchmark.dir", System.getProperty("java.io.tmpdir")));
+        System.out.printf("%12s %16s %16s %8s%n", "entries", "list (bytes)", "columnar (bytes)", "ratio");
+        for (String arg : args) {
+            int size = Integer.parseInt(arg);
+            Path book = PhonebookGenerator.generate(directory.resolve("pwc-" + size + ".txt"), 0, size);
+            long list = retained(book, false);
+            long columnar = retained(book, true);
+            System.out.printf("%12d %16d %16d %7.1fx%n", size, list, columnar, (double) list / columnar);
+        }
+    }
+
+    private static long retained(Path book, boolean columnar) {
+        long baseline = usedHeap();
+        List<PhonebookEntry> entries = Phonebook.builder(book.toString()).columnar(columnar).build().getPhonebookEntryList();
+        long used = usedHeap();
+        if (entries.isEmpty()) {
+            throw new IllegalStateException(book + " has no entries.");
+        }
+        return used - baseline;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.pwc.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * This class generates synthetic phone book files in the {@code PhonebookEntry(name=..., number=...)} format. Entry
+ * {@code i} always gets the same name, so two books generated from overlapping index ranges share exactly the names of
+ * the overlap. Names are scrambled so the file is not already sorted.
+ */
+public final class PhonebookGenerator {
+    private static final String[] FIRST_NAMES = {"Angela", "John", "Danny", "William", "George", "Shaun", "Billy-Jean",
+            "Mary", "Dr. Ann", "Prof. Joe", "Kate", "O'Neil", "Peter", "Zoe", "Liam", "Olivia"};
+    private static final long SCRAMBLE = 0x9E3779B97F4A7C15L;
+
+    private PhonebookGenerator() {
+    }
+
+    /**
+     * Usage: {@code PhonebookGenerator <entries> <file> [firstIndex]}
+     *
+     * @param args The number of entries, the file to write and optionally the index of the first entry.
+     * @throws IOException if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PhonebookGenerator <entries> <file> [firstIndex]");
+            return;
+        }
+        long firstIndex = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        generate(Paths.get(args[1]), firstIndex, Integer.parseInt(args[0]));
+    }
+
+    /**
+     * Writes the entries {@code [firstIndex, firstIndex + entries)} to {@code path} unless the file already exists.
+     *
+     * @param path       The file to write.
+     * @param firstIndex The index of the first entry.
+     * @param entries    The number of entries.
+     * @return {@code path}
+     * @throws IOException if the file can't be written
+     */
+    public static Path generate(Path path, long firstIndex, int entries) throws IOException {
+        if (Files.exists(path)) {
+            return path;
+        }
+        Path temp = Paths.get(path + ".tmp");
+        Random random = new Random(firstIndex);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            for (long i = firstIndex; i < firstIndex + entries; i++) {
+                writer.write(line(i, random));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, path);
+        return path;
+    }
+
+    /**
+     * @param index The index of the entry.
+     * @return the name of entry {@code index}
+     */
+    public static String name(long index) {
+        long scrambled = index * SCRAMBLE;
+        StringBuilder name = new StringBuilder(FIRST_NAMES[(int) (index & (FIRST_NAMES.length - 1))]).append(' ');
+        long surname = index;
+        name.append((char) ('A' + (int) Long.remainderUnsigned(scrambled >>> 8, 26)));
+        do {
+            name.append((char) ('a' + (int) (surname % 26)));
+            surname /= 26;
+        } while (surname > 0);
+        return name.toString();
+    }
+
+    /**
+     * @param index  The index of the entry.
+     * @param random The source of the phone number digits.
+     * @return the line of entry {@code index}
+     */
+    public static String line(long index, Random random) {
+        return "PhonebookEntry(name=" + name(index) + ", number=+61 (0" + (2 + random.nextInt(7)) + ") "
+                + (1000 + random.nextInt(9000)) + "-" + (1000 + random.nextInt(9000)) + ")";
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.pwc.benchmark;
+
+import com.example.pwc.Phonebook;
+import com.example.pwc.PhonebookEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the point lookups of {@link Phonebook} on the synthetic books of {@link
+ * PhonebookBenchmark}. The indexes are built during setup, so only the lookups are measured. The numbers looked up are
+ * taken from the book and queried in a different format than they are stored in.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+@State(Scope.Benchmark)
+public class PhonebookLookupBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Phonebook phonebook;
+    private String[] names;
+    private String[] numbers;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void loadBook() throws IOException {
+        Path directory = Paths.get(System.getProperty("pwc.benchmark.dir", System.getProperty("java.io.tmpdir")));
+        Path book = PhonebookGenerator.generate(directory.resolve("pwc-" + size + ".txt"), 0, size);
+        phonebook = new Phonebook(book.toString());
+        List<PhonebookEntry> entries = phonebook.getPhonebookEntryList();
+        names = new String[QUERIES];
+        numbers = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            PhonebookEntry entry = entries.get((int) ((long) i * entries.size() / QUERIES));
+            names[i] = entry.getName().toUpperCase();
+            numbers[i] = entry.getNumber().replace(" ", "-");
+        }
+        phonebook.findByNumber(numbers[0]);
+    }
+
+    @Benchmark
+    public List<PhonebookEntry> findByName() {
+        return phonebook.findByName(names[query++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public List<PhonebookEntry> findByNumber() {
+        return phonebook.findByNumber(numbers[query++ & (QUERIES - 1)]);
+    }
+}
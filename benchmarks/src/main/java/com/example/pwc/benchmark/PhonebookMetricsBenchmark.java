@@ -0,0 +1,53 @@
+package com.example.pwc.benchmark;
+
+import com.example.pwc.Phonebook;
+import com.example.pwc.PhonebookEntry;
+import com.example.pwc.PhonebookEntryParser;
+import com.example.pwc.PhonebookMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link PhonebookMetrics} on the instrumented {@link Phonebook#createEntry(String)} against
+ * the bare {@link PhonebookEntryParser#parse(String)}, with the metrics disabled and enabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhonebookMetricsBenchmark {
+    private static final String LINE = "PhonebookEntry(name=Danny O'Connell, number=+61 (07) 5948-3029)";
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private Phonebook phonebook;
+
+    @Setup
+    public void setUp() throws Exception {
+        File book = File.createTempFile("pwc-metrics", ".txt");
+        book.deleteOnExit();
+        phonebook = new Phonebook(book.getPath());
+        PhonebookMetrics.setEnabled(enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        PhonebookMetrics.setEnabled(false);
+        PhonebookMetrics.reset();
+    }
+
+    @Benchmark
+    public PhonebookEntry parse() {
+        return PhonebookEntryParser.parse(LINE);
+    }
+
+    @Benchmark
+    public PhonebookEntry createEntry() {
+        return phonebook.createEntry(LINE);
+    }
+}
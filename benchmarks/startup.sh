@@ -0,0 +1,105 @@
+#!/usr/bin/env bash
+# Measures the cold start latency of every CLI command, one new process per run, for the shaded jar, the shaded jar
+# with the AppCDS archive of "mvn -Pappcds package" and the native executable of "mvn -Pnative package", whichever
+# were built. Run it from the project directory after "mvn package":
+#
+#   benchmarks/startup.sh [runs]
+#
+# JAVA selects the JVM (default java on the PATH), it has to be the JVM which wrote target/pwc.jsa. JAVA_OPTS are added
+# to every JVM run, eg JAVA_OPTS="-XX:TieredStopAtLevel=1". GOAL_MS is the latency goal flagged in the report.
+# A command which exits with a non-zero status is flagged as failed instead, the stderr of its first failed run is
+# printed after the report and the script exits with status 1. Needs GNU date for the nanosecond clock.
+set -euo pipefail
+
+RUNS=${1:-20}
+JAVA=${JAVA:-java}
+JAVA_OPTS=${JAVA_OPTS:-}
+GOAL_MS=${GOAL_MS:-50}
+PROJECT=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$PROJECT/target/pwc-1.0.0-shaded.jar"
+ARCHIVE="$PROJECT/target/pwc.jsa"
+NATIVE="$PROJECT/target/pwc"
+BOOK_SOURCE="$PROJECT/src/test/resources/service/input/default.txt"
+
+if [ ! -f "$JAR" ]; then
+    echo "$JAR is missing, run mvn package first." >&2
+    exit 1
+fi
+
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+cd "$WORK"
+cp "$BOOK_SOURCE" other.txt
+
+# The commands run in the work directory, where book.txt and the default personalBook.txt are copied before every run.
+COMMANDS=(
+    "help|-h"
+    "print|-p -b book.txt"
+    "add|-a 'PhonebookEntry(name=Zed Startup, number=0400000000)' -b book.txt"
+    "remove|-r 'John Citizen' -b book.txt"
+    "unique|-u -b other.txt"
+    "search|-s ang -b book.txt"
+    "number|-n 0418-100-200 -b book.txt"
+)
+
+LAUNCHERS=("jar|\"$JAVA\" $JAVA_OPTS -jar \"$JAR\"")
+if [ -f "$ARCHIVE" ]; then
+    LAUNCHERS+=("appcds|\"$JAVA\" $JAVA_OPTS -XX:SharedArchiveFile=\"$ARCHIVE\" -Xshare:auto -jar \"$JAR\"")
+fi
+if [ -x "$NATIVE" ]; then
+    LAUNCHERS+=("native|\"$NATIVE\"")
+fi
+
+FAILURES=()
+
+# Runs a command RUNS times on fresh copies of the books and prints the min, median and p90 latency in ms. A run which
+# exits with a non-zero status fails the row, the stderr of the first failed run is kept in $WORK/failures.
+measure() {
+    local name=$1 launcher=$2 arguments=$3 times=() start end status failed=0 first_status=0
+    for ((run = 0; run < RUNS; run++)); do
+        cp "$BOOK_SOURCE" book.txt
+        cp "$BOOK_SOURCE" personalBook.txt
+        start=$(date +%s%N)
+        if eval "$launcher $arguments" >/dev/null 2>stderr.txt; then
+            status=0
+        else
+            status=$?
+        fi
+        end=$(date +%s%N)
+        times+=($(((end - start) / 1000)))
+        if [ "$status" -ne 0 ]; then
+            if [ "$failed" -eq 0 ]; then
+                first_status=$status
+                mkdir -p failures
+                mv stderr.txt "failures/$name.txt"
+                FAILURES+=("$name")
+            fi
+            failed=$((failed + 1))
+        fi
+    done
+    printf '%s\n' "${times[@]}" | sort -n | awk -v goal="$GOAL_MS" -v failed="$failed" -v runs="$RUNS" -v status="$first_status" '
+        { t[NR] = $1 }
+        END {
+            median = t[int((NR + 1) / 2)] / 1000
+            p90 = t[int(NR * 0.9 + 0.5)] / 1000
+            verdict = failed > 0 ? "FAILED " failed "/" runs " runs, exit " status : median <= goal ? "ok" : "over " goal " ms"
+            printf "%10.1f %10.1f %10.1f  %s\n", t[1] / 1000, median, p90, verdict
+        }'
+}
+
+printf '%-8s %-8s %10s %10s %10s\n' launcher command min-ms median-ms p90-ms
+for launcher in "${LAUNCHERS[@]}"; do
+    for command in "${COMMANDS[@]}"; do
+        printf '%-8s %-8s ' "${launcher%%|*}" "${command%%|*}"
+        measure "${launcher%%|*}-${command%%|*}" "${launcher#*|}" "${command#*|}"
+    done
+done
+
+if [ ${#FAILURES[@]} -gt 0 ]; then
+    for name in "${FAILURES[@]}"; do
+        echo >&2
+        echo "$name failed, stderr of its first failed run:" >&2
+        cat "failures/$name.txt" >&2
+    done
+    exit 1
+fi
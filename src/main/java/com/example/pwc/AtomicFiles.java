@@ -0,0 +1,167 @@
+package com.example.pwc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class replaces files atomically. The content is written and forced to a temporary file next to the target,
+ * which is then renamed over the target, so readers of the target see either the old or the new content. The
+ * directory is forced after the rename where the platform allows it, so the rename survives a crash too. The temporary
+ * file gets the permissions, owner and group of the target, so replacing a file doesn't change who can read it.
+ */
+public final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    /**
+     * Replace {@code path} with {@code lines} in UTF-8, each one followed by the line separator, like {@link
+     * Files#write(Path, Iterable, java.nio.file.OpenOption...)}.
+     *
+     * @param path  The file to be replaced.
+     * @param lines The lines to be written.
+     * @return the number of bytes written
+     * @throws IOException if the file can't be written or renamed
+     */
+    public static long writeLines(Path path, Iterable<? extends CharSequence> lines) throws IOException {
+        return writeLines(path, lines, false);
+    }
+
+    /**
+     * Replace {@code path} with {@code lines} like {@link AtomicFiles#writeLines(Path, Iterable)}, compressed with gzip
+     * while they are written if {@code compressed} is {@code true}.
+     *
+     * @param path       The file to be replaced.
+     * @param lines      The lines to be written.
+     * @param compressed {@code true} to write the {@link CompressedPhonebook} format
+     * @return the number of bytes written
+     * @throws IOException if the file can't be written or renamed
+     */
+    public static long writeLines(Path path, Iterable<? extends CharSequence> lines, boolean compressed) throws IOException {
+        Path temp = createTempFile(path);
+        long size;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                GZIPOutputStream gzip = compressed ? CompressedPhonebook.newOutputStream(out) : null;
+                Writer writer = new BufferedWriter(new OutputStreamWriter(gzip != null ? gzip : out, StandardCharsets.UTF_8), 1 << 16);
+                for (CharSequence line : lines) {
+                    writer.append(line);
+                    writer.write(System.lineSeparator());
+                }
+                writer.flush();
+                if (gzip != null) {
+                    gzip.finish();
+                }
+                channel.force(true);
+                size = channel.size();
+            }
+            move(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return size;
+    }
+
+    /**
+     * Forces {@code temp}, a file of {@link AtomicFiles#createTempFile(Path)} which has been written and closed, and
+     * renames it over {@code path}.
+     *
+     * @param temp The temporary file.
+     * @param path The file to be replaced.
+     * @throws IOException if the file can't be forced or renamed
+     */
+    static void replace(Path temp, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        move(temp, path);
+    }
+
+    /**
+     * Renames {@code temp}, which has been forced, over {@code path} and forces the directory.
+     */
+    static void move(Path temp, Path path) throws IOException {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Creates an empty temporary file next to {@code path} to be renamed over it. Unlike {@link
+     * Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute[])}, which makes the file
+     * readable by its owner only, the file is created with the default permissions of a new file, and then gets the
+     * permissions, owner and group of {@code path} if it exists. The owner and group are kept where the process is
+     * allowed to change them.
+     *
+     * @param path The file to be replaced.
+     * @return the new temporary file
+     * @throws IOException if the file can't be created or its permissions can't be set
+     */
+    static Path createTempFile(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp;
+        while (true) {
+            temp = directory.resolve(path.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.createFile(temp);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // try another name
+            }
+        }
+        try {
+            copyAttributes(path, temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    static void copyAttributes(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (sourceView == null || targetView == null || !Files.exists(source)) {
+            return;
+        }
+        PosixFileAttributes attributes = sourceView.readAttributes();
+        try {
+            targetView.setOwner(attributes.owner());
+        } catch (IOException e) {
+            // only a privileged process can give a file away
+        }
+        try {
+            targetView.setGroup(attributes.group());
+        } catch (IOException e) {
+            // only groups of the process owner can be set
+        }
+        targetView.setPermissions(attributes.permissions());
+    }
+
+    /**
+     * Force the entries of {@code directory} to disk. Directories can't be opened on every platform, eg Windows, where
+     * this is a no-op.
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename is as durable as the platform makes it
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.pwc;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * This class reads and writes the binary phone book format. A binary phone book is memory mapped on open, which checks
+ * the header and the checksum, and entries are decoded lazily when they are searched or iterated.
+ * <p>
+ * The file is laid out as:
+ * <li>
+ *     <ul>a 32 byte header: magic {@code PWCB}, version, entry count, index interval, index offset and the CRC32 of
+ *     everything after the header</ul>
+ *     <ul>the records, sorted with {@link PhonebookEntry#compareTo(PhonebookEntry)}, each one an unsigned short length
+ *     and the UTF-8 bytes of the name followed by the same for the number. A number length of {@code 0xFFFF} is a
+ *     {@code null} number</ul>
+ *     <ul>the sparse index, the int offset of every {@code indexInterval}-th record</ul>
+ * </li>
+ * The sort is stable, so entries with the same name keep the order they were written in and iterating a binary phone
+ * book gives the same order as {@link Phonebook#printPhonebook()}.
+ */
+public final class BinaryPhonebook implements Iterable<PhonebookEntry> {
+    public static final int DEFAULT_INDEX_INTERVAL = 64;
+    static final int MAGIC = 0x50574342;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int MAX_FIELD_LENGTH = 0xFFFE;
+    private static final int NULL_LENGTH = 0xFFFF;
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int indexInterval;
+    private final int indexOffset;
+    private final int checksum;
+
+    private BinaryPhonebook(ByteBuffer buffer, int size, int indexInterval, int indexOffset, int checksum) {
+        this.buffer = buffer;
+        this.size = size;
+        this.indexInterval = indexInterval;
+        this.indexOffset = indexOffset;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @param path The file to be checked.
+     * @return {@code true} if {@code path} is a regular file starting with the magic of the binary format
+     * @throws IOException if the file can't be read
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Memory maps {@code path} and checks its header and the checksum of the records and the index, so a corrupt book
+     * is never served or converted. The records are not decoded.
+     *
+     * @param path The binary phone book file.
+     * @return the opened phone book
+     * @throws IOException if the file can't be read, is not a binary phone book or doesn't match its checksum
+     */
+    public static BinaryPhonebook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a binary phone book.");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a binary phone book.");
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException(path + " has unsupported binary version " + buffer.getShort(4) + ".");
+            }
+            int size = buffer.getInt(8);
+            int indexInterval = buffer.getInt(12);
+            long indexOffset = buffer.getLong(16);
+            if (size < 0 || indexInterval < 1 || indexOffset < HEADER_SIZE
+                    || indexOffset + 4L * blocks(size, indexInterval) != fileSize) {
+                throw new IOException(path + " has a corrupt binary header.");
+            }
+            BinaryPhonebook book = new BinaryPhonebook(buffer, size, indexInterval, (int) indexOffset, buffer.getInt(24));
+            if (!book.verify()) {
+                throw new IOException(path + " is corrupt, its checksum doesn't match.");
+            }
+            return book;
+        }
+    }
+
+    /**
+     * Writes {@code entries} to {@code path} with an index entry every {@link BinaryPhonebook#DEFAULT_INDEX_INTERVAL}
+     * records.
+     *
+     * @param entries The entries to be written, in any order.
+     * @param path    The binary phone book file.
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Collection<PhonebookEntry> entries, Path path) throws IOException {
+        write(entries, path, DEFAULT_INDEX_INTERVAL);
+    }
+
+    /**
+     * Writes {@code entries} to a temporary file next to {@code path} and moves it over {@code path}, so readers which
+     * still map the old file are not affected.
+     *
+     * @param entries       The entries to be written, in any order.
+     * @param path          The binary phone book file.
+     * @param indexInterval The number of records between two index entries.
+     * @throws IOException if the file can't be written
+     * @throws IllegalArgumentException if a name or number is longer than 65534 UTF-8 bytes or the file would be
+     *                                  larger than 2 GB
+     */
+    public static void write(Collection<PhonebookEntry> entries, Path path, int indexInterval) throws IOException {
+        if (indexInterval < 1) {
+            throw new IllegalArgumentException("indexInterval must be positive.");
+        }
+        PhonebookEntry[] sorted = entries.toArray(new PhonebookEntry[0]);
+        Arrays.sort(sorted);
+        Path temp = AtomicFiles.createTempFile(path);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_SIZE);
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+                int[] index = new int[blocks(sorted.length, indexInterval)];
+                long offset = HEADER_SIZE;
+                for (int i = 0; i < sorted.length; i++) {
+                    if (i % indexInterval == 0) {
+                        index[i / indexInterval] = checkedOffset(offset);
+                    }
+                    offset += writeField(out, sorted[i].getName()) + writeField(out, sorted[i].getNumber());
+                }
+                long indexOffset = offset;
+                for (int recordOffset : index) {
+                    out.writeInt(recordOffset);
+                }
+                checkedOffset(indexOffset + 4L * index.length);
+                out.flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(sorted.length).putInt(indexInterval)
+                        .putLong(indexOffset).putInt((int) crc.getValue()).putInt(0).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            AtomicFiles.move(temp, path);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int writeField(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_LENGTH);
+            return 2;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Field longer than " + MAX_FIELD_LENGTH + " bytes: " + value.substring(0, 32));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+        return 2 + bytes.length;
+    }
+
+    private static int checkedOffset(long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Phone book is too large for the binary format.");
+        }
+        return (int) offset;
+    }
+
+    private static int blocks(int size, int indexInterval) {
+        return (int) ((size + (long) indexInterval - 1) / indexInterval);
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads all the records and the index and compares their CRC32 with the one in the header.
+     *
+     * @return {@code true} if the checksum matches
+     */
+    public boolean verify() {
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue() == checksum;
+    }
+
+    /**
+     * Binary searches the sparse index for the block of {@code name} and scans it, so only about {@code log(size /
+     * indexInterval) + indexInterval} records are decoded.
+     *
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in the order they were written, or an empty list if there is none
+     */
+    public List<PhonebookEntry> findByName(String name) {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        int offset = lowerBlockOffset(name);
+        int end = indexOffset;
+        while (offset < end) {
+            String recordName = readField(offset);
+            int compare = recordName.compareToIgnoreCase(name);
+            if (compare > 0) {
+                break;
+            }
+            int numberOffset = skipField(offset);
+            if (compare == 0) {
+                entries.add(PhonebookEntry.builder().name(recordName).number(readField(numberOffset)).build());
+            }
+            offset = skipField(numberOffset);
+        }
+        return entries;
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return {@code true} if there is at least one entry with the given {@code name}
+     */
+    public boolean containsName(String name) {
+        int offset = lowerBlockOffset(name);
+        while (offset < indexOffset) {
+            int compare = readField(offset).compareToIgnoreCase(name);
+            if (compare >= 0) {
+                return compare == 0;
+            }
+            offset = skipField(skipField(offset));
+        }
+        return false;
+    }
+
+    /**
+     * Decodes all the entries.
+     *
+     * @return the entries in the order they are stored
+     */
+    public List<PhonebookEntry> toList() {
+        List<PhonebookEntry> entries = new ArrayList<>(size);
+        forEach(entries::add);
+        return entries;
+    }
+
+    /**
+     * @return an iterator which decodes the entries in the order they are stored
+     */
+    @Override
+    public Iterator<PhonebookEntry> iterator() {
+        return new Iterator<PhonebookEntry>() {
+            private int offset = HEADER_SIZE;
+
+            @Override
+            public boolean hasNext() {
+                return offset < indexOffset;
+            }
+
+            @Override
+            public PhonebookEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String name = readField(offset);
+                int numberOffset = skipField(offset);
+                String number = readField(numberOffset);
+                offset = skipField(numberOffset);
+                return PhonebookEntry.builder().name(name).number(number).build();
+            }
+        };
+    }
+
+    /**
+     * @return the offset of the first record of the last block whose first name is less than {@code name}, or of the
+     * first record if there is none
+     */
+    private int lowerBlockOffset(String name) {
+        int low = 0;
+        int high = blocks(size, indexInterval) - 1;
+        int block = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (readField(blockOffset(mid)).compareToIgnoreCase(name) < 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return size == 0 ? indexOffset : blockOffset(block);
+    }
+
+    private int blockOffset(int block) {
+        return buffer.getInt(indexOffset + 4 * block);
+    }
+
+    private String readField(int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer field = buffer.duplicate();
+        field.position(offset + 2);
+        field.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int skipField(int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        return offset + 2 + (length == NULL_LENGTH ? 0 : length);
+    }
+}
@@ -0,0 +1,516 @@
+package com.example.pwc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class is a compact {@link List} of {@link PhonebookEntry}. Instead of an object with two strings per entry, it
+ * keeps three columns:
+ * <li>
+ *     <ul>an {@code int} offset into a byte arena, where the name is stored as a varint length and its UTF-8 bytes</ul>
+ *     <ul>a {@code long} number: the digits of a number with up to 18 digits are packed after a leading {@code 1}, so
+ *     leading zeros are kept. Every other number is stored in the arena like the names and referenced by its negated
+ *     offset.</ul>
+ *     <ul>a {@code short} shape of a packed number: the index of its characters with the digits left out, eg {@code
+ *     +__ (__) ____-____}. Books use only a handful of number formats, so the shapes are interned once per store.</ul>
+ * </li>
+ * That is 15 bytes plus the length of the name per entry. A {@link PhonebookEntry} is only created as a view when
+ * an entry is read, so two reads of the same entry return equal but not identical objects.
+ * <p>
+ * Names are looked up through a compact index: a column with the hash of every case folded name (see {@link
+ * PhonebookEntry#foldName(String)}) and an open addressing table of row numbers, which is built by the first lookup and
+ * updated by appends, replaces and removes after that. An insert before the last entry drops the table until the next
+ * lookup. That is 4 more bytes per entry, and 8 to 16 once the table is built.
+ * <p>
+ * Removed and replaced entries leave their bytes in the arena until more than half of it is garbage, then the arena is
+ * compacted.
+ */
+public class ColumnarEntryStore extends AbstractList<PhonebookEntry> implements RandomAccess {
+    private static final long NULL_NUMBER = 0;
+    private static final long NULL_STRING_NUMBER = 1;
+    private static final String NULL_STRING = "null";
+    private static final int MAX_PACKED_DIGITS = 18;
+    private static final int MIN_COMPACTION_SIZE = 1 << 16;
+    private static final int MAX_SHAPES = 1 << 16;
+    private static final char DIGIT = '\u0000';
+    private byte[] arena = new byte[1024];
+    private int arenaLength;
+    private int garbage;
+    private int[] nameOffsets = new int[16];
+    private long[] numbers = new long[16];
+    private short[] shapes = new short[16];
+    private int[] nameHashes = new int[16];
+    private int[] nameTable;
+    private final List<String> shapeList = new ArrayList<>();
+    private final Map<String, Integer> shapeIds = new HashMap<>();
+    private int size;
+    private boolean asciiNames = true;
+
+    public ColumnarEntryStore() {
+    }
+
+    /**
+     * @param entries The entries to be copied into the new store.
+     */
+    public ColumnarEntryStore(Collection<PhonebookEntry> entries) {
+        this();
+        ensureCapacity(entries.size());
+        entries.forEach(this::add);
+    }
+
+    @Override
+    public PhonebookEntry get(int index) {
+        checkIndex(index);
+        return PhonebookEntry.builder().name(readString(nameOffsets[index])).number(decodeNumber(index)).build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(int index, PhonebookEntry entry) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(nameOffsets, index, nameOffsets, index + 1, size - index);
+        System.arraycopy(numbers, index, numbers, index + 1, size - index);
+        System.arraycopy(shapes, index, shapes, index + 1, size - index);
+        System.arraycopy(nameHashes, index, nameHashes, index + 1, size - index);
+        nameOffsets[index] = writeName(entry.getName());
+        nameHashes[index] = foldedHash(entry.getName());
+        encodeNumber(index, entry.getNumber());
+        size++;
+        modCount++;
+        if (nameTable != null) {
+            if (size * 2 > nameTable.length || index < size - 1) {
+                nameTable = null;
+            } else {
+                link(nameTable, index);
+            }
+        }
+    }
+
+    @Override
+    public PhonebookEntry set(int index, PhonebookEntry entry) {
+        PhonebookEntry previous = get(index);
+        release(index);
+        if (nameTable != null) {
+            unlink(nameTable, index);
+        }
+        nameOffsets[index] = writeName(entry.getName());
+        nameHashes[index] = foldedHash(entry.getName());
+        encodeNumber(index, entry.getNumber());
+        if (nameTable != null) {
+            link(nameTable, index);
+        }
+        compactIfNeeded();
+        return previous;
+    }
+
+    @Override
+    public PhonebookEntry remove(int index) {
+        PhonebookEntry previous = get(index);
+        release(index);
+        if (nameTable != null) {
+            unlink(nameTable, index);
+            if (index < size - 1) {
+                renumber(nameTable, index + 1);
+            }
+        }
+        System.arraycopy(nameOffsets, index + 1, nameOffsets, index, size - index - 1);
+        System.arraycopy(numbers, index + 1, numbers, index, size - index - 1);
+        System.arraycopy(shapes, index + 1, shapes, index, size - index - 1);
+        System.arraycopy(nameHashes, index + 1, nameHashes, index, size - index - 1);
+        size--;
+        modCount++;
+        compactIfNeeded();
+        return previous;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            release(i);
+        }
+        System.arraycopy(nameOffsets, toIndex, nameOffsets, fromIndex, size - toIndex);
+        System.arraycopy(numbers, toIndex, numbers, fromIndex, size - toIndex);
+        System.arraycopy(shapes, toIndex, shapes, fromIndex, size - toIndex);
+        System.arraycopy(nameHashes, toIndex, nameHashes, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        nameTable = null;
+        modCount++;
+        compactIfNeeded();
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        arenaLength = 0;
+        garbage = 0;
+        asciiNames = true;
+        nameTable = null;
+        modCount++;
+    }
+
+    /**
+     * Looks the name up in the name index and compares the candidates in place without creating views. While all the
+     * names are ASCII, which are all the names the text format accepts, they are compared byte by byte.
+     *
+     * @param name Name to be looked up, case insensitive.
+     * @return the index of the first entry with the given {@code name}, or {@code -1} if there is none
+     */
+    public int indexOfName(String name) {
+        int[] rows = rowsOfName(name);
+        return rows.length > 0 ? rows[0] : -1;
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in the order they are stored, or an empty list if there is none
+     */
+    public List<PhonebookEntry> findByName(String name) {
+        int[] rows = rowsOfName(name);
+        List<PhonebookEntry> entries = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            entries.add(get(row));
+        }
+        return entries;
+    }
+
+    /**
+     * Releases the spare capacity of the columns and the arena, like {@link ArrayList#trimToSize()}.
+     */
+    public void trimToSize() {
+        compactIfNeeded();
+        nameOffsets = Arrays.copyOf(nameOffsets, size);
+        numbers = Arrays.copyOf(numbers, size);
+        shapes = Arrays.copyOf(shapes, size);
+        nameHashes = Arrays.copyOf(nameHashes, size);
+        arena = Arrays.copyOf(arena, arenaLength);
+    }
+
+    /**
+     * @return the number of bytes held by the columns, the name index and the arena, without the interned shapes
+     */
+    public long footprint() {
+        int[] table = nameTable;
+        return arena.length + 4L * nameOffsets.length + 8L * numbers.length + 2L * shapes.length
+                + 4L * nameHashes.length + (table != null ? 4L * table.length : 0);
+    }
+
+    private int[] rowsOfName(String name) {
+        int hash = foldedHash(name);
+        boolean ascii = asciiNames && isAscii(name);
+        int[] table = nameTable();
+        int[] rows = new int[4];
+        int count = 0;
+        int mask = table.length - 1;
+        for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int row = table[slot] - 1;
+            if (nameHashes[row] == hash && (ascii ? asciiNameEquals(nameOffsets[row], name)
+                    : readString(nameOffsets[row]).equalsIgnoreCase(name))) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * The table holds the row numbers plus one, so {@code 0} is an empty slot. It is at most half full. Lookups only
+     * read it, so a table built by a lookup is published once it is complete.
+     */
+    private int[] nameTable() {
+        int[] table = nameTable;
+        if (table == null) {
+            table = new int[Integer.highestOneBit(Math.max(8, size) - 1) << 2];
+            for (int i = 0; i < size; i++) {
+                link(table, i);
+            }
+            nameTable = table;
+        }
+        return table;
+    }
+
+    private void link(int[] table, int row) {
+        int mask = table.length - 1;
+        int slot = mix(nameHashes[row]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    /**
+     * Removes the slot of {@code row} and moves the slots after it back, so every probe still reaches its row.
+     */
+    private void unlink(int[] table, int row) {
+        int mask = table.length - 1;
+        int slot = mix(nameHashes[row]) & mask;
+        while (table[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int home = mix(nameHashes[table[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                table[slot] = table[next];
+                slot = next;
+            }
+        }
+        table[slot] = 0;
+    }
+
+    /**
+     * Subtracts one from every row from {@code from} on, after a row was removed before them. That is as much work as
+     * shifting the columns, which a remove does anyway. An insert before the last row drops the table instead, as an
+     * append is the common insert and must not scan it.
+     */
+    private static void renumber(int[] table, int from) {
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] > from) {
+                table[i]--;
+            }
+        }
+    }
+
+    /**
+     * @return the same hash as {@code PhonebookEntry.foldName(name).hashCode()}, without creating the folded name
+     */
+    private static int foldedHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean asciiNameEquals(int offset, String name) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = arena[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int stored = arena[offset + i];
+            char c = name.charAt(i);
+            if (stored != c && toLowerAscii(stored) != toLowerAscii(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean isAscii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void encodeNumber(int index, String number) {
+        shapes[index] = 0;
+        if (number == null) {
+            numbers[index] = NULL_NUMBER;
+        } else if (NULL_STRING.equals(number)) {
+            numbers[index] = NULL_STRING_NUMBER;
+        } else {
+            long packed = 1;
+            int digits = 0;
+            char[] shape = number.toCharArray();
+            for (int i = 0; i < shape.length && digits <= MAX_PACKED_DIGITS; i++) {
+                char c = shape[i];
+                if (c >= '0' && c <= '9') {
+                    packed = packed * 10 + (c - '0');
+                    shape[i] = DIGIT;
+                    digits++;
+                } else if (c == DIGIT) {
+                    digits = MAX_PACKED_DIGITS + 1;
+                }
+            }
+            int shapeId = digits > 0 && digits <= MAX_PACKED_DIGITS ? shapeId(new String(shape)) : -1;
+            if (shapeId >= 0) {
+                numbers[index] = packed;
+                shapes[index] = (short) shapeId;
+            } else {
+                numbers[index] = -writeString(number) - 1L;
+            }
+        }
+    }
+
+    private int shapeId(String shape) {
+        Integer id = shapeIds.get(shape);
+        if (id == null) {
+            if (shapeList.size() == MAX_SHAPES) {
+                return -1;
+            }
+            id = shapeList.size();
+            shapeList.add(shape);
+            shapeIds.put(shape, id);
+        }
+        return id;
+    }
+
+    private String decodeNumber(int index) {
+        long number = numbers[index];
+        if (number == NULL_NUMBER) {
+            return null;
+        }
+        if (number == NULL_STRING_NUMBER) {
+            return NULL_STRING;
+        }
+        if (number < 0) {
+            return readString((int) (-number - 1));
+        }
+        String digits = Long.toString(number);
+        char[] decoded = shapeList.get(shapes[index] & 0xFFFF).toCharArray();
+        for (int i = 0, digit = 1; i < decoded.length; i++) {
+            if (decoded[i] == DIGIT) {
+                decoded[i] = digits.charAt(digit++);
+            }
+        }
+        return new String(decoded);
+    }
+
+    private int writeName(String name) {
+        asciiNames &= isAscii(name);
+        return writeString(name);
+    }
+
+    private int writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int offset = arenaLength;
+        ensureArena(arenaLength + varintSize(bytes.length) + bytes.length);
+        int length = bytes.length;
+        while (length >= 0x80) {
+            arena[arenaLength++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        arena[arenaLength++] = (byte) length;
+        System.arraycopy(bytes, 0, arena, arenaLength, bytes.length);
+        arenaLength += bytes.length;
+        return offset;
+    }
+
+    private String readString(int offset) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = arena[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return new String(arena, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private int stringSize(int offset) {
+        int length = 0;
+        int shift = 0;
+        int start = offset;
+        byte b;
+        do {
+            b = arena[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return offset - start + length;
+    }
+
+    private static int varintSize(int value) {
+        int bytes = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private void release(int index) {
+        garbage += stringSize(nameOffsets[index]);
+        if (numbers[index] < 0) {
+            garbage += stringSize((int) (-numbers[index] - 1));
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (garbage <= MIN_COMPACTION_SIZE || garbage * 2 <= arenaLength) {
+            return;
+        }
+        byte[] oldArena = arena;
+        arena = new byte[Math.max(1024, arenaLength - garbage)];
+        arenaLength = 0;
+        garbage = 0;
+        for (int i = 0; i < size; i++) {
+            nameOffsets[i] = copyString(oldArena, nameOffsets[i]);
+            if (numbers[i] < 0) {
+                numbers[i] = -copyString(oldArena, (int) (-numbers[i] - 1)) - 1L;
+            }
+        }
+    }
+
+    private int copyString(byte[] from, int offset) {
+        int start = offset;
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = from[offset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        int bytes = offset - start + length;
+        ensureArena(arenaLength + bytes);
+        System.arraycopy(from, start, arena, arenaLength, bytes);
+        arenaLength += bytes;
+        return arenaLength - bytes;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > nameOffsets.length) {
+            int newCapacity = Math.max(capacity, nameOffsets.length + (nameOffsets.length >> 1));
+            nameOffsets = Arrays.copyOf(nameOffsets, newCapacity);
+            numbers = Arrays.copyOf(numbers, newCapacity);
+            shapes = Arrays.copyOf(shapes, newCapacity);
+            nameHashes = Arrays.copyOf(nameHashes, newCapacity);
+        }
+    }
+
+    private void ensureArena(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalStateException("Entry store is larger than 2 GB.");
+        }
+        if (capacity > arena.length) {
+            arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, arena.length * 2L)));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
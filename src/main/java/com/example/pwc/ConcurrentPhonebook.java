@@ -0,0 +1,224 @@
+package com.example.pwc;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * This class is a thread safe variant of {@link Phonebook} for books shared by many request threads.
+ * <p>
+ * Entries are kept in insertion order in a {@link ConcurrentSkipListMap} keyed by a sequence number, and in immutable
+ * name buckets of a {@link ConcurrentHashMap} keyed by {@link PhonebookEntry#foldName(String)}. A mutation replaces the
+ * bucket of its name inside {@link ConcurrentHashMap#compute}, so mutations of names in different bins run in parallel
+ * and readers never block.
+ * <p>
+ * Every mutation is persisted before it returns. The entries are copied while mutations are held off, written to a
+ * temporary file and renamed over the book, so the file always holds a snapshot that some reader could have seen. A
+ * snapshot which is older than the one already on disk is not written.
+ */
+public class ConcurrentPhonebook {
+    @Getter
+    private final String filename;
+    private final boolean binaryFormat;
+    private final boolean compressedFormat;
+    private final ConcurrentSkipListMap<Long, PhonebookEntry> entries = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, NameBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Object persistLock = new Object();
+    private long snapshotVersion;
+    private long persistedVersion;
+
+    /**
+     * Loads the {@link PhonebookEntry} from the given {@code filename} like {@link Phonebook#Phonebook(String)}. The
+     * book is persisted in the format it was loaded from, and a new book is compressed if its name ends with {@link
+     * CompressedPhonebook#EXTENSION}.
+     *
+     * @param filename The filename where the phone book is stored or will be stored.
+     */
+    public ConcurrentPhonebook(String filename) {
+        Phonebook phonebook = new Phonebook(filename);
+        this.filename = filename;
+        try {
+            Path path = Paths.get(filename);
+            this.binaryFormat = BinaryPhonebook.isBinary(path);
+            this.compressedFormat = !binaryFormat && (Files.exists(path)
+                    ? CompressedPhonebook.isCompressed(path) : CompressedPhonebook.hasExtension(filename));
+        } catch (IOException e) {
+            throw new RuntimeException("Error with reading files. " + e.getMessage());
+        }
+        phonebook.getPhonebookEntryList().forEach(this::applyAdd);
+    }
+
+    /**
+     * @return a copy of the entries in the order they were added
+     */
+    public List<PhonebookEntry> getPhonebookEntryList() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in the order they were added, or an empty list if there is none
+     */
+    public List<PhonebookEntry> findByName(String name) {
+        NameBucket bucket = buckets.get(PhonebookEntry.foldName(name));
+        return bucket == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(bucket.entries));
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return {@code true} if this book has at least one entry with the given {@code name}
+     */
+    public boolean containsName(String name) {
+        return buckets.containsKey(PhonebookEntry.foldName(name));
+    }
+
+    /**
+     * Add an entry to this book and persist it.
+     *
+     * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return {@code true} if an entry is added successfully, {@code false} otherwise
+     */
+    public boolean addEntry(String line) {
+        PhonebookEntry entry = PhonebookEntryParser.parse(line);
+        if (entry == null) {
+            return false;
+        }
+        snapshotLock.readLock().lock();
+        try {
+            applyAdd(entry);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        persistBook();
+        return true;
+    }
+
+    /**
+     * Remove the first entry matching {@code name} from this book and persist it.
+     *
+     * @param name Name to be remove from the phonebook, case insensitive.
+     * @return {@code true} if an entry is removed successfully, {@code false} otherwise
+     */
+    public boolean removeEntry(String name) {
+        PhonebookEntry[] removed = new PhonebookEntry[1];
+        snapshotLock.readLock().lock();
+        try {
+            buckets.computeIfPresent(PhonebookEntry.foldName(name), (key, bucket) -> {
+                entries.remove(bucket.sequences[0]);
+                removed[0] = bucket.entries[0];
+                return bucket.withoutFirst();
+            });
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        if (removed[0] == null) {
+            return false;
+        }
+        persistBook();
+        return true;
+    }
+
+    /**
+     * Print the entries of this book in ascending order to {@code out}
+     *
+     * @param out The stream the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if no entries in this book
+     */
+    public boolean printPhonebook(PrintStream out) {
+        List<PhonebookEntry> snapshot = getPhonebookEntryList();
+        if (snapshot.isEmpty()) {
+            out.println("Current phone book has no entries.");
+            return false;
+        }
+        snapshot.stream().sorted().forEach(out::println);
+        return true;
+    }
+
+    private void applyAdd(PhonebookEntry entry) {
+        buckets.compute(PhonebookEntry.foldName(entry.getName()), (key, bucket) -> {
+            long sequenceNumber = sequence.incrementAndGet();
+            entries.put(sequenceNumber, entry);
+            return bucket == null ? new NameBucket(sequenceNumber, entry) : bucket.with(sequenceNumber, entry);
+        });
+    }
+
+    /**
+     * Persist a snapshot of the entries which includes every mutation completed so far, unless a newer snapshot is
+     * already on disk.
+     *
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    private void persistBook() {
+        List<PhonebookEntry> snapshot;
+        long version;
+        snapshotLock.writeLock().lock();
+        try {
+            snapshot = getPhonebookEntryList();
+            version = ++snapshotVersion;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        synchronized (persistLock) {
+            if (version <= persistedVersion) {
+                return;
+            }
+            Path path = Paths.get(filename);
+            try {
+                if (binaryFormat) {
+                    BinaryPhonebook.write(snapshot, path);
+                } else {
+                    AtomicFiles.writeLines(path, snapshot.stream().map(PhonebookEntry::toString).collect(Collectors.toList()), compressedFormat);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("File persistent failed.");
+            }
+            persistedVersion = version;
+        }
+    }
+
+    /**
+     * The entries of one folded name in the order they were added. Buckets are immutable, a mutation replaces them.
+     */
+    private static final class NameBucket {
+        private final long[] sequences;
+        private final PhonebookEntry[] entries;
+
+        private NameBucket(long sequence, PhonebookEntry entry) {
+            this(new long[]{sequence}, new PhonebookEntry[]{entry});
+        }
+
+        private NameBucket(long[] sequences, PhonebookEntry[] entries) {
+            this.sequences = sequences;
+            this.entries = entries;
+        }
+
+        private NameBucket with(long sequence, PhonebookEntry entry) {
+            long[] newSequences = Arrays.copyOf(sequences, sequences.length + 1);
+            PhonebookEntry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newSequences[sequences.length] = sequence;
+            newEntries[entries.length] = entry;
+            return new NameBucket(newSequences, newEntries);
+        }
+
+        private NameBucket withoutFirst() {
+            if (entries.length == 1) {
+                return null;
+            }
+            return new NameBucket(Arrays.copyOfRange(sequences, 1, sequences.length),
+                    Arrays.copyOfRange(entries, 1, entries.length));
+        }
+    }
+}
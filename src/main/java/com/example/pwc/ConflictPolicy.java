@@ -0,0 +1,63 @@
+package com.example.pwc;
+
+import java.util.*;
+
+/**
+ * This enum tells which of the entries with the same name are kept, names being compared like {@link
+ * PhonebookEntry#compareTo(PhonebookEntry)}, case insensitive.
+ * <li>
+ *     <ul>{@link ConflictPolicy#LAST_WINS}: the entry added last</ul>
+ *     <ul>{@link ConflictPolicy#FIRST_WINS}: the entry added first</ul>
+ *     <ul>{@link ConflictPolicy#KEEP_ALL_NUMBERS}: the first entry of every number, numbers being compared like {@link
+ *     PhonebookNumberIndex#normalize(String)}</ul>
+ * </li>
+ */
+public enum ConflictPolicy {
+    LAST_WINS, FIRST_WINS, KEEP_ALL_NUMBERS;
+
+    /**
+     * @param policy {@code last-wins}, {@code first-wins} or {@code keep-all-numbers}, case insensitive.
+     * @return the policy, or {@code null} if {@code policy} is none of them
+     */
+    public static ConflictPolicy parse(String policy) {
+        for (ConflictPolicy conflictPolicy : values()) {
+            if (conflictPolicy.toString().equalsIgnoreCase(policy.trim())) {
+                return conflictPolicy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param entries Entries with the same name, in the order they were added.
+     * @return the entries to be kept, in the same order
+     */
+    public List<PhonebookEntry> resolve(List<PhonebookEntry> entries) {
+        if (entries.size() < 2) {
+            return entries;
+        }
+        switch (this) {
+            case LAST_WINS:
+                return Collections.singletonList(entries.get(entries.size() - 1));
+            case FIRST_WINS:
+                return Collections.singletonList(entries.get(0));
+            default:
+                Set<String> numbers = new HashSet<>();
+                List<PhonebookEntry> kept = new ArrayList<>();
+                for (PhonebookEntry entry : entries) {
+                    if (numbers.add(String.valueOf(PhonebookNumberIndex.normalize(entry.getNumber())))) {
+                        kept.add(entry);
+                    }
+                }
+                return kept;
+        }
+    }
+
+    /**
+     * @return the name of this policy for {@link ConflictPolicy#parse(String)}, eg {@code last-wins}
+     */
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.pwc;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class prints the entries of a phone book file in ascending order without loading the whole book. The file is
+ * sorted by an {@link ExternalSorter} with {@link PhonebookEntry#compareTo}, which spills runs of at most {@code
+ * memoryBudget} bytes to temporary files, and the merged runs are encoded by a {@link PhonebookEntryWriter}.
+ * <p>
+ * Both the sort of a run and the merge are stable, so entries with the same name keep their file order and the output
+ * is the same as {@link Phonebook#printPhonebook()}. Lines which are not valid entries are skipped, and a {@link
+ * CompressedPhonebook} is decompressed while it is read.
+ * <p>
+ * {@link ExternalSortPrinter#stream(Path)} returns the sorted entries instead of printing them, merged from the spilled
+ * runs while the stream is consumed.
+ */
+public class ExternalSortPrinter {
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private static final long ENTRY_OVERHEAD = 112;
+    private static final int LINE_OVERHEAD = "PhonebookEntry(name=, number=)".length();
+    private final ExternalSorter<PhonebookEntry> sorter;
+
+    /**
+     * @param memoryBudget The approximate number of bytes of entries held in memory at once.
+     */
+    public ExternalSortPrinter(long memoryBudget) {
+        this(memoryBudget, null);
+    }
+
+    /**
+     * @param memoryBudget  The approximate number of bytes of entries held in memory at once.
+     * @param tempDirectory The directory of the spilled runs, or {@code null} for the default temporary directory.
+     */
+    public ExternalSortPrinter(long memoryBudget, Path tempDirectory) {
+        this(memoryBudget, tempDirectory, ExternalSorter.DEFAULT_MAX_RUNS_PER_MERGE);
+    }
+
+    ExternalSortPrinter(long memoryBudget, Path tempDirectory, int maxRunsPerMerge) {
+        this.sorter = new ExternalSorter<>(PhonebookEntry::compareTo, PhonebookEntry::toString,
+                PhonebookEntryParser::parse, ExternalSortPrinter::estimateSize, memoryBudget, tempDirectory,
+                maxRunsPerMerge);
+    }
+
+    /**
+     * Print the entries of {@code book} in ascending order to {@code out} using the default charset, like {@link
+     * PrintStream#println(Object)} would.
+     *
+     * @param book The phone book file.
+     * @param out  The stream the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if the book has no entries
+     * @throws IOException if the book can't be read or the runs can't be spilled
+     */
+    public boolean print(Path book, OutputStream out) throws IOException {
+        PhonebookEntryWriter writer = new PhonebookEntryWriter(out);
+        boolean printed = print(book, writer);
+        writer.flush();
+        return printed;
+    }
+
+    /**
+     * Print the entries of {@code book} in ascending order to {@code out}, which is flushed by the caller.
+     *
+     * @param book The phone book file.
+     * @param out  The writer the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if the book has no entries
+     * @throws IOException if the book can't be read, the runs can't be spilled or {@code out} can't be written
+     */
+    public boolean print(Path book, PhonebookEntryWriter out) throws IOException {
+        if (!Files.exists(book)) {
+            out.writeLine("Current phone book has no entries.");
+            return false;
+        }
+        try (Stream<String> lines = CompressedPhonebook.lines(book);
+             ExternalSorter.Sorted<PhonebookEntry> sorted = sorter.sort(entries(lines))) {
+            if (!sorted.hasNext()) {
+                out.writeLine("Current phone book has no entries.");
+                return false;
+            }
+            while (sorted.hasNext()) {
+                out.writeEntry(sorted.next());
+            }
+            return true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Sorts the entries of {@code book}. The book is read and the runs are spilled before this returns, the runs are
+     * merged while the stream is consumed. The stream must be closed to delete the spilled runs.
+     *
+     * @param book The phone book file, a missing file has no entries.
+     * @return the entries of {@code book} in ascending order
+     * @throws IOException if the book can't be read or the runs can't be spilled
+     */
+    public Stream<PhonebookEntry> stream(Path book) throws IOException {
+        if (!Files.exists(book)) {
+            return Stream.empty();
+        }
+        ExternalSorter.Sorted<PhonebookEntry> sorted;
+        try (Stream<String> lines = CompressedPhonebook.lines(book)) {
+            sorted = sorter.sort(entries(lines));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(sorted, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        sorted.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static Iterator<PhonebookEntry> entries(Stream<String> lines) {
+        return lines.map(PhonebookEntryParser::parse).filter(Objects::nonNull).iterator();
+    }
+
+    /**
+     * @return the overhead of the entry plus two bytes per character of its line, without building the line
+     */
+    static long estimateSize(PhonebookEntry entry) {
+        int number = entry.getNumber() == null ? 4 : entry.getNumber().length();
+        return ENTRY_OVERHEAD + 2L * (LINE_OVERHEAD + entry.getName().length() + number);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.pwc;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class sorts a stream of records which may not fit in memory. The input is read in runs which fit in {@code
+ * memoryBudget}, every run is sorted and spilled to a temporary file as one line per record, and the runs are merged
+ * lazily while the result is iterated. If the whole input fits in the budget, nothing is spilled.
+ * <p>
+ * Both the sort of a run and the merge are stable, so records which compare equal keep their input order.
+ *
+ * @param <T> The type of the records.
+ */
+public class ExternalSorter<T> {
+    static final int DEFAULT_MAX_RUNS_PER_MERGE = 128;
+    private final Comparator<? super T> comparator;
+    private final Function<? super T, String> encoder;
+    private final Function<String, ? extends T> decoder;
+    private final ToLongFunction<? super T> sizeEstimator;
+    private final long memoryBudget;
+    private final Path tempDirectory;
+    private final int maxRunsPerMerge;
+
+    /**
+     * @param comparator    The order of the records.
+     * @param encoder       Encodes a record as a single line when it is spilled.
+     * @param decoder       Decodes a spilled line back into the record.
+     * @param sizeEstimator Estimates the number of bytes a record takes in memory.
+     * @param memoryBudget  The approximate number of bytes of records held in memory at once.
+     * @param tempDirectory The directory of the spilled runs, or {@code null} for the default temporary directory.
+     */
+    public ExternalSorter(Comparator<? super T> comparator, Function<? super T, String> encoder,
+                          Function<String, ? extends T> decoder, ToLongFunction<? super T> sizeEstimator,
+                          long memoryBudget, Path tempDirectory) {
+        this(comparator, encoder, decoder, sizeEstimator, memoryBudget, tempDirectory, DEFAULT_MAX_RUNS_PER_MERGE);
+    }
+
+    ExternalSorter(Comparator<? super T> comparator, Function<? super T, String> encoder,
+                   Function<String, ? extends T> decoder, ToLongFunction<? super T> sizeEstimator,
+                   long memoryBudget, Path tempDirectory, int maxRunsPerMerge) {
+        if (memoryBudget < 1 || maxRunsPerMerge < 2) {
+            throw new IllegalArgumentException("memoryBudget must be positive and maxRunsPerMerge at least 2.");
+        }
+        this.comparator = comparator;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.sizeEstimator = sizeEstimator;
+        this.memoryBudget = memoryBudget;
+        this.tempDirectory = tempDirectory;
+        this.maxRunsPerMerge = maxRunsPerMerge;
+    }
+
+    /**
+     * A sorter of strings in their natural order.
+     *
+     * @param memoryBudget  The approximate number of bytes of strings held in memory at once.
+     * @param tempDirectory The directory of the spilled runs, or {@code null} for the default temporary directory.
+     * @return the sorter
+     */
+    public static ExternalSorter<String> ofStrings(long memoryBudget, Path tempDirectory) {
+        return new ExternalSorter<>(Comparator.naturalOrder(), Function.identity(), Function.identity(),
+                s -> 56 + 2L * s.length(), memoryBudget, tempDirectory);
+    }
+
+    /**
+     * Sorts {@code input}. Runs are spilled while {@code input} is consumed, the merge happens while the result is
+     * iterated. The result must be closed to delete the spilled runs.
+     *
+     * @param input The records to sort.
+     * @return the records in ascending order
+     * @throws IOException if the runs can't be spilled
+     */
+    public Sorted<T> sort(Iterator<? extends T> input) throws IOException {
+        Path directory = null;
+        try {
+            List<Path> runs = new ArrayList<>();
+            List<T> run = new ArrayList<>();
+            long runBytes = 0;
+            while (input.hasNext()) {
+                T record = input.next();
+                long recordBytes = sizeEstimator.applyAsLong(record);
+                if (!run.isEmpty() && runBytes + recordBytes > memoryBudget) {
+                    if (directory == null) {
+                        directory = createDirectory();
+                    }
+                    runs.add(writeRun(run, directory));
+                    run = new ArrayList<>();
+                    runBytes = 0;
+                }
+                run.add(record);
+                runBytes += recordBytes;
+            }
+            run.sort(comparator);
+            if (runs.isEmpty()) {
+                return new Sorted<>(run.iterator(), null);
+            }
+            runs.add(writeRun(run, directory));
+            while (runs.size() > maxRunsPerMerge) {
+                runs = mergePass(runs, directory);
+            }
+            return new Sorted<>(new MergeIterator(runs), directory);
+        } catch (UncheckedIOException e) {
+            deleteDirectory(directory);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    private Path createDirectory() throws IOException {
+        return tempDirectory == null ? Files.createTempDirectory("pwc-sort") : Files.createTempDirectory(tempDirectory, "pwc-sort");
+    }
+
+    private Path writeRun(List<T> run, Path directory) throws IOException {
+        run.sort(comparator);
+        Path file = Files.createTempFile(directory, "run", ".txt");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (T record : run) {
+                writer.write(encoder.apply(record));
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private List<Path> mergePass(List<Path> runs, Path directory) throws IOException {
+        List<Path> merged = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += maxRunsPerMerge) {
+            List<Path> group = new ArrayList<>(runs.subList(from, Math.min(runs.size(), from + maxRunsPerMerge)));
+            Path file = Files.createTempFile(directory, "merge", ".txt");
+            MergeIterator iterator = new MergeIterator(group);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                while (iterator.hasNext()) {
+                    writer.write(encoder.apply(iterator.next()));
+                    writer.write('\n');
+                }
+            } finally {
+                iterator.close();
+            }
+            for (Path run : group) {
+                Files.delete(run);
+            }
+            merged.add(file);
+        }
+        return merged;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * The sorted records. Closing it deletes the spilled runs.
+     *
+     * @param <T> The type of the records.
+     */
+    public static final class Sorted<T> implements Iterator<T>, Closeable {
+        private final Iterator<T> records;
+        private final Closeable merge;
+        private final Path directory;
+
+        @SuppressWarnings("unchecked")
+        private Sorted(Iterator<? extends T> records, Path directory) {
+            this.records = (Iterator<T>) records;
+            this.merge = records instanceof Closeable ? (Closeable) records : null;
+            this.directory = directory;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return records.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (merge != null) {
+                    merge.close();
+                }
+            } finally {
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Merges runs in ascending order. Ties are broken by the position of the run, which keeps the merge stable as the
+     * runs are in input order.
+     */
+    private final class MergeIterator implements Iterator<T>, Closeable {
+        private final PriorityQueue<RunCursor> queue;
+
+        private MergeIterator(List<Path> runs) throws IOException {
+            queue = new PriorityQueue<>(runs.size());
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    RunCursor cursor = new RunCursor(i, Files.newBufferedReader(runs.get(i), StandardCharsets.UTF_8));
+                    if (cursor.advance()) {
+                        queue.add(cursor);
+                    } else {
+                        cursor.reader.close();
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            RunCursor cursor = queue.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            T record = cursor.record;
+            try {
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                } else {
+                    cursor.reader.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunCursor cursor : queue) {
+                cursor.reader.close();
+            }
+            queue.clear();
+        }
+    }
+
+    private final class RunCursor implements Comparable<RunCursor> {
+        private final int run;
+        private final BufferedReader reader;
+        private T record;
+
+        private RunCursor(int run, BufferedReader reader) {
+            this.run = run;
+            this.reader = reader;
+        }
+
+        private boolean advance() throws IOException {
+            String line = reader.readLine();
+            record = line == null ? null : decoder.apply(line);
+            return line != null;
+        }
+
+        @Override
+        public int compareTo(RunCursor o) {
+            int compare = comparator.compare(record, o.record);
+            return compare != 0 ? compare : Integer.compare(run, o.run);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.pwc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * This class records how far a text file has been consumed: the offset after the last line read, the file key (inode)
+ * and modification time of the file at that point, and a CRC32 of the {@link FileCheckpoint#WINDOW} bytes before the
+ * offset. Comparing it with the current state of the file tells whether the file
+ * <li>
+ *     <ul>is unchanged: same file key, size and modification time</ul>
+ *     <ul>has only grown: same file key, larger, the last line read was complete and the bytes before the offset
+ *     still have the same CRC32</ul>
+ *     <ul>was rewritten: anything else, eg replaced by a rename, truncated or edited in place</ul>
+ * </li>
+ */
+final class FileCheckpoint {
+    enum Change {
+        UNCHANGED, APPENDED, REWRITTEN
+    }
+
+    static final FileCheckpoint ABSENT = new FileCheckpoint(null, -1, 0, 0, true);
+    private static final int WINDOW = 4096;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private final Object fileKey;
+    private final long lastModified;
+    private final long offset;
+    private final long windowCrc;
+    private final boolean lineComplete;
+
+    private FileCheckpoint(Object fileKey, long lastModified, long offset, long windowCrc, boolean lineComplete) {
+        this.fileKey = fileKey;
+        this.lastModified = lastModified;
+        this.offset = offset;
+        this.windowCrc = windowCrc;
+        this.lineComplete = lineComplete;
+    }
+
+    /**
+     * @return the attributes of {@code path}, or {@code null} if it does not exist
+     */
+    static BasicFileAttributes stat(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The checkpoint of a file which was read or written completely, as {@code size} bytes, since {@code before} was
+     * taken.
+     *
+     * @return the checkpoint at the end of the file, or {@code null} if the file changed in the meantime, so the
+     * consumed offset is not known
+     */
+    static FileCheckpoint ofComplete(Path path, BasicFileAttributes before, long size) throws IOException {
+        BasicFileAttributes after = stat(path);
+        if (before == null || after == null) {
+            return before == null && after == null ? ABSENT : null;
+        }
+        if (!Objects.equals(before.fileKey(), after.fileKey()) || before.size() != size || after.size() != size
+                || !before.lastModifiedTime().equals(after.lastModifiedTime())) {
+            return null;
+        }
+        return of(path, after, size);
+    }
+
+    /**
+     * @param attributes The attributes of {@code path} when the lines up to {@code offset} were read.
+     * @param offset     The offset after the last line read.
+     */
+    static FileCheckpoint of(Path path, BasicFileAttributes attributes, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer window = readWindow(channel, offset);
+            boolean lineComplete = offset == 0 || (window.limit() > 0 && window.get(window.limit() - 1) == '\n');
+            return new FileCheckpoint(attributes.fileKey(), attributes.lastModifiedTime().toMillis(), offset,
+                    crc(window), lineComplete);
+        }
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param attributes The current attributes of {@code path}, or {@code null} if it does not exist.
+     */
+    Change changeOf(Path path, BasicFileAttributes attributes) throws IOException {
+        if (this == ABSENT || attributes == null) {
+            return this == ABSENT && attributes == null ? Change.UNCHANGED : Change.REWRITTEN;
+        }
+        if (!Objects.equals(fileKey, attributes.fileKey()) || attributes.size() < offset) {
+            return Change.REWRITTEN;
+        }
+        if (attributes.size() == offset) {
+            return attributes.lastModifiedTime().toMillis() == lastModified ? Change.UNCHANGED : Change.REWRITTEN;
+        }
+        if (!lineComplete) {
+            return Change.REWRITTEN;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return crc(readWindow(channel, offset)) == windowCrc ? Change.APPENDED : Change.REWRITTEN;
+        }
+    }
+
+    /**
+     * Pass the complete lines between the offset of this checkpoint and {@code end} to {@code lines}, decoded as UTF-8
+     * like {@link Files#lines(Path)}. A trailing line without a line feed is left for the next read.
+     *
+     * @return the offset after the last complete line
+     */
+    long readLines(Path path, long end, Consumer<String> lines) throws IOException {
+        long consumed = offset;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = offset;
+            while (position < end) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), end - position));
+                int read = channel.read(chunk, position);
+                if (read < 0) {
+                    break;
+                }
+                byte[] bytes = chunk.array();
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (bytes[i] == '\n') {
+                        line.write(bytes, start, i - start);
+                        lines.accept(decode(line));
+                        line.reset();
+                        start = i + 1;
+                        consumed = position + i + 1;
+                    }
+                }
+                line.write(bytes, start, read - start);
+                position += read;
+            }
+        }
+        return consumed;
+    }
+
+    private static String decode(ByteArrayOutputStream line) {
+        String decoded = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        return decoded.endsWith("\r") ? decoded.substring(0, decoded.length() - 1) : decoded;
+    }
+
+    private static ByteBuffer readWindow(FileChannel channel, long offset) throws IOException {
+        long start = Math.max(0, offset - WINDOW);
+        ByteBuffer window = ByteBuffer.allocate((int) (offset - start));
+        while (window.hasRemaining()) {
+            if (channel.read(window, start + window.position()) < 0) {
+                break;
+            }
+        }
+        window.flip();
+        return window;
+    }
+
+    private static long crc(ByteBuffer window) {
+        CRC32 crc = new CRC32();
+        crc.update(window.array(), 0, window.limit());
+        return crc.getValue();
+    }
+}
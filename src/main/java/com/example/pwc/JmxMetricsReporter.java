@@ -0,0 +1,100 @@
+package com.example.pwc;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This reporter registers a {@link PhonebookMetricsMXBean} as {@link JmxMetricsReporter#OBJECT_NAME} in the platform
+ * MBean server while it is open. JMX clients pull the live metrics, so reports are no-ops.
+ */
+public class JmxMetricsReporter implements MetricsReporter, PhonebookMetricsMXBean {
+    public static final String OBJECT_NAME = "com.example.pwc:type=PhonebookMetrics";
+    private final MBeanServer server;
+    private final ObjectName name;
+
+    /**
+     * Registers the MXBean in the platform MBean server, replacing an earlier registration.
+     *
+     * @throws RuntimeException if the MXBean can't be registered
+     */
+    public JmxMetricsReporter() {
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            this.name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Registering " + OBJECT_NAME + " failed. Reason: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void report(PhonebookMetrics.Snapshot snapshot) {
+    }
+
+    @Override
+    public Map<String, Long> getLatencies() {
+        PhonebookMetrics.Snapshot snapshot = PhonebookMetrics.snapshot();
+        Map<String, Long> latencies = new LinkedHashMap<>();
+        for (PhonebookMetrics.Operation operation : PhonebookMetrics.Operation.values()) {
+            LatencyHistogram latency = snapshot.latency(operation);
+            latencies.put(operation + ".count", latency.count());
+            latencies.put(operation + ".mean", Math.round(latency.mean()));
+            latencies.put(operation + ".p50", latency.percentile(50));
+            latencies.put(operation + ".p90", latency.percentile(90));
+            latencies.put(operation + ".p99", latency.percentile(99));
+            latencies.put(operation + ".max", latency.max());
+        }
+        return latencies;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        PhonebookMetrics.Snapshot snapshot = PhonebookMetrics.snapshot();
+        Map<String, Long> counters = new LinkedHashMap<>();
+        for (PhonebookMetrics.Counter counter : PhonebookMetrics.Counter.values()) {
+            counters.put(counter.name(), snapshot.count(counter));
+        }
+        for (PhonebookMetrics.Gauge gauge : PhonebookMetrics.Gauge.values()) {
+            counters.put(gauge.name(), snapshot.value(gauge));
+        }
+        return counters;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return PhonebookMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        PhonebookMetrics.setEnabled(enabled);
+    }
+
+    @Override
+    public void reset() {
+        PhonebookMetrics.reset();
+    }
+
+    /**
+     * Unregisters the MXBean.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.pwc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * This reporter replaces a file with the cumulative metrics as one JSON object on every report, atomically with {@link
+ * AtomicFiles}, so a monitoring agent tailing or polling the file never reads a partial report. eg
+ * <pre>
+ * {"timestamp":1592100000000,
+ *  "latencies":{"PERSIST":{"count":12,"mean":1843021.5,"p50":1769471,"p90":2359295,"p99":2621439,"max":2621439},...},
+ *  "counters":{"PARSED_LINES":1000012,"REJECTED_LINES":3,...},
+ *  "gauges":{"ENTRIES":1000009}}
+ * </pre>
+ * Latencies are in nanoseconds.
+ */
+public class JsonMetricsReporter implements MetricsReporter {
+    private final Path path;
+
+    /**
+     * @param path The file the metrics are written to.
+     */
+    public JsonMetricsReporter(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void report(PhonebookMetrics.Snapshot snapshot) throws IOException {
+        AtomicFiles.writeLines(path, Collections.singletonList(toJson(snapshot)));
+    }
+
+    static String toJson(PhonebookMetrics.Snapshot snapshot) {
+        StringBuilder json = new StringBuilder("{\"timestamp\":").append(snapshot.getTimestamp()).append(",\"latencies\":{");
+        for (PhonebookMetrics.Operation operation : PhonebookMetrics.Operation.values()) {
+            LatencyHistogram latency = snapshot.latency(operation);
+            json.append('"').append(operation).append("\":{\"count\":").append(latency.count())
+                    .append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", latency.mean()))
+                    .append(",\"p50\":").append(latency.percentile(50))
+                    .append(",\"p90\":").append(latency.percentile(90))
+                    .append(",\"p99\":").append(latency.percentile(99))
+                    .append(",\"max\":").append(latency.max()).append("},");
+        }
+        json.setLength(json.length() - 1);
+        json.append("},\"counters\":{");
+        for (PhonebookMetrics.Counter counter : PhonebookMetrics.Counter.values()) {
+            json.append('"').append(counter).append("\":").append(snapshot.count(counter)).append(',');
+        }
+        json.setLength(json.length() - 1);
+        json.append("},\"gauges\":{");
+        for (PhonebookMetrics.Gauge gauge : PhonebookMetrics.Gauge.values()) {
+            json.append('"').append(gauge).append("\":").append(snapshot.value(gauge)).append(',');
+        }
+        json.setLength(json.length() - 1);
+        return json.append("}}").toString();
+    }
+}
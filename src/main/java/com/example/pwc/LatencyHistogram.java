@@ -0,0 +1,141 @@
+package com.example.pwc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a lock free histogram of latencies in nanoseconds, laid out like HdrHistogram. Values below {@code 64}
+ * get a bucket each, larger values share 32 buckets per power of two, so every value is recorded with a relative error
+ * below 3.2% in about 15 KB, from 1 ns to {@link Long#MAX_VALUE}.
+ * <p>
+ * Buckets only ever grow, so the histogram of an interval is the difference of the histograms at its end and start,
+ * see {@link LatencyHistogram#minus(LatencyHistogram)}. Percentiles and the maximum are reported as the highest value
+ * of their bucket.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray totals;
+
+    public LatencyHistogram() {
+        this(new AtomicLongArray(BUCKETS), new AtomicLongArray(2));
+    }
+
+    private LatencyHistogram(AtomicLongArray counts, AtomicLongArray totals) {
+        this.counts = counts;
+        this.totals = totals;
+    }
+
+    /**
+     * @param nanos The latency to be recorded, negative latencies are recorded as {@code 0}.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, value);
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long count() {
+        return totals.get(0);
+    }
+
+    /**
+     * @return the mean of the recorded latencies, or {@code 0} if there is none
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) totals.get(1) / count;
+    }
+
+    /**
+     * @param percentile The percentile between {@code 0} and {@code 100}.
+     * @return the highest value of the bucket of the {@code percentile}, or {@code 0} if no latency is recorded
+     */
+    public long percentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(BUCKETS - 1);
+    }
+
+    /**
+     * @return the highest value of the bucket of the largest recorded latency, or {@code 0} if there is none
+     */
+    public long max() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return a copy of this histogram, which is not changed by later records
+     */
+    public LatencyHistogram copy() {
+        AtomicLongArray countsCopy = new AtomicLongArray(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            countsCopy.set(i, counts.get(i));
+        }
+        return new LatencyHistogram(countsCopy, new AtomicLongArray(new long[]{totals.get(0), totals.get(1)}));
+    }
+
+    /**
+     * @param earlier A copy of this histogram taken earlier.
+     * @return the histogram of the latencies recorded since {@code earlier}
+     */
+    public LatencyHistogram minus(LatencyHistogram earlier) {
+        AtomicLongArray difference = new AtomicLongArray(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            difference.set(i, Math.max(0, counts.get(i) - earlier.counts.get(i)));
+        }
+        return new LatencyHistogram(difference, new AtomicLongArray(new long[]{
+                Math.max(0, totals.get(0) - earlier.totals.get(0)), Math.max(0, totals.get(1) - earlier.totals.get(1))}));
+    }
+
+    /**
+     * Forget all the recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totals.set(0, 0);
+        totals.set(1, 0);
+    }
+
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (exponent + 1) * SUB_BUCKETS + (int) (value >>> exponent) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << exponent;
+        return lowest + (1L << exponent) - 1;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.pwc;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This reporter logs the metrics of every reporting interval to a {@link java.util.logging} logger, one line per
+ * operation which ran in the interval and one line with the counters and gauges. A report is logged at {@link
+ * Level#WARNING} instead of {@link Level#INFO} if
+ * <li>
+ *     <ul>the 99th percentile of {@link PhonebookMetrics.Operation#PERSIST} is at least the slow persist threshold</ul>
+ *     <ul>the {@link PhonebookMetrics.Counter#REJECTED_LINES} of the interval are at least the reject spike
+ *     threshold</ul>
+ * </li>
+ */
+public class LogMetricsReporter implements MetricsReporter {
+    public static final String LOGGER = "com.example.pwc.metrics";
+    private final Logger logger;
+    private final long slowPersistNanos;
+    private final long rejectSpike;
+    private PhonebookMetrics.Snapshot previous;
+
+    /**
+     * @param slowPersistNanos The persist latency in nanoseconds from which a report is a warning.
+     * @param rejectSpike      The number of rejected lines in an interval from which a report is a warning.
+     */
+    public LogMetricsReporter(long slowPersistNanos, long rejectSpike) {
+        this(Logger.getLogger(LOGGER), slowPersistNanos, rejectSpike);
+    }
+
+    public LogMetricsReporter(Logger logger, long slowPersistNanos, long rejectSpike) {
+        this.logger = logger;
+        this.slowPersistNanos = slowPersistNanos;
+        this.rejectSpike = rejectSpike;
+    }
+
+    @Override
+    public void report(PhonebookMetrics.Snapshot snapshot) {
+        PhonebookMetrics.Snapshot interval = previous == null ? snapshot : snapshot.since(previous);
+        previous = snapshot;
+        long persistP99 = interval.latency(PhonebookMetrics.Operation.PERSIST).percentile(99);
+        long rejected = interval.count(PhonebookMetrics.Counter.REJECTED_LINES);
+        boolean slowPersist = persistP99 >= slowPersistNanos;
+        boolean rejectedSpike = rejected >= rejectSpike;
+        Level level = slowPersist || rejectedSpike ? Level.WARNING : Level.INFO;
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+        for (PhonebookMetrics.Operation operation : PhonebookMetrics.Operation.values()) {
+            LatencyHistogram latency = interval.latency(operation);
+            if (latency.count() > 0) {
+                logger.log(level, String.format("%s count=%d mean=%.0fns p50=%dns p99=%dns max=%dns", operation,
+                        latency.count(), latency.mean(), latency.percentile(50), latency.percentile(99), latency.max()));
+            }
+        }
+        StringBuilder counts = new StringBuilder();
+        for (PhonebookMetrics.Counter counter : PhonebookMetrics.Counter.values()) {
+            counts.append(counter).append('=').append(interval.count(counter)).append(' ');
+        }
+        for (PhonebookMetrics.Gauge gauge : PhonebookMetrics.Gauge.values()) {
+            counts.append(gauge).append('=').append(interval.value(gauge)).append(' ');
+        }
+        logger.log(level, counts.toString().trim());
+        if (slowPersist) {
+            logger.warning("Slow persist: p99 " + persistP99 + "ns is over " + slowPersistNanos + "ns.");
+        }
+        if (rejectedSpike) {
+            logger.warning("Rejected line spike: " + rejected + " lines rejected, threshold " + rejectSpike + ".");
+        }
+    }
+}
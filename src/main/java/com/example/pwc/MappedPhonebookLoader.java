@@ -0,0 +1,159 @@
+package com.example.pwc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class loads the {@link PhonebookEntry} of a phone book file by memory mapping it with {@link FileChannel#map}.
+ * The file is split on newline boundaries into chunks of about {@code chunkSize} bytes, the chunks are parsed in
+ * parallel on a {@link ForkJoinPool} and the results are merged in file order.
+ * <p>
+ * Lines are terminated by {@code \n}, {@code \r} or {@code \r\n} like {@link java.io.BufferedReader#readLine()}, so the
+ * result is the same as reading the file with {@link java.nio.file.Files#lines(Path)}, except that malformed UTF-8 is
+ * replaced instead of failing the whole load.
+ */
+public class MappedPhonebookLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int BOUNDARY_SCAN_SIZE = 256;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Creates a loader which parses chunks of {@link MappedPhonebookLoader#DEFAULT_CHUNK_SIZE} bytes on the common
+     * pool.
+     */
+    public MappedPhonebookLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool      The pool the chunks are parsed on.
+     * @param chunkSize The target size of a chunk in bytes. Chunks are extended to the end of their last line.
+     */
+    public MappedPhonebookLoader(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive.");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads the entries of {@code path}. Lines which are not valid entries are skipped.
+     *
+     * @param path The phone book file.
+     * @return the entries in file order
+     * @throws IOException if the file can't be read
+     */
+    public List<PhonebookEntry> load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<ForkJoinTask<List<PhonebookEntry>>> tasks = new ArrayList<>();
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long chunkStart = start;
+                long chunkEnd = nextLineStart(channel, Math.min(size, start + chunkSize) - 1, size);
+                tasks.add(pool.submit(() -> parse(channel, chunkStart, chunkEnd)));
+                start = chunkEnd;
+            }
+            List<List<PhonebookEntry>> chunks = new ArrayList<>(tasks.size());
+            int entries = 0;
+            for (ForkJoinTask<List<PhonebookEntry>> task : tasks) {
+                List<PhonebookEntry> chunk = task.join();
+                entries += chunk.size();
+                chunks.add(chunk);
+            }
+            List<PhonebookEntry> phonebookEntryList = new ArrayList<>(entries);
+            chunks.forEach(phonebookEntryList::addAll);
+            return phonebookEntryList;
+        } catch (RuntimeException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the position right after the first {@code \n} at or after {@code position}, or {@code size} if there is
+     * none
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines of the bytes {@code [start, end)} of the file, which start at the start of a line and end at
+     * the end of one. Used for the chunks of this loader and the pages of {@link PagedPhonebook}.
+     */
+    static List<PhonebookEntry> parse(FileChannel channel, long start, long end) {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Line longer than " + Integer.MAX_VALUE + " bytes at offset " + start);
+        }
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        List<PhonebookEntry> entries = new ArrayList<>();
+        byte[] line = new byte[BOUNDARY_SCAN_SIZE];
+        int length = 0;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n' || b == '\r') {
+                addEntry(entries, line, length);
+                length = 0;
+                if (b == '\r' && buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                }
+            } else {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+        }
+        addEntry(entries, line, length);
+        return entries;
+    }
+
+    private static void addEntry(List<PhonebookEntry> entries, byte[] line, int length) {
+        if (length == 0) {
+            return;
+        }
+        long start = PhonebookMetrics.start();
+        PhonebookEntry entry = PhonebookEntryParser.parse(new String(line, 0, length, StandardCharsets.UTF_8));
+        PhonebookMetrics.stop(PhonebookMetrics.Operation.PARSE, start);
+        if (entry != null) {
+            entries.add(entry);
+        }
+        PhonebookMetrics.increment(entry != null ? PhonebookMetrics.Counter.PARSED_LINES : PhonebookMetrics.Counter.REJECTED_LINES);
+    }
+}
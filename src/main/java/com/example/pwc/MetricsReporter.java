@@ -0,0 +1,24 @@
+package com.example.pwc;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A reporter publishes the {@link PhonebookMetrics.Snapshot} it is given, eg to a log, a file or JMX. Reports are made
+ * one at a time, from the thread of {@link PhonebookMetrics#startReporting(MetricsReporter, long,
+ * java.util.concurrent.TimeUnit)}.
+ */
+public interface MetricsReporter extends Closeable {
+    /**
+     * @param snapshot The cumulative metrics since the process started or the metrics were reset.
+     * @throws IOException if the metrics can't be published
+     */
+    void report(PhonebookMetrics.Snapshot snapshot) throws IOException;
+
+    /**
+     * Release the resources of this reporter. By default there is none.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
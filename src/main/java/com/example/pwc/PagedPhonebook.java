@@ -0,0 +1,334 @@
+package com.example.pwc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * This class reads a phone book in the text format a page at a time. Opening the book only indexes it: the file is
+ * split on line boundaries into pages of about {@code pageSize} bytes, and the names of every page are hashed into a
+ * Bloom filter, without parsing a single entry. Entries are parsed a page at a time, like {@link MappedPhonebookLoader}
+ * parses a chunk, when they are searched or iterated, and the parsed pages are kept in an LRU cache of {@code
+ * cachedPages} pages.
+ * <p>
+ * A name lookup only parses the pages whose filter may hold the name, so it costs the pages the name is in plus about
+ * one page in a hundred. Names are compared like {@link PhonebookNameIndex}, folded with {@link
+ * PhonebookEntry#foldName(String)}. The file has to stay as it was indexed while the book is open.
+ */
+public final class PagedPhonebook implements Iterable<PhonebookEntry>, Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+    public static final int DEFAULT_CACHED_PAGES = 256;
+    private static final byte[] PREFIX = "PhonebookEntry(name=".getBytes(StandardCharsets.US_ASCII);
+    private static final long NO_HASH = Long.MIN_VALUE;
+    private static final int BITS_PER_NAME = 10;
+    private static final int HASHES = 3;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private final FileChannel channel;
+    private final long[] pageStarts;
+    private final long[][] filters;
+    private final Map<Integer, List<PhonebookEntry>> cache;
+    private long pageLoads;
+
+    private PagedPhonebook(FileChannel channel, long[] pageStarts, long[][] filters, int cachedPages) {
+        this.channel = channel;
+        this.pageStarts = pageStarts;
+        this.filters = filters;
+        this.cache = new LinkedHashMap<Integer, List<PhonebookEntry>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<PhonebookEntry>> eldest) {
+                return size() > cachedPages;
+            }
+        };
+    }
+
+    /**
+     * Opens {@code path} with pages of {@link PagedPhonebook#DEFAULT_PAGE_SIZE} bytes and a cache of {@link
+     * PagedPhonebook#DEFAULT_CACHED_PAGES} pages.
+     *
+     * @see PagedPhonebook#open(Path, int, int)
+     */
+    public static PagedPhonebook open(Path path) throws IOException {
+        return open(path, DEFAULT_PAGE_SIZE, DEFAULT_CACHED_PAGES);
+    }
+
+    /**
+     * Reads {@code path} once to find the pages and hash the names of every page.
+     *
+     * @param path        The phone book file in the text format.
+     * @param pageSize    The target size of a page in bytes. Pages are extended to the end of their last line.
+     * @param cachedPages The number of parsed pages kept in memory.
+     * @return the opened phone book, which has to be closed to close the file
+     * @throws IOException if the file can't be read
+     */
+    public static PagedPhonebook open(Path path, int pageSize, int cachedPages) throws IOException {
+        if (pageSize < 1 || cachedPages < 1) {
+            throw new IllegalArgumentException("pageSize and cachedPages must be positive.");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Indexer indexer = new Indexer(pageSize);
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            long position = 0;
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    indexer.accept(bytes[i]);
+                }
+                position += read;
+                buffer.clear();
+            }
+            indexer.finish();
+            return new PagedPhonebook(channel, indexer.pageStarts(), indexer.filters.toArray(new long[0][]), cachedPages);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of pages of the book
+     */
+    public int pageCount() {
+        return filters.length;
+    }
+
+    /**
+     * @return the number of pages parsed since the book was opened, the cache misses
+     */
+    public synchronized long pageLoads() {
+        return pageLoads;
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in file order, or an empty list if there is none
+     */
+    public List<PhonebookEntry> findByName(String name) {
+        String folded = PhonebookEntry.foldName(name);
+        long hash = hash(folded);
+        if (hash == NO_HASH) {
+            return Collections.emptyList();
+        }
+        List<PhonebookEntry> entries = new ArrayList<>();
+        for (int page = 0; page < filters.length; page++) {
+            if (mightContain(filters[page], (int) hash)) {
+                for (PhonebookEntry entry : page(page)) {
+                    if (PhonebookEntry.foldName(entry.getName()).equals(folded)) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return {@code true} if the book has at least one entry with the given {@code name}
+     */
+    public boolean containsName(String name) {
+        String folded = PhonebookEntry.foldName(name);
+        long hash = hash(folded);
+        if (hash == NO_HASH) {
+            return false;
+        }
+        for (int page = 0; page < filters.length; page++) {
+            if (mightContain(filters[page], (int) hash)) {
+                for (PhonebookEntry entry : page(page)) {
+                    if (PhonebookEntry.foldName(entry.getName()).equals(folded)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses every page, through the cache.
+     *
+     * @return the entries in file order
+     */
+    public List<PhonebookEntry> toList() {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        forEach(entries::add);
+        return entries;
+    }
+
+    /**
+     * @return the entries in file order, parsed a page at a time through the cache
+     */
+    @Override
+    public Iterator<PhonebookEntry> iterator() {
+        return new Iterator<PhonebookEntry>() {
+            private int page;
+            private Iterator<PhonebookEntry> entries = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!entries.hasNext() && page < filters.length) {
+                    entries = page(page++).iterator();
+                }
+                return entries.hasNext();
+            }
+
+            @Override
+            public PhonebookEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return entries.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private synchronized List<PhonebookEntry> page(int page) {
+        List<PhonebookEntry> entries = cache.get(page);
+        if (entries == null) {
+            entries = Collections.unmodifiableList(MappedPhonebookLoader.parse(channel, pageStarts[page], pageStarts[page + 1]));
+            cache.put(page, entries);
+            pageLoads++;
+        }
+        return entries;
+    }
+
+    /**
+     * @return the hash of a folded name, the same as the {@link Indexer} computes from the bytes of the name, or {@link
+     * PagedPhonebook#NO_HASH} if the name is not ASCII and so can't be in the book
+     */
+    private static long hash(String folded) {
+        int hash = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (c > 0x7F) {
+                return NO_HASH;
+            }
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+
+    private static int fold(byte b) {
+        int c = b & 0xFF;
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean mightContain(long[] filter, int hash) {
+        int mask = (filter.length << 6) - 1;
+        int h = hash * 0x9E3779B9;
+        int step = (h >>> 17) | 1;
+        for (int i = 0; i < HASHES; i++, h += step) {
+            if ((filter[(h & mask) >>> 6] & 1L << h) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void add(long[] filter, int hash) {
+        int mask = (filter.length << 6) - 1;
+        int h = hash * 0x9E3779B9;
+        int step = (h >>> 17) | 1;
+        for (int i = 0; i < HASHES; i++, h += step) {
+            filter[(h & mask) >>> 6] |= 1L << h;
+        }
+    }
+
+    /**
+     * Splits the bytes of the file into pages right after a {@code \n} and hashes the name of every line which starts
+     * like an entry, the bytes between the prefix and the first comma. Lines end like in {@link MappedPhonebookLoader}.
+     * A line which is not a valid entry at all only makes its page a false positive.
+     */
+    private static final class Indexer {
+        private final int pageSize;
+        private final List<long[]> filters = new ArrayList<>();
+        private long[] pageStarts = new long[16];
+        private int[] hashes = new int[256];
+        private int names;
+        private long position;
+        private long pageStart;
+        private int column;
+        private boolean entry = true;
+        private boolean name = true;
+        private int hash;
+
+        private Indexer(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        private void accept(byte b) {
+            position++;
+            if (b == '\n' || b == '\r') {
+                endLine();
+                if (b == '\n' && position - pageStart >= pageSize) {
+                    endPage();
+                }
+                return;
+            }
+            if (column < PREFIX.length) {
+                entry &= b == PREFIX[column];
+            } else if (entry && name) {
+                if (b == ',') {
+                    name = false;
+                } else {
+                    hash = 31 * hash + fold(b);
+                }
+            }
+            column++;
+        }
+
+        private void endLine() {
+            if (entry && column > PREFIX.length) {
+                if (names == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, names * 2);
+                }
+                hashes[names++] = hash;
+            }
+            column = 0;
+            entry = true;
+            name = true;
+            hash = 0;
+        }
+
+        private void endPage() {
+            long[] filter = new long[Math.max(64, Integer.highestOneBit(names * BITS_PER_NAME) << 1) >>> 6];
+            for (int i = 0; i < names; i++) {
+                add(filter, hashes[i]);
+            }
+            if (filters.size() == pageStarts.length - 1) {
+                pageStarts = Arrays.copyOf(pageStarts, pageStarts.length * 2);
+            }
+            pageStarts[filters.size()] = pageStart;
+            filters.add(filter);
+            names = 0;
+            pageStart = position;
+        }
+
+        private void finish() {
+            endLine();
+            if (position > pageStart) {
+                endPage();
+            }
+        }
+
+        /**
+         * @return the start of every page followed by the end of the last one
+         */
+        private long[] pageStarts() {
+            long[] starts = Arrays.copyOf(pageStarts, filters.size() + 1);
+            starts[filters.size()] = position;
+            return starts;
+        }
+    }
+}
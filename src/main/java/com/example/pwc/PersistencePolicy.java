@@ -0,0 +1,69 @@
+package com.example.pwc;
+
+/**
+ * This class tells a {@link Phonebook} when to write and force its file after a mutation.
+ * <li>
+ *     <ul>{@link Mode#SYNC}: every mutation is written and forced before it returns, the default</ul>
+ *     <ul>{@link Mode#GROUP}: mutations are coalesced into one write once {@code maxBatch} of them are pending or
+ *     {@code maxDelayMillis} after the first one, and every mutation returns once its write is durable</ul>
+ *     <ul>{@link Mode#ASYNC}: pending mutations are written {@code maxDelayMillis} after the first one on a background
+ *     thread, and mutations return right away, so a crash loses the mutations of the last interval</ul>
+ * </li>
+ * In every mode the futures of {@link Phonebook#addEntryAsync(String)} and the other asynchronous mutations complete
+ * once the mutation is durable, as they do for a journaled book, which has no policy.
+ */
+public final class PersistencePolicy {
+    public enum Mode {
+        SYNC, GROUP, ASYNC
+    }
+
+    private static final PersistencePolicy SYNC = new PersistencePolicy(Mode.SYNC, 0, 1);
+    private final Mode mode;
+    private final long maxDelayMillis;
+    private final int maxBatch;
+
+    private PersistencePolicy(Mode mode, long maxDelayMillis, int maxBatch) {
+        if (maxDelayMillis < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("maxDelayMillis must not be negative and maxBatch must be positive.");
+        }
+        this.mode = mode;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * @return the policy which writes and forces the file on every mutation
+     */
+    public static PersistencePolicy sync() {
+        return SYNC;
+    }
+
+    /**
+     * @param maxDelayMillis The longest time a mutation waits for other mutations to share its write.
+     * @param maxBatch       The number of pending mutations which are written right away.
+     * @return the group commit policy
+     */
+    public static PersistencePolicy group(long maxDelayMillis, int maxBatch) {
+        return new PersistencePolicy(Mode.GROUP, maxDelayMillis, maxBatch);
+    }
+
+    /**
+     * @param maxDelayMillis The longest time a mutation stays only in memory.
+     * @return the policy which writes in the background
+     */
+    public static PersistencePolicy async(long maxDelayMillis) {
+        return new PersistencePolicy(Mode.ASYNC, maxDelayMillis, Integer.MAX_VALUE);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+}
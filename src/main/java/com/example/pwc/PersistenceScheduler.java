@@ -0,0 +1,95 @@
+package com.example.pwc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class coalesces the writes of a {@link Phonebook} with a {@link PersistencePolicy.Mode#GROUP} or {@link
+ * PersistencePolicy.Mode#ASYNC} policy. The mutations scheduled since the last write form a batch, which shares one
+ * future. The batch is written by the single persistence thread once it holds {@code maxBatch} mutations or {@code
+ * maxDelayMillis} after its first mutation, and its future completes when the write is forced to disk.
+ * <p>
+ * The entries are copied under the monitor of the {@link Phonebook}, which its mutations hold, so a write holds every
+ * mutation scheduled before the batch was taken, and maybe a few later ones. Writes of all the books run one at a time
+ * in the order they were taken.
+ */
+final class PersistenceScheduler {
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "phonebook-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Phonebook phonebook;
+    private final PersistencePolicy policy;
+    private CompletableFuture<Void> batch;
+    private int pending;
+    private ScheduledFuture<?> timer;
+
+    PersistenceScheduler(Phonebook phonebook, PersistencePolicy policy) {
+        this.phonebook = phonebook;
+        this.policy = policy;
+    }
+
+    /**
+     * @return {@code true} if the blocking mutations wait until they are durable
+     */
+    boolean waitsForDurability() {
+        return policy.getMode() == PersistencePolicy.Mode.GROUP;
+    }
+
+    /**
+     * Add a mutation, which was already applied, to the pending batch. The batch is taken for writing once it holds
+     * {@code maxBatch} mutations, so the next mutation starts a new one.
+     *
+     * @return the future of the batch
+     */
+    synchronized CompletableFuture<Void> schedule() {
+        if (batch == null) {
+            batch = new CompletableFuture<>();
+            pending = 0;
+            timer = WRITER.schedule(() -> write(take()), policy.getMaxDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<Void> scheduled = batch;
+        if (++pending >= policy.getMaxBatch()) {
+            CompletableFuture<Void> full = take();
+            WRITER.execute(() -> write(full));
+        }
+        return scheduled;
+    }
+
+    /**
+     * Write the pending batch now.
+     *
+     * @return the future which completes when every mutation scheduled so far is durable
+     */
+    CompletableFuture<Void> flush() {
+        return CompletableFuture.supplyAsync(() -> write(take()), WRITER).thenCompose(written -> written);
+    }
+
+    private synchronized CompletableFuture<Void> take() {
+        CompletableFuture<Void> taken = batch;
+        batch = null;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        return taken;
+    }
+
+    private CompletableFuture<Void> write(CompletableFuture<Void> taken) {
+        if (taken == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            phonebook.persistEntries();
+            taken.complete(null);
+        } catch (RuntimeException e) {
+            System.err.println("Persisting " + phonebook.getFilename() + " failed. Reason: " + e.getMessage());
+            taken.completeExceptionally(e);
+        }
+        return taken;
+    }
+}
@@ -1,26 +1,96 @@
 package com.example.pwc;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * This class contains the phone number entries.
+ * This class contains the phone number entries. By default every mutation rewrites the whole file. In journaled mode,
+ * mutations are appended to a {@link PhonebookJournal} instead and folded back into the file by a background
+ * compaction.
+ * <p>
+ * A book in the {@link BinaryPhonebook} format is memory mapped on load and searched lazily. Its entries are only
+ * decoded into memory when the whole list is needed or the book is mutated, and mutations are persisted in the binary
+ * format again. Journaled books are compacted into the text format.
+ * <p>
+ * A book compressed with gzip, see {@link CompressedPhonebook}, is decompressed while it is parsed and compressed again
+ * while it is persisted, and a new book is compressed if its name ends with {@link CompressedPhonebook#EXTENSION}.
+ * <p>
+ * A lazy book only indexes a text file when it is loaded, see {@link PagedPhonebook}: name lookups, iterations and
+ * prints parse the pages they touch through an LRU page cache, and removing a name which is not in the book touches no
+ * more than that. Like a binary book, its entries are loaded into memory when the whole list is needed or the book is
+ * mutated.
+ * <p>
+ * A columnar book keeps its entries in a {@link ColumnarEntryStore} instead of a list of objects, for books too large
+ * for the heap otherwise. Its names are indexed by the store itself instead of a {@link PhonebookNameIndex}, and the
+ * entries it returns are views which are equal but not identical on every call.
+ * <p>
+ * {@link Phonebook#reload()} follows changes of other processes to the file. A {@link FileCheckpoint} records how far
+ * the file was consumed, so lines appended since are parsed on their own and only a rewritten file is loaded again.
+ * <p>
+ * A book which is not journaled persists its mutations as its {@link PersistencePolicy} says: on every mutation by
+ * default, or coalesced by a {@link PersistenceScheduler} into a few writes. Every mutation has a variant which
+ * returns a future instead, eg {@link Phonebook#addEntryAsync(String)}, which completes once the mutation is durable.
+ * For a journaled book that is once its record is forced, with the next batch of records, by {@link Phonebook#flush()}
+ * or by {@link Phonebook#close()}. Mutations and the copies of the entries taken by the scheduler hold the monitor of
+ * the book.
+ * <p>
+ * A book with a {@link ConflictPolicy} keeps one entry per name, or one per name and number: duplicate names are
+ * merged when the file is loaded and added entries are upserted, names being compared case insensitive like {@link
+ * PhonebookEntry#compareTo(PhonebookEntry)}. The merged entries are written with the next mutation.
+ * <p>
+ * Parses, loads, reloads and persists are timed in {@link PhonebookMetrics}, along with the parsed and rejected lines
+ * and the number of entries, when the metrics are enabled.
  */
 @Getter
-public class Phonebook {
-    private static final Pattern pattern = Pattern.compile("PhonebookEntry\\(name=([a-zA-Z][a-zA-Z'\\-.\\s]+), number=(([\\d+()\\s\\-*#]+)|(null))\\)");
+public class Phonebook implements PhonebookStore {
     private static final String DEFAULT_BOOK = "personalBook.txt";
+    private static final long MAPPED_LOAD_THRESHOLD = 16 * 1024 * 1024;
     private final String filename;
     private List<PhonebookEntry> phonebookEntryList = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final PhonebookNameIndex nameIndex = new PhonebookNameIndex();
+    @Getter(AccessLevel.NONE)
+    private final Set<PhonebookEntry> removedEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+    @Getter(AccessLevel.NONE)
+    private final PhonebookJournal journal;
+    @Getter(AccessLevel.NONE)
+    private final boolean columnar;
+    @Getter(AccessLevel.NONE)
+    private PhonebookSearchIndex searchIndex;
+    @Getter(AccessLevel.NONE)
+    private PhonebookNumberIndex numberIndex;
+    @Getter(AccessLevel.NONE)
+    private BinaryPhonebook binaryBook;
+    @Getter(AccessLevel.NONE)
+    private PagedPhonebook pagedBook;
+    @Getter(AccessLevel.NONE)
+    private final int pageSize;
+    @Getter(AccessLevel.NONE)
+    private final int cachedPages;
+    @Getter(AccessLevel.NONE)
+    private boolean binaryFormat;
+    @Getter(AccessLevel.NONE)
+    private boolean compressedFormat;
+    @Getter(AccessLevel.NONE)
+    private final PersistenceScheduler persistence;
+    private final ConflictPolicy conflictPolicy;
+    @Getter(AccessLevel.NONE)
+    private volatile FileCheckpoint checkpoint;
 
     /**
      * Default constructor which loads the {@link PhonebookEntry} from the default file location {@link
@@ -31,75 +101,367 @@ public class Phonebook {
     }
 
     /**
-     * Default constructor which loads the {@link PhonebookEntry} from the given {@code filename}.
+     * Default constructor which loads the {@link PhonebookEntry} from the given {@code filename}. See {@link
+     * Phonebook#builder(String)} for the other kinds of book.
      *
      * @param filename The filename where the phone book is stored or will be stored.
      */
     public Phonebook(String filename) {
-        this.filename = filename;
+        this(new Builder(filename));
+    }
+
+    private Phonebook(Builder builder) {
+        this.filename = builder.filename;
+        this.journal = builder.journal != null || !builder.journaled ? builder.journal
+                : new PhonebookJournal(validFilename(builder.filename));
+        this.columnar = builder.columnar;
+        this.conflictPolicy = builder.conflictPolicy;
+        this.pageSize = builder.pageSize;
+        this.cachedPages = builder.cachedPages;
+        this.persistence = journal == null && builder.policy.getMode() != PersistencePolicy.Mode.SYNC
+                ? new PersistenceScheduler(this, builder.policy) : null;
+        this.phonebookEntryList = newEntryList();
         loadPhonebook(filename);
     }
 
+    /**
+     * @param filename The filename where the phone book is stored or will be stored.
+     * @return a {@link Builder} of a book of {@code filename} which is loaded into a list and rewritten on every
+     * mutation until it is told otherwise
+     */
+    public static Builder builder(String filename) {
+        return new Builder(filename);
+    }
+
     /**
      * Loads the {@link PhonebookEntry} from the given {@code filename}. If the file exist, it loads all the entries
      * from the files. If the file does not exist, it assumes that user would like to use a new file {@code filename}
      * and any new {@link PhonebookEntry} will be save to that {@code filename} location.
      * <p>
      * Loading of the phone book entries is lenient. If entries are not compliance with the regular expression in {@link
-     * Phonebook#pattern}, it'll just skip those entries without raising exception.
+     * PhonebookEntryParser#PATTERN}, it'll just skip those entries without raising exception.
+     * <p>
+     * Files of {@link Phonebook#MAPPED_LOAD_THRESHOLD} bytes or more are memory mapped and parsed in parallel by {@link
+     * MappedPhonebookLoader}. Files in the {@link BinaryPhonebook} format are only mapped, their entries are decoded
+     * when they are needed. Files compressed with gzip are decompressed line by line into the parser. Text files of a
+     * lazy book are only indexed by a {@link PagedPhonebook}.
+     * <p>
+     * If this {@link Phonebook} is journaled and {@code filename} is its own file, the journal records are replayed on
+     * top of the loaded entries. If it has a {@link ConflictPolicy}, the duplicate names are merged, which decodes the
+     * entries of a binary book.
      *
      * @param filename The filename where the phone book is stored or will be stored.
      */
-    public void loadPhonebook(String filename) {
-        if (filename == null || filename.trim().isEmpty()) {
-            System.err.println("filename is either null or empty.");
-            throw new RuntimeException("filename is either null or empty.");
-        }
-        Path path = Paths.get(filename);
+    public synchronized void loadPhonebook(String filename) {
+        Path path = Paths.get(validFilename(filename));
         if (Files.isDirectory(path)) {
             System.err.println(filename + " is a directory. Please check the address book filename.");
             throw new RuntimeException(filename + " is a directory.");
         }
+        binaryBook = null;
+        closePagedBook();
+        boolean ownFile = filename.equals(this.filename);
+        long start = PhonebookMetrics.start();
+        boolean compressed = !Files.exists(path) && CompressedPhonebook.hasExtension(filename);
         try {
-            if (Files.exists(path)) {
-                try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-                    phonebookEntryList = lines.map(this::createEntry).filter(Objects::nonNull).collect(Collectors.toList());
+            BasicFileAttributes before = ownFile ? FileCheckpoint.stat(path) : null;
+            if (BinaryPhonebook.isBinary(path)) {
+                binaryBook = BinaryPhonebook.open(path);
+                phonebookEntryList = newEntryList();
+            } else if (Files.exists(path)) {
+                compressed = CompressedPhonebook.isCompressed(path);
+                if (!compressed && pageSize > 0) {
+                    pagedBook = PagedPhonebook.open(path, pageSize, cachedPages);
+                    phonebookEntryList = newEntryList();
+                } else if (!compressed && Files.size(path) >= MAPPED_LOAD_THRESHOLD) {
+                    List<PhonebookEntry> entries = new MappedPhonebookLoader().load(path);
+                    phonebookEntryList = columnar ? new ColumnarEntryStore(entries) : entries;
+                } else {
+                    try (Stream<String> lines = CompressedPhonebook.lines(path)) {
+                        phonebookEntryList = lines.map(this::createEntry).filter(Objects::nonNull).collect(Collectors.toCollection(this::newEntryList));
+                    }
                 }
             }
+            if (ownFile) {
+                checkpoint = FileCheckpoint.ofComplete(path, before, before == null ? 0 : before.size());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Error with reading files. " + e.getMessage());
+        }
+        if (filename.equals(this.filename)) {
+            binaryFormat = binaryBook != null;
+            compressedFormat = compressed;
+        }
+        if (conflictPolicy != null) {
+            mergeDuplicates();
+        }
+        if (columnar) {
+            ((ColumnarEntryStore) phonebookEntryList).trimToSize();
+        }
+        removedEntries.clear();
+        nameIndex.rebuild(columnar ? Collections.emptyList() : phonebookEntryList);
+        searchIndex = null;
+        numberIndex = null;
+        if (journal != null && filename.equals(this.filename)) {
+            journal.replay(this);
+        }
+        PhonebookMetrics.stop(PhonebookMetrics.Operation.LOAD, start);
+        if (pagedBook == null) {
+            PhonebookMetrics.set(PhonebookMetrics.Gauge.ENTRIES, binaryBook != null ? binaryBook.size() : phonebookEntryList.size());
+        }
+    }
+
+    /**
+     * Picks up the changes other processes made to the file of this {@link Phonebook} since it was loaded, reloaded or
+     * written. If the file only grew, the complete lines after the last consumed offset are parsed and added, the
+     * entries already loaded are kept. If the file was rewritten, it is loaded again from the start. Binary,
+     * compressed, lazy and journaled books are always loaded again when their file changed.
+     * <p>
+     * The pending writes of the {@link PersistenceScheduler} are flushed first, then the file is read and the entries
+     * and indexes are replaced under the monitor of the book, like a mutation.
+     *
+     * @return {@code true} if the file changed and entries may have been added or replaced
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    public boolean reload() {
+        flush().join();
+        return reloadFile();
+    }
+
+    private synchronized boolean reloadFile() {
+        Path path = Paths.get(validFilename(filename));
+        long start = PhonebookMetrics.start();
+        try {
+            BasicFileAttributes attributes = FileCheckpoint.stat(path);
+            FileCheckpoint.Change change = checkpoint == null
+                    ? FileCheckpoint.Change.REWRITTEN : checkpoint.changeOf(path, attributes);
+            if (change == FileCheckpoint.Change.UNCHANGED) {
+                return false;
+            }
+            if (change == FileCheckpoint.Change.APPENDED && !binaryFormat && !compressedFormat && pagedBook == null
+                    && journal == null) {
+                int[] added = new int[1];
+                long consumed = checkpoint.readLines(path, attributes.size(), line -> {
+                    PhonebookEntry entry = createEntry(line);
+                    if (entry != null && put(entry, name -> { })) {
+                        added[0]++;
+                    }
+                });
+                checkpoint = FileCheckpoint.of(path, attributes, consumed);
+                PhonebookMetrics.stop(PhonebookMetrics.Operation.RELOAD, start);
+                return added[0] > 0;
+            }
         } catch (IOException e) {
             throw new RuntimeException("Error with reading files. " + e.getMessage());
         }
+        phonebookEntryList = newEntryList();
+        loadPhonebook(filename);
+        PhonebookMetrics.stop(PhonebookMetrics.Operation.RELOAD, start);
+        return true;
+    }
+
+    /**
+     * Removed entries are dropped from the list lazily, so this is O(1) unless entries were removed since the last
+     * call.
+     *
+     * @return the entries of this {@link Phonebook} in the order they are stored
+     */
+    @Override
+    public synchronized List<PhonebookEntry> getPhonebookEntryList() {
+        materialize();
+        if (!removedEntries.isEmpty()) {
+            phonebookEntryList.removeIf(removedEntries::contains);
+            removedEntries.clear();
+        }
+        return phonebookEntryList;
     }
 
     /**
-     * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
-     * @return {@link PhonebookEntry} if the {@code line} matches the regular expression {@link Phonebook#pattern}.
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in the order they are stored, or an empty list if there is none
      */
-    public PhonebookEntry createEntry(String line) {
-        if (line == null || line.trim().isEmpty()) {
-            return null;
+    @Override
+    public List<PhonebookEntry> findByName(String name) {
+        if (binaryBook != null) {
+            return binaryBook.findByName(name);
         }
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.matches()) {
-            return PhonebookEntry.builder().name(matcher.group(1)).number(matcher.group(2)).build();
+        if (pagedBook != null) {
+            return pagedBook.findByName(name);
         }
-        return null;
+        return columnar ? ((ColumnarEntryStore) phonebookEntryList).findByName(name) : nameIndex.find(name);
     }
 
     /**
-     * Add an entry to the this {@link Phonebook}
+     * @param name Name to be looked up, case insensitive.
+     * @return {@code true} if this {@link Phonebook} has at least one entry with the given {@code name}
+     */
+    @Override
+    public boolean containsName(String name) {
+        if (binaryBook != null) {
+            return binaryBook.containsName(name);
+        }
+        if (pagedBook != null) {
+            return pagedBook.containsName(name);
+        }
+        return columnar ? ((ColumnarEntryStore) phonebookEntryList).indexOfName(name) >= 0 : nameIndex.contains(name);
+    }
+
+    /**
+     * Case insensitive prefix search. The {@link PhonebookSearchIndex} is built by the first search and updated on
+     * every add and remove after that.
+     *
+     * @param prefix The prefix of the names to be looked up.
+     * @return the entries whose name starts with {@code prefix}, in the order of {@link Phonebook#printPhonebook()}
+     */
+    @Override
+    public List<PhonebookEntry> findByPrefix(String prefix) {
+        return entriesOf(searchIndex().findByPrefix(prefix));
+    }
+
+    /**
+     * Case insensitive typo tolerant search. The {@link PhonebookSearchIndex} is built by the first search and updated
+     * on every add and remove after that.
+     *
+     * @param name        The name to be looked up.
+     * @param maxDistance The maximum number of inserted, deleted or substituted characters.
+     * @return the entries whose name is within {@code maxDistance} edits of {@code name}, closest names first
+     */
+    @Override
+    public List<PhonebookEntry> findSimilar(String name, int maxDistance) {
+        return entriesOf(searchIndex().findSimilar(name, maxDistance));
+    }
+
+    /**
+     * Reverse lookup by number. Numbers are compared in their {@link PhonebookNumberIndex#normalize(String)} form, so
+     * the format of {@code number} does not matter. The {@link PhonebookNumberIndex} is built by the first lookup and
+     * updated on every add and remove after that.
+     *
+     * @param number The number to be looked up.
+     * @return the entries with the same normalized number in the order they were added, or an empty list if there is
+     * none
+     */
+    @Override
+    public List<PhonebookEntry> findByNumber(String number) {
+        return numberIndex().find(number);
+    }
+
+    /**
+     * @param prefix The prefix of the numbers to be looked up, compared in normalized form.
+     * @return the entries whose normalized number starts with the normalized {@code prefix}, in number order
+     */
+    public List<PhonebookEntry> findByNumberPrefix(String prefix) {
+        return numberIndex().findByPrefix(prefix);
+    }
+
+    private PhonebookNumberIndex numberIndex() {
+        if (numberIndex == null) {
+            PhonebookNumberIndex index = new PhonebookNumberIndex();
+            index.rebuild(getPhonebookEntryList());
+            numberIndex = index;
+        }
+        return numberIndex;
+    }
+
+    private PhonebookSearchIndex searchIndex() {
+        if (searchIndex == null) {
+            PhonebookSearchIndex index = new PhonebookSearchIndex();
+            index.rebuild(getPhonebookEntryList());
+            searchIndex = index;
+        }
+        return searchIndex;
+    }
+
+    private List<PhonebookEntry> entriesOf(List<String> names) {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        names.forEach(name -> entries.addAll(findByName(name)));
+        return entries;
+    }
+
+    private List<PhonebookEntry> newEntryList() {
+        return columnar ? new ColumnarEntryStore() : new ArrayList<>();
+    }
+
+    /**
+     * Decodes the entries of the {@link BinaryPhonebook} or parses the pages of the {@link PagedPhonebook} this book
+     * was loaded from, if they are not in memory yet.
+     */
+    private void materialize() {
+        if (pagedBook != null) {
+            phonebookEntryList = pagedBook.toList();
+            nameIndex.rebuild(phonebookEntryList);
+            closePagedBook();
+            searchIndex = null;
+            numberIndex = null;
+        }
+        if (binaryBook != null) {
+            if (columnar) {
+                phonebookEntryList = newEntryList();
+                binaryBook.forEach(phonebookEntryList::add);
+            } else {
+                phonebookEntryList = binaryBook.toList();
+                nameIndex.rebuild(phonebookEntryList);
+            }
+            binaryBook = null;
+            searchIndex = null;
+            numberIndex = null;
+        }
+    }
+
+    private static String validFilename(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            System.err.println("filename is either null or empty.");
+            throw new RuntimeException("filename is either null or empty.");
+        }
+        return filename;
+    }
+
+    /**
+     * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return {@link PhonebookEntry} if the {@code line} matches the regular expression {@link
+     * PhonebookEntryParser#PATTERN}.
+     */
+    public PhonebookEntry createEntry(String line) {
+        long start = PhonebookMetrics.start();
+        PhonebookEntry entry = PhonebookEntryParser.parse(line);
+        PhonebookMetrics.stop(PhonebookMetrics.Operation.PARSE, start);
+        PhonebookMetrics.increment(entry != null ? PhonebookMetrics.Counter.PARSED_LINES : PhonebookMetrics.Counter.REJECTED_LINES);
+        return entry;
+    }
+
+    /**
+     * Add an entry to the this {@link Phonebook}. With a {@link ConflictPolicy}, the entry replaces the entry with the
+     * same name or is dropped, as the policy says.
      *
      * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
      * @return {@code true} if an entry is added successfully, {@code false} otherwise
      */
+    @Override
     public boolean addEntry(String line) {
+        return await(add(line));
+    }
+
+    /**
+     * Add an entry to the this {@link Phonebook} without waiting for it to be durable.
+     *
+     * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return the future of {@link Phonebook#addEntry(String)}, which completes once the entry is durable
+     */
+    public CompletableFuture<Boolean> addEntryAsync(String line) {
+        return add(line).whenDurable();
+    }
+
+    private synchronized Mutation<Boolean> add(String line) {
         PhonebookEntry phoneBookEntry = createEntry(line);
-        if (phoneBookEntry != null) {
-            phonebookEntryList.add(phoneBookEntry);
-            persistBook();
-            return true;
+        if (phoneBookEntry == null || !put(phoneBookEntry, this::journalRemove)) {
+            return new Mutation<>(false, durable());
         }
-        return false;
+        if (journal != null) {
+            journal.appendAdd(phoneBookEntry);
+            CompletableFuture<Void> durable = journal.whenSynced();
+            compactIfNeeded();
+            return new Mutation<>(true, durable);
+        }
+        return new Mutation<>(true, persist());
     }
 
     /**
@@ -108,15 +470,290 @@ public class Phonebook {
      * @param name Name to be remove from the phonebook.
      * @return {@code true} if an entry is removed successfully, {@code false} otherwise
      */
+    @Override
     public boolean removeEntry(String name) {
-        Optional<PhonebookEntry> entryOptional = phonebookEntryList.stream().filter(e -> e.getName().compareToIgnoreCase(name) == 0).findFirst();
-        if (entryOptional.isPresent()) {
-            if (phonebookEntryList.remove(entryOptional.get())) {
-                persistBook();
-                return true;
+        return await(remove(name));
+    }
+
+    /**
+     * Remove an entry from this {@link Phonebook} without waiting for it to be durable.
+     *
+     * @param name Name to be remove from the phonebook.
+     * @return the future of {@link Phonebook#removeEntry(String)}, which completes once the removal is durable
+     */
+    public CompletableFuture<Boolean> removeEntryAsync(String name) {
+        return remove(name).whenDurable();
+    }
+
+    private synchronized Mutation<Boolean> remove(String name) {
+        PhonebookEntry removed = applyRemove(name);
+        if (removed == null) {
+            return new Mutation<>(false, durable());
+        }
+        if (journal != null) {
+            journal.appendRemove(removed.getName());
+            CompletableFuture<Void> durable = journal.whenSynced();
+            compactIfNeeded();
+            return new Mutation<>(true, durable);
+        }
+        return new Mutation<>(true, persist());
+    }
+
+    /**
+     * Add all the entries of {@code lines} to this {@link Phonebook} with a single persist. The whole batch is
+     * validated first, if any line is not a valid {@link PhonebookEntry}, the invalid lines are reported and no entry
+     * is added. Blank lines are skipped. With a {@link ConflictPolicy}, the entries are upserted one after the other.
+     *
+     * @param lines String representations of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return the number of entries added
+     */
+    @Override
+    public int addEntries(Iterable<String> lines) {
+        return await(addAll(lines));
+    }
+
+    /**
+     * Add all the entries of {@code lines} like {@link Phonebook#addEntries(Iterable)} without waiting for them to be
+     * durable.
+     *
+     * @param lines String representations of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return the future of the number of entries added, which completes once they are durable
+     */
+    public CompletableFuture<Integer> addEntriesAsync(Iterable<String> lines) {
+        return addAll(lines).whenDurable();
+    }
+
+    private synchronized Mutation<Integer> addAll(Iterable<String> lines) {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        boolean valid = true;
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            if (line == null || line.trim().isEmpty()) {
+                continue;
+            }
+            PhonebookEntry entry = createEntry(line);
+            if (entry == null) {
+                System.err.println("Invalid entry on line " + lineNumber + ": " + line);
+                valid = false;
+            } else if (valid) {
+                entries.add(entry);
+            }
+        }
+        if (!valid) {
+            return new Mutation<>(0, durable());
+        }
+        int added = 0;
+        for (PhonebookEntry entry : entries) {
+            if (put(entry, this::journalRemove)) {
+                added++;
+                if (journal != null) {
+                    journal.appendAdd(entry);
+                }
+            }
+        }
+        if (added == 0) {
+            return new Mutation<>(0, durable());
+        }
+        if (journal != null) {
+            journal.sync();
+            compactIfNeeded();
+            return new Mutation<>(added, durable());
+        }
+        return new Mutation<>(added, persist());
+    }
+
+    /**
+     * Remove the first entry matching each of the {@code names} from this {@link Phonebook} with a single persist.
+     *
+     * @param names Names to be remove from the phonebook, case insensitive.
+     * @return the number of entries removed
+     */
+    @Override
+    public int removeEntries(Collection<String> names) {
+        return await(removeAll(names));
+    }
+
+    /**
+     * Remove the entries of {@code names} like {@link Phonebook#removeEntries(Collection)} without waiting for the
+     * removals to be durable.
+     *
+     * @param names Names to be remove from the phonebook, case insensitive.
+     * @return the future of the number of entries removed, which completes once the removals are durable
+     */
+    public CompletableFuture<Integer> removeEntriesAsync(Collection<String> names) {
+        return removeAll(names).whenDurable();
+    }
+
+    private synchronized Mutation<Integer> removeAll(Collection<String> names) {
+        List<PhonebookEntry> removed = new ArrayList<>();
+        for (String name : names) {
+            PhonebookEntry entry = applyRemove(name);
+            if (entry != null) {
+                removed.add(entry);
+            }
+        }
+        if (removed.isEmpty()) {
+            return new Mutation<>(0, durable());
+        }
+        if (journal != null) {
+            removed.forEach(entry -> journal.appendRemove(entry.getName()));
+            journal.sync();
+            compactIfNeeded();
+            return new Mutation<>(removed.size(), durable());
+        }
+        return new Mutation<>(removed.size(), persist());
+    }
+
+    /**
+     * Write the pending mutations of a {@link PersistencePolicy.Mode#GROUP} or {@link PersistencePolicy.Mode#ASYNC}
+     * book now, or force the pending records of a journaled book. The future completes at once for other books, whose
+     * mutations are durable when they return.
+     *
+     * @return the future which completes once every mutation made so far is durable
+     */
+    public CompletableFuture<Void> flush() {
+        if (journal != null) {
+            synchronized (this) {
+                journal.sync();
+            }
+            return durable();
+        }
+        return persistence != null ? persistence.flush() : durable();
+    }
+
+    /**
+     * Waits for the mutation to be durable if the {@link PersistencePolicy} asks for it. A failed write is thrown as
+     * it is, like a write on the calling thread.
+     */
+    private <T> T await(Mutation<T> mutation) {
+        if (persistence != null && persistence.waitsForDurability()) {
+            try {
+                mutation.durable.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        return mutation.result;
+    }
+
+    /**
+     * Adds {@code entry} to the in-memory entries without persisting it, as the {@link ConflictPolicy} of this book
+     * says if it has one. The policies keep either all or none of the entries which are already there, so replacing
+     * them is removing them by name.
+     *
+     * @param entry   The entry to be added.
+     * @param removed Receives the name of every entry removed to make room for {@code entry}, before it is added, so a
+     *                journaled book records the removes ahead of the add.
+     * @return {@code true} if the entries changed
+     */
+    private boolean put(PhonebookEntry entry, Consumer<String> removed) {
+        if (conflictPolicy == null) {
+            applyAdd(entry);
+            return true;
+        }
+        List<PhonebookEntry> existing = findByName(entry.getName());
+        List<PhonebookEntry> candidates = new ArrayList<>(existing);
+        candidates.add(entry);
+        List<PhonebookEntry> kept = conflictPolicy.resolve(candidates);
+        if (kept.equals(existing) || kept.get(kept.size() - 1) != entry) {
+            return false;
+        }
+        for (int i = kept.size() - 1; i < existing.size(); i++) {
+            removed.accept(applyRemove(entry.getName()).getName());
+        }
+        applyAdd(entry);
+        return true;
+    }
+
+    private void journalRemove(String name) {
+        if (journal != null) {
+            journal.appendRemove(name);
+        }
+    }
+
+    /**
+     * Adds {@code entry} of a journal record to the in-memory entries without persisting it, as the {@link
+     * ConflictPolicy} of this book says if it has one. The removes of an upsert are records of their own, so they have
+     * been replayed already, but a journal written without the policy is merged like the file.
+     *
+     * @param entry The entry to be added.
+     */
+    void replayAdd(PhonebookEntry entry) {
+        put(entry, name -> { });
+    }
+
+    /**
+     * Keeps the entries the {@link ConflictPolicy} of this book says of every name, where the first entry of the name
+     * was.
+     */
+    private void mergeDuplicates() {
+        materialize();
+        Map<String, List<PhonebookEntry>> entriesByName = new LinkedHashMap<>();
+        for (PhonebookEntry entry : phonebookEntryList) {
+            entriesByName.computeIfAbsent(PhonebookEntry.foldName(entry.getName()), name -> new ArrayList<>(1)).add(entry);
+        }
+        if (entriesByName.size() == phonebookEntryList.size()) {
+            return;
+        }
+        List<PhonebookEntry> merged = newEntryList();
+        entriesByName.values().forEach(entries -> merged.addAll(conflictPolicy.resolve(entries)));
+        phonebookEntryList = merged;
+    }
+
+    /**
+     * Adds {@code entry} to the in-memory entries without persisting it.
+     *
+     * @param entry The entry to be added.
+     */
+    void applyAdd(PhonebookEntry entry) {
+        materialize();
+        phonebookEntryList.add(entry);
+        if (!columnar) {
+            nameIndex.add(entry);
+        }
+        if (searchIndex != null) {
+            searchIndex.add(entry);
+        }
+        if (numberIndex != null) {
+            numberIndex.add(entry);
+        }
+    }
+
+    /**
+     * Removes the first entry matching {@code name} from the in-memory entries without persisting it. The entry is
+     * found through the name index and only marked as removed, it is dropped from the list by the next {@link
+     * Phonebook#getPhonebookEntryList()}. A columnar book drops the entry from its store right away. A binary or lazy
+     * book is only loaded into memory if it has the name.
+     *
+     * @param name Name to be remove from the phonebook.
+     * @return the removed {@link PhonebookEntry}, or {@code null} if no entry matches {@code name}
+     */
+    PhonebookEntry applyRemove(String name) {
+        if ((binaryBook != null || pagedBook != null) && !containsName(name)) {
+            return null;
+        }
+        materialize();
+        PhonebookEntry entry;
+        if (columnar) {
+            ColumnarEntryStore store = (ColumnarEntryStore) phonebookEntryList;
+            int index = store.indexOfName(name);
+            entry = index >= 0 ? store.remove(index) : null;
+        } else {
+            entry = nameIndex.removeFirst(name);
+            if (entry != null) {
+                removedEntries.add(entry);
             }
         }
-        return false;
+        if (entry != null) {
+            if (searchIndex != null) {
+                searchIndex.remove(entry);
+            }
+            if (numberIndex != null) {
+                numberIndex.remove(entry);
+            }
+        }
+        return entry;
     }
 
     /**
@@ -125,42 +762,420 @@ public class Phonebook {
      * @return {@code true} if entries are printed successfully, {@code false} if no entries in this {@link Phonebook}
      */
     public boolean printPhonebook() {
-        if (phonebookEntryList.isEmpty()) {
-            System.out.println("Current phone book has no entries.");
+        return printPhonebook(System.out);
+    }
+
+    /**
+     * Print the entries of this {@link Phonebook} in ascending order to {@code out}
+     *
+     * @param out The stream the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if no entries in this {@link Phonebook}
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    public boolean printPhonebook(PrintStream out) {
+        try {
+            PhonebookEntryWriter writer = new PhonebookEntryWriter(out);
+            boolean printed = printPhonebook(writer);
+            writer.flush();
+            return printed;
+        } catch (IOException e) {
+            throw new RuntimeException("Error with writing entries. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Print the entries of this {@link Phonebook} in ascending order to {@code out}. The entries are encoded into the
+     * buffer of {@code out} directly, it is flushed by the caller.
+     *
+     * @param out The writer the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if no entries in this {@link Phonebook}
+     * @throws IOException if {@code out} can't be written
+     */
+    @Override
+    public boolean printPhonebook(PhonebookEntryWriter out) throws IOException {
+        Iterable<PhonebookEntry> entries = sortedIterable();
+        if (!entries.iterator().hasNext()) {
+            out.writeLine("Current phone book has no entries.");
             return false;
         }
-        phonebookEntryList.stream().sorted().forEach(System.out::println);
+        for (PhonebookEntry entry : entries) {
+            out.writeEntry(entry);
+        }
         return true;
     }
 
+    /**
+     * The entries of this {@link Phonebook} in ascending order, like {@link Phonebook#printPhonebook()} prints them.
+     * The entries of a binary book are decoded from the mapped file while the stream is consumed, the entries of other
+     * books are sorted first.
+     *
+     * @return the entries in ascending order
+     */
+    @Override
+    public Stream<PhonebookEntry> streamPhonebook() {
+        return StreamSupport.stream(sortedIterable().spliterator(), false);
+    }
+
+    private Iterable<PhonebookEntry> sortedIterable() {
+        if (binaryBook != null) {
+            return binaryBook.size() == 0 ? Collections.emptyList() : binaryBook;
+        }
+        return sortedEntries(pagedBook != null ? pagedBook.toList() : getPhonebookEntryList());
+    }
+
+    /**
+     * The entries in the order of {@link PhonebookEntry#compareTo}. Every name is folded once with {@link
+     * PhonebookEntry#foldName(String)} and the folded names are compared with {@link String#compareTo(String)}, which
+     * is the same order but much cheaper than folding both names on every comparison. The sort is stable.
+     */
+    static List<PhonebookEntry> sortedEntries(List<PhonebookEntry> entries) {
+        SortKey[] keys = new SortKey[entries.size()];
+        int i = 0;
+        for (PhonebookEntry entry : entries) {
+            keys[i++] = new SortKey(PhonebookEntry.foldName(entry.getName()), entry);
+        }
+        Arrays.sort(keys, (first, second) -> first.foldedName.compareTo(second.foldedName));
+        PhonebookEntry[] sorted = new PhonebookEntry[keys.length];
+        for (i = 0; i < keys.length; i++) {
+            sorted[i] = keys[i].entry;
+        }
+        return Arrays.asList(sorted);
+    }
+
     /**
      * Print unique names from this {@link Phonebook} and another {@code phonebook}
      *
      * @param phonebook Another phonebook to be compare with this phonebook
      */
-    public void printUniqueEntries(Phonebook phonebook) {
-        Set<String> namesFromThisPhonebook = phonebookEntryList.stream().map(PhonebookEntry::getName).collect(Collectors.toSet());
-        Set<String> namesFromAnotherPhonebook = phonebook.getPhonebookEntryList().stream().map(PhonebookEntry::getName).collect(Collectors.toSet());
-        Set<String> complementSet1 = namesFromThisPhonebook.stream().filter(n -> !namesFromAnotherPhonebook.contains(n)).collect(Collectors.toSet());
-        Set<String> complementSet2 = namesFromAnotherPhonebook.stream().filter(n -> !namesFromThisPhonebook.contains(n)).collect(Collectors.toSet());
-        Set<String> complements = Stream.concat(complementSet1.stream(), complementSet2.stream()).collect(Collectors.toSet());
-        complements.stream().sorted().forEach(System.out::println);
+    public void printUniqueEntries(PhonebookStore phonebook) {
+        printUniqueEntries(phonebook, System.out);
+    }
+
+    /**
+     * Print unique names from this {@link Phonebook} and another {@code phonebook} to {@code out}. The names of both
+     * books are sorted once and merged by {@link SymmetricDifference}.
+     *
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @param out       The stream the names are printed to.
+     */
+    public void printUniqueEntries(PhonebookStore phonebook, PrintStream out) {
+        try {
+            PhonebookEntryWriter writer = new PhonebookEntryWriter(out);
+            printUniqueEntries(phonebook, writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error with writing entries. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Print unique names from this {@link Phonebook} and another {@code phonebook} to {@code out}, which is flushed by
+     * the caller. The names are unique either way round, so a {@link ShardedPhonebook} compares itself with this book
+     * shard by shard.
+     *
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @param out       The writer the names are printed to.
+     * @throws IOException if {@code out} can't be written
+     */
+    @Override
+    public void printUniqueEntries(PhonebookStore phonebook, PhonebookEntryWriter out) throws IOException {
+        if (phonebook instanceof ShardedPhonebook) {
+            phonebook.printUniqueEntries(this, out);
+            return;
+        }
+        try {
+            SymmetricDifference.of(getPhonebookEntryList(), phonebook.getPhonebookEntryList(), out.lines());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     /**
-     * Persist the entityList to the file.
+     * The unique names of this {@link Phonebook} and another {@code phonebook}, like {@link
+     * Phonebook#printUniqueEntries(PhonebookStore)} prints them. The names of both books are sorted first and merged while
+     * the stream is consumed.
      *
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @return the names which are in only one of the books, in ascending order
+     */
+    @Override
+    public Stream<String> streamUniqueEntries(PhonebookStore phonebook) {
+        if (phonebook instanceof ShardedPhonebook) {
+            return phonebook.streamUniqueEntries(this);
+        }
+        return SymmetricDifference.stream(getPhonebookEntryList(), phonebook.getPhonebookEntryList());
+    }
+
+    /**
+     * Folds the journal into the file on the background compactor thread. This is a no-op if this {@link Phonebook}
+     * is not journaled.
+     */
+    public void compact() {
+        if (journal != null) {
+            journal.compact(new ArrayList<>(getPhonebookEntryList()));
+        }
+    }
+
+    /**
+     * Starts a compaction once the journal is due. The mutation is already in the journal, so a failed rotation is only
+     * reported and retried with the next mutation.
+     */
+    private void compactIfNeeded() {
+        if (journal.needsCompaction()) {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the pending mutations, waits for a running compaction, forces the pending journal records to disk and
+     * closes the file of a lazy book.
+     */
+    @Override
+    public void close() {
+        flush().join();
+        if (journal != null) {
+            journal.close();
+        }
+        closePagedBook();
+    }
+
+    private void closePagedBook() {
+        if (pagedBook != null) {
+            try {
+                pagedBook.close();
+            } catch (IOException e) {
+                System.err.println("Closing " + filename + " failed. Reason: " + e.getMessage());
+            }
+            pagedBook = null;
+        }
+    }
+
+    /**
+     * Write the entries of this {@link Phonebook} to a temporary file and rename it to {@code filename}, so the file
+     * always holds a complete phone book. The text format is compressed with gzip when {@code filename} is the file of
+     * a compressed book or ends with {@link CompressedPhonebook#EXTENSION}.
+     *
+     * @param filename The file to be written.
+     * @param binary   {@code true} for the {@link BinaryPhonebook} format, {@code false} for the text format
      * @throws RuntimeException if there is {@link IOException} being thrown
      */
-    private void persistBook() {
-        Path path = Paths.get(filename);
+    @Override
+    public void writePhonebook(String filename, boolean binary) {
+        writeEntries(filename, getPhonebookEntryList(), binary);
+    }
+
+    private void writeEntries(String filename, List<PhonebookEntry> entries, boolean binary) {
+        Path path = Paths.get(validFilename(filename));
+        boolean compressed = filename.equals(this.filename) ? compressedFormat : CompressedPhonebook.hasExtension(filename);
+        long start = PhonebookMetrics.start();
         try {
-            if (!Files.exists(path)) {
-                Files.createFile(path);
+            long size;
+            if (binary) {
+                BinaryPhonebook.write(entries, path);
+                size = Files.size(path);
+            } else {
+                size = AtomicFiles.writeLines(path, entries.stream().map(phonebookEntry -> (CharSequence) phonebookEntry.toString())::iterator, compressed);
+            }
+            if (filename.equals(this.filename)) {
+                checkpoint = FileCheckpoint.ofComplete(path, FileCheckpoint.stat(path), size);
             }
-            Files.write(path, phonebookEntryList.stream().map(phonebookEntry -> (CharSequence) phonebookEntry.toString())::iterator);
         } catch (IOException e) {
             throw new RuntimeException("File persistent failed.");
         }
+        PhonebookMetrics.stop(PhonebookMetrics.Operation.PERSIST, start);
+        if (PhonebookMetrics.isEnabled()) {
+            PhonebookMetrics.add(PhonebookMetrics.Counter.PERSISTED_ENTRIES, entries.size());
+            PhonebookMetrics.set(PhonebookMetrics.Gauge.ENTRIES, entries.size());
+        }
+    }
+
+    /**
+     * Persist the entityList to the file, in the format it was loaded from.
+     *
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    private void persistBook() {
+        writePhonebook(filename, binaryFormat);
+    }
+
+    /**
+     * Persist the mutations applied so far right away, or schedule them as the {@link PersistencePolicy} says.
+     *
+     * @return the future which completes once the mutations are durable
+     */
+    private CompletableFuture<Void> persist() {
+        if (persistence == null) {
+            persistBook();
+            return durable();
+        }
+        return persistence.schedule();
+    }
+
+    /**
+     * @return a new future which is already complete, so a caller completing or obtruding it affects only itself
+     */
+    private static CompletableFuture<Void> durable() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Write a copy of the entries taken under the monitor of this {@link Phonebook}, called by the {@link
+     * PersistenceScheduler}. The copy skips the removed entries instead of dropping them from the list, so the
+     * readers of the list are not disturbed.
+     */
+    void persistEntries() {
+        List<PhonebookEntry> entries;
+        boolean binary;
+        synchronized (this) {
+            entries = new ArrayList<>(phonebookEntryList.size());
+            for (PhonebookEntry entry : phonebookEntryList) {
+                if (!removedEntries.contains(entry)) {
+                    entries.add(entry);
+                }
+            }
+            binary = binaryFormat;
+        }
+        writeEntries(filename, entries, binary);
+    }
+
+    private static final class Mutation<T> {
+        private final T result;
+        private final CompletableFuture<Void> durable;
+
+        private Mutation(T result, CompletableFuture<Void> durable) {
+            this.result = result;
+            this.durable = durable;
+        }
+
+        private CompletableFuture<T> whenDurable() {
+            return durable.thenApply(written -> result);
+        }
+    }
+
+    private static final class SortKey {
+        private final String foldedName;
+        private final PhonebookEntry entry;
+
+        private SortKey(String foldedName, PhonebookEntry entry) {
+            this.foldedName = foldedName;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * This class builds the kinds of {@link Phonebook}. The options combine freely, except for these:
+     * <li>
+     *     <ul>a journaled book persists every mutation through its journal, so it only takes the default {@link
+     *     PersistencePolicy#sync()}</ul>
+     *     <ul>a lazy book parses its pages into a list of entries, so it can't be columnar</ul>
+     *     <ul>a lazy book keeps its file as it is until it is mutated, so it can't merge the duplicate names a {@link
+     *     ConflictPolicy} asks for when it is loaded</ul>
+     * </li>
+     * {@link Builder#build()} throws an {@link IllegalArgumentException} for any other combination.
+     */
+    public static class Builder {
+        private final String filename;
+        private boolean journaled;
+        private PhonebookJournal journal;
+        private boolean columnar;
+        private PersistencePolicy policy = PersistencePolicy.sync();
+        private ConflictPolicy conflictPolicy;
+        private int pageSize;
+        private int cachedPages;
+
+        private Builder(String filename) {
+            this.filename = filename;
+        }
+
+        /**
+         * The records of the {@link PhonebookJournal} next to the file are replayed after loading and new mutations are
+         * appended to it instead of rewriting the file.
+         *
+         * @param journaled {@code true} to persist mutations through a {@link PhonebookJournal}
+         * @return this builder
+         */
+        public Builder journaled(boolean journaled) {
+            this.journaled = journaled;
+            return this;
+        }
+
+        /**
+         * @param journal The journal of the file, or {@code null} to rewrite the file on every mutation.
+         * @return this builder
+         */
+        public Builder journal(PhonebookJournal journal) {
+            this.journal = journal;
+            this.journaled = journal != null;
+            return this;
+        }
+
+        /**
+         * @param columnar {@code true} to keep the entries in a {@link ColumnarEntryStore}
+         * @return this builder
+         */
+        public Builder columnar(boolean columnar) {
+            this.columnar = columnar;
+            return this;
+        }
+
+        /**
+         * @param policy When mutations are written and forced to the file.
+         * @return this builder
+         */
+        public Builder persistencePolicy(PersistencePolicy policy) {
+            this.policy = Objects.requireNonNull(policy, "policy");
+            return this;
+        }
+
+        /**
+         * The duplicate names are merged when the file is loaded and the added entries are upserted as {@code
+         * conflictPolicy} says.
+         *
+         * @param conflictPolicy Which entries are kept when names are duplicate, or {@code null} to keep them all.
+         * @return this builder
+         */
+        public Builder conflictPolicy(ConflictPolicy conflictPolicy) {
+            this.conflictPolicy = conflictPolicy;
+            return this;
+        }
+
+        /**
+         * Opens the file lazily. A text book is only indexed by a {@link PagedPhonebook}, its entries are parsed a page
+         * at a time when they are looked up, iterated or printed, and the last {@code cachedPages} parsed pages are
+         * kept in memory. Other books are loaded as usual.
+         *
+         * @param pageSize    The size of a page in bytes, eg {@link PagedPhonebook#DEFAULT_PAGE_SIZE}.
+         * @param cachedPages The number of parsed pages kept in memory, eg {@link PagedPhonebook#DEFAULT_CACHED_PAGES}.
+         * @return this builder
+         */
+        public Builder lazy(int pageSize, int cachedPages) {
+            if (pageSize <= 0 || cachedPages <= 0) {
+                throw new IllegalArgumentException("pageSize and cachedPages must be positive.");
+            }
+            this.pageSize = pageSize;
+            this.cachedPages = cachedPages;
+            return this;
+        }
+
+        /**
+         * @return the {@link Phonebook}, loaded from its file
+         * @throws IllegalArgumentException if the options don't combine, see {@link Builder}
+         */
+        public Phonebook build() {
+            if (journaled && policy.getMode() != PersistencePolicy.Mode.SYNC) {
+                throw new IllegalArgumentException("A journaled book persists through its journal, it takes no " + policy.getMode() + " persistence policy.");
+            }
+            if (pageSize > 0 && columnar) {
+                throw new IllegalArgumentException("A lazy book can't be columnar.");
+            }
+            if (pageSize > 0 && conflictPolicy != null) {
+                throw new IllegalArgumentException("A lazy book can't have a conflict policy.");
+            }
+            return new Phonebook(this);
+        }
     }
 }
@@ -0,0 +1,115 @@
+package com.example.pwc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This class caches loaded {@link Phonebook} instances by filename. A cached {@link Phonebook} is reloaded when the
+ * modification time, size or file key (inode) of its file differ from the ones recorded when it was loaded or last
+ * written through this cache, so changes made by other processes are picked up on the next {@link
+ * PhonebookCache#get(String)}.
+ */
+public class PhonebookCache {
+    private final Map<Path, CachedPhonebook> phonebooks = new HashMap<>();
+
+    /**
+     * @param filename The filename where the phone book is stored or will be stored.
+     * @return the cached {@link Phonebook} of {@code filename}, loaded again if the file has changed since
+     */
+    public synchronized Phonebook get(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            return new Phonebook(filename);
+        }
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        FileStamp stamp = FileStamp.of(path);
+        CachedPhonebook cached = phonebooks.get(path);
+        if (cached == null || !cached.stamp.equals(stamp)) {
+            cached = new CachedPhonebook(new Phonebook(filename), stamp);
+            phonebooks.put(path, cached);
+        }
+        return cached.phonebook;
+    }
+
+    /**
+     * Records the current state of the file of {@code filename} after it was written through the cached {@link
+     * Phonebook}, so the write is not mistaken for a change by another process.
+     *
+     * @param filename The filename of a cached phone book.
+     */
+    public synchronized void update(String filename) {
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        CachedPhonebook cached = phonebooks.get(path);
+        if (cached != null) {
+            cached.stamp = FileStamp.of(path);
+        }
+    }
+
+    /**
+     * @param filename The filename of the phone book to drop from this cache.
+     */
+    public synchronized void invalidate(String filename) {
+        phonebooks.remove(Paths.get(filename).toAbsolutePath().normalize());
+    }
+
+    /**
+     * @return the number of cached phone books
+     */
+    public synchronized int size() {
+        return phonebooks.size();
+    }
+
+    private static final class CachedPhonebook {
+        private final Phonebook phonebook;
+        private FileStamp stamp;
+
+        private CachedPhonebook(Phonebook phonebook, FileStamp stamp) {
+            this.phonebook = phonebook;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class FileStamp {
+        private static final FileStamp ABSENT = new FileStamp(-1, -1, null);
+        private final long lastModified;
+        private final long size;
+        private final Object fileKey;
+
+        private FileStamp(long lastModified, long size, Object fileKey) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        private static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size(), attributes.fileKey());
+            } catch (NoSuchFileException e) {
+                return ABSENT;
+            } catch (IOException e) {
+                throw new RuntimeException("Error with reading file attributes. " + e.getMessage());
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return lastModified == other.lastModified && size == other.size && Objects.equals(fileKey, other.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModified, size, fileKey);
+        }
+    }
+}
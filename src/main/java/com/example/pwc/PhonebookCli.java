@@ -2,6 +2,18 @@ package com.example.pwc;
 
 import org.apache.commons.cli.*;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * This class is responsible for interacting with command line inputs
  */
@@ -12,6 +24,21 @@ public class PhonebookCli {
     private static final String HELP = "h";
     private static final String PRINT = "p";
     private static final String REMOVE = "r";
+    private static final String DAEMON = "d";
+    private static final String CLIENT = "c";
+    private static final String IMPORT = "i";
+    private static final String MEMORY = "m";
+    private static final String EXPORT_BINARY = "e";
+    private static final String EXPORT_TEXT = "t";
+    private static final String SEARCH = "s";
+    private static final String FUZZY = "f";
+    private static final String EDITS = "k";
+    private static final String NUMBER = "n";
+    private static final String OUTPUT = "o";
+    private static final String SET_OPERATION = "x";
+    private static final String DEDUPE = "w";
+    private static final int DEFAULT_EDITS = 2;
+    private static final String STDIN = "-";
     private static final String DEFAULT_BOOK = "personalBook.txt";
 
     public static void main(String[] args) {
@@ -24,40 +51,268 @@ public class PhonebookCli {
             printHelp();
             return;
         }
-        if (!processPhonebook(cmd)) {
-            printHelp();
+        try (Closeable metrics = PhonebookMetrics.fromSystemProperties()) {
+            if (!processPhonebook(cmd)) {
+                printHelp();
+            }
+        } catch (IOException e) {
+            System.err.println("Metrics report failed. Reason: " + e.getMessage());
         }
     }
 
     public static boolean processPhonebook(CommandLine cmd) {
-        if (cmd.getOptions().length == 1 && cmd.hasOption(UNIQUE)) {
+        if (cmd.hasOption(UNIQUE) && !cmd.hasOption(BOOK)) {
             System.err.println("Please supply another phonebook with option -b <FILE>.");
             return false;
         }
-        String filename = DEFAULT_BOOK;
-        if (cmd.getOptions().length == 2) {
-            filename = cmd.getOptionValue(BOOK);
+        String filename = cmd.getOptionValue(BOOK, DEFAULT_BOOK);
+        if (cmd.hasOption(CLIENT)) {
+            return processPhonebookOnServer(cmd, filename);
+        } else if (cmd.hasOption(DAEMON)) {
+            return serve();
+        } else if (cmd.hasOption(IMPORT)) {
+            return importEntries(filename, cmd.getOptionValue(IMPORT));
         }
         PhonebookService phonebookService = new PhonebookService();
-        if (cmd.hasOption(ADD)) {
+        if (cmd.hasOption(SET_OPERATION)) {
+            return printSetOperation(cmd, phonebookService);
+        } else if (cmd.hasOption(DEDUPE)) {
+            return dedupe(cmd, filename, phonebookService);
+        } else if (cmd.hasOption(OUTPUT) && (cmd.hasOption(PRINT) || cmd.hasOption(UNIQUE))) {
+            return printToFile(cmd, filename, phonebookService);
+        } else if (cmd.hasOption(ADD)) {
             return phonebookService.addEntry(filename, cmd.getOptionValue(ADD));
         } else if (cmd.hasOption(REMOVE)) {
             return phonebookService.removeEntry(filename, cmd.getOptionValue(REMOVE));
+        } else if (cmd.hasOption(PRINT) && cmd.hasOption(MEMORY)) {
+            Long memoryBudget = getMemoryBudget(cmd);
+            return memoryBudget != null && phonebookService.printPhonebook(filename, memoryBudget);
         } else if (cmd.hasOption(PRINT)) {
             return phonebookService.printPhonebook(filename);
+        } else if (cmd.hasOption(UNIQUE) && cmd.hasOption(MEMORY)) {
+            Long memoryBudget = getMemoryBudget(cmd);
+            return memoryBudget != null && phonebookService.printUniqueName(DEFAULT_BOOK, filename, memoryBudget, System.out);
         } else if (cmd.hasOption(UNIQUE)) {
             return phonebookService.printUniqueName(filename);
+        } else if (cmd.hasOption(SEARCH)) {
+            return phonebookService.searchByPrefix(filename, cmd.getOptionValue(SEARCH), System.out);
+        } else if (cmd.hasOption(FUZZY)) {
+            Integer maxDistance = getMaxDistance(cmd);
+            return maxDistance != null && phonebookService.searchSimilar(filename, cmd.getOptionValue(FUZZY), maxDistance, System.out);
+        } else if (cmd.hasOption(NUMBER)) {
+            return phonebookService.searchByNumber(filename, cmd.getOptionValue(NUMBER), System.out);
+        } else if (cmd.hasOption(EXPORT_BINARY)) {
+            return phonebookService.convertPhonebook(filename, cmd.getOptionValue(EXPORT_BINARY), true);
+        } else if (cmd.hasOption(EXPORT_TEXT)) {
+            return phonebookService.convertPhonebook(filename, cmd.getOptionValue(EXPORT_TEXT), false);
+        }
+        return false;
+    }
+
+    private static boolean printToFile(CommandLine cmd, String filename, PhonebookService phonebookService) {
+        Long memoryBudget = cmd.hasOption(MEMORY) ? getMemoryBudget(cmd) : null;
+        if (cmd.hasOption(MEMORY) && memoryBudget == null) {
+            return false;
+        }
+        List<String> books = cmd.hasOption(PRINT) ? Collections.singletonList(filename) : Arrays.asList(DEFAULT_BOOK, filename);
+        return printToOutput(cmd.getOptionValue(OUTPUT), books, out -> {
+            if (cmd.hasOption(PRINT)) {
+                return memoryBudget != null
+                        ? phonebookService.printPhonebook(filename, memoryBudget, out)
+                        : phonebookService.printPhonebook(filename, out);
+            }
+            return memoryBudget != null
+                    ? phonebookService.printUniqueName(DEFAULT_BOOK, filename, memoryBudget, out)
+                    : phonebookService.printUniqueName(DEFAULT_BOOK, filename, out);
+        });
+    }
+
+    private static boolean printSetOperation(CommandLine cmd, PhonebookService phonebookService) {
+        SetOperation operation = SetOperation.parse(cmd.getOptionValue(SET_OPERATION));
+        if (operation == null) {
+            System.err.println("Please supply union, intersection, symdiff or exactly-<K> with option -x.");
+            return false;
+        }
+        if (!cmd.hasOption(BOOK)) {
+            System.err.println("Please supply the phonebooks with option -b <FILE> for every book.");
+            return false;
+        }
+        List<String> books = Arrays.asList(cmd.getOptionValues(BOOK));
+        if (cmd.hasOption(OUTPUT)) {
+            return printToOutput(cmd.getOptionValue(OUTPUT), books, out -> phonebookService.printSetOperation(books, operation, out));
+        }
+        try (PhonebookEntryWriter out = new PhonebookEntryWriter(System.out)) {
+            return phonebookService.printSetOperation(books, operation, out);
+        } catch (IOException e) {
+            System.err.println("Output failed. Reason: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Prints to a temporary file next to {@code output}, which replaces {@code output} only if the command succeeds, so
+     * {@code output} is never truncated before the phonebooks are read.
+     *
+     * @param output  The -o filename.
+     * @param books   The phonebooks read by the command, none of which may be {@code output}.
+     * @param command The command printing to the writer.
+     * @return the result of the command, or {@code false} if the output can't be written
+     */
+    private static boolean printToOutput(String output, List<String> books, OutputCommand command) {
+        Path outputPath = Paths.get(output);
+        for (String book : books) {
+            if (isSameFile(outputPath, Paths.get(book))) {
+                System.err.println("Please supply an output file with option -o which is not a phonebook of the command.");
+                return false;
+            }
+        }
+        try {
+            Path temp = AtomicFiles.createTempFile(outputPath);
+            try {
+                boolean result;
+                try (PhonebookEntryWriter out = PhonebookEntryWriter.toFile(temp)) {
+                    result = command.print(out);
+                }
+                if (result) {
+                    AtomicFiles.replace(temp, outputPath);
+                }
+                return result;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("Output failed. Reason: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isSameFile(Path output, Path book) {
+        try {
+            return Files.exists(output) && Files.exists(book)
+                    ? Files.isSameFile(output, book)
+                    : output.toAbsolutePath().normalize().equals(book.toAbsolutePath().normalize());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private interface OutputCommand {
+        boolean print(PhonebookEntryWriter out) throws IOException;
+    }
+
+    private static boolean dedupe(CommandLine cmd, String filename, PhonebookService phonebookService) {
+        ConflictPolicy policy = ConflictPolicy.parse(cmd.getOptionValue(DEDUPE));
+        if (policy == null) {
+            System.err.println("Please supply last-wins, first-wins or keep-all-numbers with option -w.");
+            return false;
+        }
+        Long memoryBudget = cmd.hasOption(MEMORY) ? getMemoryBudget(cmd) : Long.valueOf(ExternalSortPrinter.DEFAULT_MEMORY_BUDGET);
+        return memoryBudget != null && phonebookService.dedupePhonebook(filename, policy, memoryBudget, System.out);
+    }
+
+    private static Long getMemoryBudget(CommandLine cmd) {
+        try {
+            long megabytes = Long.parseLong(cmd.getOptionValue(MEMORY));
+            if (megabytes > 0) {
+                return megabytes * 1024 * 1024;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Please supply a positive number of megabytes with option -m <MB>.");
+        return null;
+    }
+
+    private static Integer getMaxDistance(CommandLine cmd) {
+        try {
+            int edits = Integer.parseInt(cmd.getOptionValue(EDITS, String.valueOf(DEFAULT_EDITS)));
+            if (edits >= 0) {
+                return edits;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("Please supply a non negative number of edits with option -k <EDITS>.");
+        return null;
+    }
+
+    private static boolean importEntries(String filename, String importFilename) {
+        try (BufferedReader reader = STDIN.equals(importFilename)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(importFilename))) {
+            return new PhonebookService().addEntries(filename, reader.lines()::iterator);
+        } catch (IOException e) {
+            System.err.println("Import failed. Reason: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean processPhonebookOnServer(CommandLine cmd, String filename) {
+        if (!(cmd.hasOption(ADD) || cmd.hasOption(REMOVE) || cmd.hasOption(PRINT) || cmd.hasOption(UNIQUE))
+                || cmd.hasOption(MEMORY) || cmd.hasOption(OUTPUT)) {
+            System.err.println("Only -a, -r, -p and -u without -m and -o can be sent to the phonebook server with -c.");
+            return false;
+        }
+        PhonebookClient client = new PhonebookClient(getPort(), getTokenFile());
+        try {
+            if (cmd.hasOption(ADD)) {
+                return client.addEntry(filename, cmd.getOptionValue(ADD));
+            } else if (cmd.hasOption(REMOVE)) {
+                return client.removeEntry(filename, cmd.getOptionValue(REMOVE));
+            } else if (cmd.hasOption(PRINT)) {
+                return client.printPhonebook(filename);
+            } else if (cmd.hasOption(UNIQUE)) {
+                return client.printUniqueName(DEFAULT_BOOK, filename);
+            }
+        } catch (IOException e) {
+            System.err.println("Phonebook server request failed. Reason: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private static boolean serve() {
+        try (PhonebookServer server = new PhonebookServer(getPort(), Paths.get(System.getProperty("pwc.root", ".")), getTokenFile())) {
+            server.start();
+            System.err.println("Phonebook server listening on port " + server.getPort() + ".");
+            server.awaitTermination();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Phonebook server failed. Reason: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
         return false;
     }
 
+    private static int getPort() {
+        return Integer.getInteger("pwc.port", PhonebookServer.DEFAULT_PORT);
+    }
+
+    private static Path getTokenFile() {
+        String tokenFile = System.getProperty("pwc.tokenFile");
+        return tokenFile == null ? PhonebookServer.defaultTokenFile() : Paths.get(tokenFile);
+    }
+
     public static Options getOptions() {
         Option addOption = Option.builder(ADD).argName("PhonebookEntry").hasArg().desc("PhonebookEntry(name=<NAME>, number=<NUMBER>)").build();
         Option removeOption = Option.builder(REMOVE).argName("Name").hasArg().desc("Name").build();
         Option listOption = Option.builder(PRINT).desc("Print phonebook in ascending order").build();
         Option findUniqueOption = Option.builder(UNIQUE).desc("Print the unique name from default phone book and given phonebook").build();
-        Option bookOption = Option.builder(BOOK).argName("FILE").hasArg().desc("Relative path of a file which contains the phone entries").build();
+        Option bookOption = Option.builder(BOOK).argName("FILE").hasArg().desc("Relative path of a file which contains the phone entries, or of a directory of shards, repeated for the books of -x").build();
         Option helpOption = Option.builder(HELP).desc("Print this help").build();
+        Option daemonOption = Option.builder(DAEMON).desc("Start the phonebook server on localhost port 7070 or -Dpwc.port").build();
+        Option importOption = Option.builder(IMPORT).argName("FILE").hasArg().desc("Import the PhonebookEntry lines of FILE, or - for stdin, with a single write").build();
+        Option memoryOption = Option.builder(MEMORY).argName("MB").hasArg().desc("Print, find unique names or dedupe with an external merge sort using about MB of memory").build();
+        Option exportBinaryOption = Option.builder(EXPORT_BINARY).argName("FILE").hasArg().desc("Write the phonebook to FILE in the binary format").build();
+        Option exportTextOption = Option.builder(EXPORT_TEXT).argName("FILE").hasArg().desc("Write the phonebook to FILE in the text format").build();
+        Option searchOption = Option.builder(SEARCH).argName("PREFIX").hasArg().desc("Print the entries whose name starts with PREFIX, case insensitive").build();
+        Option fuzzyOption = Option.builder(FUZZY).argName("NAME").hasArg().desc("Print the entries whose name is within -k edits of NAME, case insensitive").build();
+        Option editsOption = Option.builder(EDITS).argName("EDITS").hasArg().desc("Maximum number of edits of -f, default " + DEFAULT_EDITS).build();
+        Option numberOption = Option.builder(NUMBER).argName("NUMBER").hasArg().desc("Print the entries with NUMBER, ignoring everything but digits and a leading +").build();
+        Option outputOption = Option.builder(OUTPUT).argName("FILE").hasArg().desc("Write the entries or names of -p, -u and -x to FILE instead of stdout").build();
+        Option setOperationOption = Option.builder(SET_OPERATION).argName("OPERATION").hasArg().desc("Print the names in the union, intersection, symdiff or exactly-<K> of the books of every -b").build();
+        Option dedupeOption = Option.builder(DEDUPE).argName("POLICY").hasArg().desc("Rewrite the phonebook without duplicate names, keeping the entries of last-wins, first-wins or keep-all-numbers").build();
+        Option clientOption = Option.builder(CLIENT).desc("Send the -a, -r, -p or -u command to the running phonebook server").build();
         Options options = new Options();
         OptionGroup optionGroup = new OptionGroup();
         optionGroup.addOption(addOption);
@@ -65,9 +320,22 @@ public class PhonebookCli {
         optionGroup.addOption(listOption);
         optionGroup.addOption(findUniqueOption);
         optionGroup.addOption(helpOption);
+        optionGroup.addOption(daemonOption);
+        optionGroup.addOption(importOption);
+        optionGroup.addOption(exportBinaryOption);
+        optionGroup.addOption(exportTextOption);
+        optionGroup.addOption(searchOption);
+        optionGroup.addOption(fuzzyOption);
+        optionGroup.addOption(numberOption);
+        optionGroup.addOption(setOperationOption);
+        optionGroup.addOption(dedupeOption);
         optionGroup.setRequired(true);
         options.addOptionGroup(optionGroup);
         options.addOption(bookOption);
+        options.addOption(clientOption);
+        options.addOption(memoryOption);
+        options.addOption(editsOption);
+        options.addOption(outputOption);
         return options;
     }
 
@@ -0,0 +1,80 @@
+package com.example.pwc;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class sends commands to a {@link PhonebookServer} on the local host and prints their output.
+ */
+public class PhonebookClient {
+    private final int port;
+    private final Path tokenFile;
+
+    /**
+     * @param port      The port the {@link PhonebookServer} listens on.
+     * @param tokenFile The token file written by the {@link PhonebookServer}.
+     */
+    public PhonebookClient(int port, Path tokenFile) {
+        this.port = port;
+        this.tokenFile = tokenFile;
+    }
+
+    public boolean addEntry(String filename, String line) throws IOException {
+        return send(PhonebookServer.ADD, absolute(filename), line, System.out);
+    }
+
+    public boolean removeEntry(String filename, String name) throws IOException {
+        return send(PhonebookServer.REMOVE, absolute(filename), name, System.out);
+    }
+
+    public boolean printPhonebook(String filename) throws IOException {
+        return send(PhonebookServer.PRINT, absolute(filename), "", System.out);
+    }
+
+    public boolean printUniqueName(String defaultFilename, String filename) throws IOException {
+        return send(PhonebookServer.UNIQUE, absolute(defaultFilename), absolute(filename), System.out);
+    }
+
+    /**
+     * Sends one request and copies the output of the command to {@code out}.
+     *
+     * @param command  The command of the request.
+     * @param filename The phone book filename as seen by the server.
+     * @param argument The argument of the command.
+     * @param out      The stream the output of the command is printed to.
+     * @return the result of the command
+     * @throws IOException if the token file can't be read, the server can't be reached or the command failed
+     */
+    public boolean send(String command, String filename, String argument, PrintStream out) throws IOException {
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.US_ASCII).trim();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            writer.write(token + '\n' + command + '\n' + filename + '\n' + argument + '\n');
+            writer.flush();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                char type = line.charAt(0);
+                if (type == PhonebookServer.OUTPUT) {
+                    out.println(line.substring(1));
+                } else if (type == PhonebookServer.RESULT) {
+                    return Boolean.parseBoolean(line.substring(1));
+                } else if (type == PhonebookServer.ERROR) {
+                    throw new IOException(line.substring(1));
+                }
+            }
+            throw new IOException("Connection closed by the phonebook server.");
+        }
+    }
+
+    private static String absolute(String filename) {
+        return new File(filename).getAbsolutePath();
+    }
+}
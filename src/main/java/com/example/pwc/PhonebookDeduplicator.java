@@ -0,0 +1,128 @@
+package com.example.pwc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * This class rewrites a phone book file without duplicate names, without loading the whole book. The entries are
+ * sorted by an {@link ExternalSorter} with {@link PhonebookEntry#compareTo}, like {@link ExternalSortPrinter}, so the
+ * entries with the same name come out next to each other in file order and only the entries of one name are held at a
+ * time. The {@link ConflictPolicy} picks the entries kept of every name.
+ * <p>
+ * The file is replaced atomically by {@link AtomicFiles#writeLines(Path, Iterable)} while the sorted entries are
+ * merged, and comes out in the order of {@link Phonebook#printPhonebook()}. Lines which are not valid entries are
+ * dropped, and a {@link CompressedPhonebook} stays compressed. A book in the {@link BinaryPhonebook} format is merged
+ * in memory by a {@link Phonebook} with the policy instead, and stays binary.
+ */
+public class PhonebookDeduplicator {
+    private final ConflictPolicy policy;
+    private final ExternalSorter<PhonebookEntry> sorter;
+
+    /**
+     * @param policy       Which entries are kept when names are duplicate.
+     * @param memoryBudget The approximate number of bytes of entries held in memory at once.
+     */
+    public PhonebookDeduplicator(ConflictPolicy policy, long memoryBudget) {
+        this(policy, memoryBudget, null);
+    }
+
+    /**
+     * @param policy        Which entries are kept when names are duplicate.
+     * @param memoryBudget  The approximate number of bytes of entries held in memory at once.
+     * @param tempDirectory The directory of the spilled runs, or {@code null} for the default temporary directory.
+     */
+    public PhonebookDeduplicator(ConflictPolicy policy, long memoryBudget, Path tempDirectory) {
+        this.policy = policy;
+        this.sorter = new ExternalSorter<>(PhonebookEntry::compareTo, PhonebookEntry::toString,
+                PhonebookEntryParser::parse, ExternalSortPrinter::estimateSize, memoryBudget, tempDirectory);
+    }
+
+    /**
+     * Rewrite {@code book} without duplicate names. A book which does not exist is left alone.
+     *
+     * @param book The phone book file.
+     * @return the number of duplicate entries dropped
+     * @throws IOException if the book can't be read or written, or the runs can't be spilled
+     */
+    public long dedupe(Path book) throws IOException {
+        if (!Files.exists(book)) {
+            return 0;
+        }
+        if (BinaryPhonebook.isBinary(book)) {
+            int before = BinaryPhonebook.open(book).size();
+            Phonebook phonebook = Phonebook.builder(book.toString()).conflictPolicy(policy).build();
+            long dropped = before - phonebook.getPhonebookEntryList().size();
+            if (dropped > 0) {
+                phonebook.writePhonebook(book.toString(), true);
+            }
+            return dropped;
+        }
+        boolean compressed = CompressedPhonebook.isCompressed(book);
+        ExternalSorter.Sorted<PhonebookEntry> sorted;
+        try (Stream<String> lines = CompressedPhonebook.lines(book)) {
+            sorted = sorter.sort(lines.map(PhonebookEntryParser::parse).filter(Objects::nonNull).iterator());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        try (ExternalSorter.Sorted<PhonebookEntry> entries = sorted) {
+            Deduplicated lines = new Deduplicated(entries);
+            AtomicFiles.writeLines(book, () -> lines, compressed);
+            return lines.dropped;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The lines of the entries kept of every name, taken from entries sorted by name.
+     */
+    private final class Deduplicated implements Iterator<CharSequence> {
+        private final Iterator<PhonebookEntry> sorted;
+        private final List<PhonebookEntry> sameName = new ArrayList<>();
+        private final Deque<PhonebookEntry> kept = new ArrayDeque<>();
+        private PhonebookEntry nextName;
+        private long dropped;
+
+        private Deduplicated(Iterator<PhonebookEntry> sorted) {
+            this.sorted = sorted;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (kept.isEmpty() && (nextName != null || sorted.hasNext())) {
+                resolveNextName();
+            }
+            return !kept.isEmpty();
+        }
+
+        @Override
+        public CharSequence next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return kept.poll().toString();
+        }
+
+        private void resolveNextName() {
+            PhonebookEntry first = nextName != null ? nextName : sorted.next();
+            nextName = null;
+            sameName.clear();
+            sameName.add(first);
+            while (sorted.hasNext()) {
+                PhonebookEntry entry = sorted.next();
+                if (entry.compareTo(first) != 0) {
+                    nextName = entry;
+                    break;
+                }
+                sameName.add(entry);
+            }
+            List<PhonebookEntry> resolved = policy.resolve(sameName);
+            dropped += sameName.size() - resolved.size();
+            kept.addAll(resolved);
+        }
+    }
+}
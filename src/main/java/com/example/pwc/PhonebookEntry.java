@@ -24,4 +24,19 @@ public class PhonebookEntry implements Comparable<PhonebookEntry> {
     public int compareTo(PhonebookEntry o) {
         return this.name.compareToIgnoreCase(o.name);
     }
+
+    /**
+     * Folds the case of {@code name} the same way {@link String#compareToIgnoreCase(String)} does, so two names fold
+     * to the same key if and only if they compare equal with {@link PhonebookEntry#compareTo(PhonebookEntry)}.
+     *
+     * @param name The name to be folded.
+     * @return the case folded {@code name}
+     */
+    public static String foldName(String name) {
+        char[] folded = new char[name.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return new String(folded);
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.pwc;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class parses the string representation of {@link PhonebookEntry}, eg {@code PhonebookEntry(name=John Citizen,
+ * number=0414557988)}. The grammar is the regular expression {@link PhonebookEntryParser#PATTERN}, which is kept as the
+ * reference implementation in {@link PhonebookEntryParser#parseWithRegex(String)}.
+ * <p>
+ * {@link PhonebookEntryParser#parse(String)} accepts exactly the same lines in a single pass over the characters. As the
+ * name can't contain a comma and the number may contain a closing bracket, the name always ends at the first comma and
+ * the number always ends right before the last character, so no backtracking is needed.
+ */
+public final class PhonebookEntryParser {
+    /**
+     * The reference grammar of a {@link PhonebookEntry} line.
+     */
+    public static final Pattern PATTERN = Pattern.compile("PhonebookEntry\\(name=([a-zA-Z][a-zA-Z'\\-.\\s]+), number=(([\\d+()\\s\\-*#]+)|(null))\\)");
+    private static final String PREFIX = "PhonebookEntry(name=";
+    private static final String SEPARATOR = ", number=";
+    private static final String NULL_NUMBER = "null";
+
+    private PhonebookEntryParser() {
+    }
+
+    /**
+     * @param line String representation of {@link PhonebookEntry}. eg PhonebookEntry(name=John Citizen,
+     *             number=0414557988)
+     * @return {@link PhonebookEntry} if the {@code line} matches {@link PhonebookEntryParser#PATTERN}, {@code null}
+     * otherwise
+     */
+    public static PhonebookEntry parse(String line) {
+        if (line == null || !line.startsWith(PREFIX)) {
+            return null;
+        }
+        int length = line.length();
+        int nameStart = PREFIX.length();
+        if (nameStart >= length || !isLetter(line.charAt(nameStart))) {
+            return null;
+        }
+        int nameEnd = nameStart + 1;
+        while (nameEnd < length && isNameChar(line.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (nameEnd - nameStart < 2 || !line.startsWith(SEPARATOR, nameEnd)) {
+            return null;
+        }
+        int numberStart = nameEnd + SEPARATOR.length();
+        int numberEnd = length - 1;
+        if (numberEnd <= numberStart || line.charAt(numberEnd) != ')') {
+            return null;
+        }
+        String number;
+        if (numberEnd - numberStart == NULL_NUMBER.length() && line.startsWith(NULL_NUMBER, numberStart)) {
+            number = NULL_NUMBER;
+        } else {
+            for (int i = numberStart; i < numberEnd; i++) {
+                if (!isNumberChar(line.charAt(i))) {
+                    return null;
+                }
+            }
+            number = line.substring(numberStart, numberEnd);
+        }
+        return PhonebookEntry.builder().name(line.substring(nameStart, nameEnd)).number(number).build();
+    }
+
+    /**
+     * The reference implementation of {@link PhonebookEntryParser#parse(String)}.
+     *
+     * @param line String representation of {@link PhonebookEntry}. eg PhonebookEntry(name=John Citizen,
+     *             number=0414557988)
+     * @return {@link PhonebookEntry} if the {@code line} matches {@link PhonebookEntryParser#PATTERN}, {@code null}
+     * otherwise
+     */
+    public static PhonebookEntry parseWithRegex(String line) {
+        if (line == null) {
+            return null;
+        }
+        Matcher matcher = PATTERN.matcher(line);
+        if (matcher.matches()) {
+            return PhonebookEntry.builder().name(matcher.group(1)).number(matcher.group(2)).build();
+        }
+        return null;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isNameChar(char c) {
+        return isLetter(c) || c == '\'' || c == '-' || c == '.' || isWhitespace(c);
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '+' || c == '(' || c == ')' || c == '-' || c == '*' || c == '#'
+                || isWhitespace(c);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.pwc;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * This class writes {@link PhonebookEntry} lines in bulk. Entries are encoded straight into one reusable byte buffer,
+ * without building their {@link PhonebookEntry#toString()}, and the buffer is handed to the sink only when it is full
+ * or flushed. The output is the same as {@link PrintStream#println(Object)} of every entry.
+ * <p>
+ * The sink is either an {@link OutputStream}, eg {@link System#out}, or a {@link WritableByteChannel}, eg the {@link
+ * FileChannel} of {@link PhonebookEntryWriter#toFile(Path)}. Characters below {@code 0x80} are copied as they are if
+ * the charset is ASCII compatible, everything else goes through a {@link CharsetEncoder}.
+ */
+public class PhonebookEntryWriter implements Flushable, Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    private static final String ENTRY_PREFIX = "PhonebookEntry(name=";
+    private static final String NUMBER_PREFIX = ", number=";
+    private static final String ENTRY_SUFFIX = ")";
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final boolean owned;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    private final String lineSeparator = System.lineSeparator();
+
+    /**
+     * A writer to {@code out} in the default charset, like {@link PrintStream}. Closing the writer only flushes {@code
+     * out}.
+     *
+     * @param out The stream the lines are written to.
+     */
+    public PhonebookEntryWriter(OutputStream out) {
+        this(out, null, false, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * A writer to {@code channel} in the default charset. Closing the writer only flushes to {@code channel}.
+     *
+     * @param channel The channel the lines are written to.
+     */
+    public PhonebookEntryWriter(WritableByteChannel channel) {
+        this(null, channel, false, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel    The channel the lines are written to.
+     * @param charset    The charset of the lines.
+     * @param bufferSize The size of the reusable byte buffer.
+     * @param owned      {@code true} to close {@code channel} when the writer is closed
+     */
+    public PhonebookEntryWriter(WritableByteChannel channel, Charset charset, int bufferSize, boolean owned) {
+        this(null, channel, owned, charset, bufferSize);
+    }
+
+    private PhonebookEntryWriter(OutputStream out, WritableByteChannel channel, boolean owned, Charset charset, int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("bufferSize must be at least 16 bytes.");
+        }
+        this.out = out;
+        this.channel = channel;
+        this.owned = owned;
+        this.buffer = out != null ? ByteBuffer.allocate(bufferSize) : ByteBuffer.allocateDirect(bufferSize);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.asciiCompatible = isAsciiCompatible(charset);
+    }
+
+    /**
+     * A writer which replaces the content of {@code path} in the default charset and closes the file when it is
+     * closed.
+     *
+     * @param path The file the lines are written to.
+     * @return the writer
+     * @throws IOException if the file can't be opened
+     */
+    public static PhonebookEntryWriter toFile(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new PhonebookEntryWriter(channel, Charset.defaultCharset(), DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * Write {@code entry} as {@link PhonebookEntry#toString()} followed by the line separator.
+     *
+     * @param entry The entry to be written.
+     * @throws IOException if the buffer can't be written to the sink
+     */
+    public void writeEntry(PhonebookEntry entry) throws IOException {
+        write(ENTRY_PREFIX);
+        write(entry.getName());
+        write(NUMBER_PREFIX);
+        write(String.valueOf(entry.getNumber()));
+        write(ENTRY_SUFFIX);
+        write(lineSeparator);
+    }
+
+    /**
+     * Write {@code line} followed by the line separator.
+     *
+     * @param line The line to be written.
+     * @throws IOException if the buffer can't be written to the sink
+     */
+    public void writeLine(CharSequence line) throws IOException {
+        write(line);
+        write(lineSeparator);
+    }
+
+    /**
+     * @return a consumer which writes every line with {@link PhonebookEntryWriter#writeLine(CharSequence)} and throws
+     * its {@link IOException} as {@link UncheckedIOException}
+     */
+    public Consumer<CharSequence> lines() {
+        return line -> {
+            try {
+                writeLine(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Write the buffered bytes to the sink and flush it.
+     *
+     * @throws IOException if the buffer can't be written to the sink
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Flush the writer, and close the sink if the writer owns it.
+     *
+     * @throws IOException if the buffer can't be written to the sink or the sink can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (owned) {
+                channel.close();
+            }
+        }
+    }
+
+    private void write(CharSequence chars) throws IOException {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c >= 0x80 || !asciiCompatible) {
+                encode(CharBuffer.wrap(chars, i, length));
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    /**
+     * The encoder is never reset, so a stateful charset like UTF-16 writes its byte order mark once, like {@link
+     * PrintStream}. A dangling high surrogate at the end of {@code chars} is written as the replacement.
+     */
+    private void encode(CharBuffer chars) throws IOException {
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, false)).isOverflow()) {
+            drain();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        if (chars.hasRemaining()) {
+            byte[] replacement = encoder.replacement();
+            if (buffer.remaining() < replacement.length) {
+                drain();
+            }
+            buffer.put(replacement);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (out != null) {
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        StringBuilder chars = new StringBuilder(0x80);
+        byte[] ascii = new byte[0x80];
+        for (int i = 0; i < ascii.length; i++) {
+            chars.append((char) i);
+            ascii[i] = (byte) i;
+        }
+        return Arrays.equals(ascii, chars.toString().getBytes(charset));
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.pwc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * This class is an append-only log of the mutations made to a {@link Phonebook} since its last snapshot. Every add is
+ * appended as {@code +PhonebookEntry(name=..., number=...)} and every remove as {@code -<name>}, so a mutation costs a
+ * single small write instead of a rewrite of the whole phone book.
+ * <p>
+ * Records are forced to disk in batches of {@code syncBatchSize}. Once the journal holds {@code compactionThreshold}
+ * records, it is rotated and a background thread folds it back into the snapshot file. The files next to the snapshot
+ * {@code <filename>} are:
+ * <li>
+ *     <ul>{@code <filename>.journal} the live journal</ul>
+ *     <ul>{@code <filename>.journal.old} the journal being compacted</ul>
+ *     <ul>{@code <filename>.journal.old.<N>} the journals rotated while an earlier compaction had failed</ul>
+ *     <ul>{@code <filename>.snapshot} the snapshot being written by the compaction</ul>
+ * </li>
+ * Deleting {@code <filename>.journal.old} is the commit point of a compaction, so an interrupted compaction is
+ * resolved by {@link PhonebookJournal#recover()} without losing or replaying a record twice. A failed compaction is
+ * reported on {@link System#err} and leaves its journal in place, so the next compaction folds it together with the
+ * journals rotated after it. It never fails the mutation which triggered it.
+ */
+public class PhonebookJournal implements Closeable {
+    public static final int DEFAULT_SYNC_BATCH_SIZE = 64;
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String COMPACTING_SUFFIX = ".journal.old";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "phonebook-journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final Path tempSnapshotPath;
+    private final int syncBatchSize;
+    private final int compactionThreshold;
+    private FileChannel channel;
+    private int unsyncedRecords;
+    private int journalRecords;
+    private Future<?> compaction;
+    private CompletableFuture<Void> synced;
+
+    /**
+     * Creates a journal for the snapshot {@code filename} with the default batch size and compaction threshold.
+     *
+     * @param filename The filename of the phone book snapshot.
+     */
+    public PhonebookJournal(String filename) {
+        this(filename, DEFAULT_SYNC_BATCH_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Creates a journal for the snapshot {@code filename} and recovers from any interrupted compaction.
+     *
+     * @param filename            The filename of the phone book snapshot.
+     * @param syncBatchSize       Number of records appended between two {@link FileChannel#force(boolean)} calls.
+     * @param compactionThreshold Number of journal records which triggers a background compaction.
+     */
+    public PhonebookJournal(String filename, int syncBatchSize, int compactionThreshold) {
+        if (syncBatchSize < 1 || compactionThreshold < 1) {
+            throw new IllegalArgumentException("syncBatchSize and compactionThreshold must be positive.");
+        }
+        this.snapshotPath = Paths.get(filename);
+        this.journalPath = Paths.get(filename + JOURNAL_SUFFIX);
+        this.compactingPath = Paths.get(filename + COMPACTING_SUFFIX);
+        this.tempSnapshotPath = Paths.get(filename + SNAPSHOT_SUFFIX);
+        this.syncBatchSize = syncBatchSize;
+        this.compactionThreshold = compactionThreshold;
+        recover();
+    }
+
+    /**
+     * Finishes or rolls back a compaction which was interrupted before it completed. If the old journal still exists,
+     * the new snapshot was never committed and is discarded. Otherwise a leftover new snapshot is moved in place.
+     *
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    public void recover() {
+        try {
+            if (Files.exists(tempSnapshotPath)) {
+                if (Files.exists(compactingPath)) {
+                    Files.delete(tempSnapshotPath);
+                } else {
+                    AtomicFiles.move(tempSnapshotPath, snapshotPath);
+                }
+            }
+            if (!Files.exists(compactingPath)) {
+                deleteRotatedJournals();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Journal recovery failed. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the journal records on top of the snapshot already loaded into {@code phonebook}. Records which cannot
+     * be parsed are skipped, as they are when loading the snapshot. Added entries are upserted as the {@link
+     * ConflictPolicy} of {@code phonebook} says, like they were when they were recorded.
+     *
+     * @param phonebook The phone book to apply the records to.
+     */
+    public void replay(Phonebook phonebook) {
+        int records = 0;
+        for (Path path : getJournalFiles()) {
+            records += replay(path, phonebook);
+        }
+        journalRecords = records;
+    }
+
+    private int replay(Path path, Phonebook phonebook) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int[] records = {0};
+        try (Stream<String> lines = Files.lines(path)) {
+            lines.filter(line -> !line.isEmpty()).forEach(line -> {
+                records[0]++;
+                if (line.charAt(0) == ADD) {
+                    PhonebookEntry entry = phonebook.createEntry(line.substring(1));
+                    if (entry != null) {
+                        phonebook.replayAdd(entry);
+                    }
+                } else if (line.charAt(0) == REMOVE) {
+                    phonebook.applyRemove(line.substring(1));
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Error with reading journal. " + e.getMessage());
+        }
+        return records[0];
+    }
+
+    /**
+     * Appends an add record for {@code entry}.
+     *
+     * @param entry The entry which was added to the phone book.
+     */
+    public void appendAdd(PhonebookEntry entry) {
+        append(ADD + entry.toString());
+    }
+
+    /**
+     * Appends a remove record for {@code name}.
+     *
+     * @param name The name of the entry which was removed from the phone book.
+     */
+    public void appendRemove(String name) {
+        append(REMOVE + name);
+    }
+
+    private void append(String record) {
+        ByteBuffer buffer = ByteBuffer.wrap((record + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        try {
+            FileChannel journal = channel();
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journalRecords++;
+            if (++unsyncedRecords >= syncBatchSize) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Journal append failed.");
+        }
+    }
+
+    /**
+     * @return a future which completes once the records appended so far are forced to disk, by the next batch, {@link
+     * PhonebookJournal#sync()} or {@link PhonebookJournal#close()}, or a completed future if they already are
+     */
+    public CompletableFuture<Void> whenSynced() {
+        if (channel == null || unsyncedRecords == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (synced == null) {
+            synced = new CompletableFuture<>();
+        }
+        return synced;
+    }
+
+    /**
+     * Forces the records appended since the last sync to disk.
+     *
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    public void sync() {
+        if (channel == null || unsyncedRecords == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedRecords = 0;
+            completeSynced(null);
+        } catch (IOException e) {
+            RuntimeException failure = new RuntimeException("Journal sync failed.");
+            completeSynced(failure);
+            throw failure;
+        }
+    }
+
+    private void completeSynced(RuntimeException failure) {
+        if (synced == null) {
+            return;
+        }
+        if (failure == null) {
+            synced.complete(null);
+        } else {
+            synced.completeExceptionally(failure);
+        }
+        synced = null;
+    }
+
+    /**
+     * @return {@code true} if the journal has reached the compaction threshold and no compaction is running
+     */
+    public boolean needsCompaction() {
+        return journalRecords >= compactionThreshold && !isCompacting();
+    }
+
+    /**
+     * @return {@code true} if a background compaction has been started and has not finished yet
+     */
+    public boolean isCompacting() {
+        return compaction != null && !compaction.isDone();
+    }
+
+    /**
+     * Rotates the live journal and folds it into the snapshot file on the background compactor thread. The given
+     * {@code entries} must be the full content of the phone book at the time of the call and must not be modified
+     * afterwards. If the journal of an earlier compaction is still there because that compaction failed, the live
+     * journal is rotated next to it and both are folded.
+     *
+     * @param entries The entries of the phone book which the new snapshot will contain.
+     * @throws RuntimeException if the live journal can't be rotated, in which case it is still appended to
+     */
+    public void compact(List<PhonebookEntry> entries) {
+        finishCompaction();
+        try {
+            closeChannel();
+            if (Files.exists(journalPath)) {
+                Files.move(journalPath, rotatedJournalPath());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Journal rotation failed. " + e.getMessage());
+        }
+        journalRecords = 0;
+        compaction = COMPACTOR.submit(() -> writeSnapshot(entries));
+    }
+
+    private Path rotatedJournalPath() {
+        Path path = compactingPath;
+        for (int segment = 1; Files.exists(path); segment++) {
+            path = Paths.get(compactingPath + "." + segment);
+        }
+        return path;
+    }
+
+    private List<Path> rotatedJournals() {
+        List<Path> paths = new ArrayList<>();
+        for (int segment = 1; ; segment++) {
+            Path path = Paths.get(compactingPath + "." + segment);
+            if (!Files.exists(path)) {
+                return paths;
+            }
+            paths.add(path);
+        }
+    }
+
+    /**
+     * Deletes the journals rotated after {@code <filename>.journal.old}, which are folded into the snapshot once it has
+     * been deleted.
+     */
+    private void deleteRotatedJournals() throws IOException {
+        for (Path path : rotatedJournals()) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Writes the snapshot in the text format, compressed with gzip if the book is, see {@link CompressedPhonebook}.
+     */
+    private void writeSnapshot(List<PhonebookEntry> entries) {
+        try {
+            boolean compressed = Files.exists(snapshotPath) ? CompressedPhonebook.isCompressed(snapshotPath)
+                    : CompressedPhonebook.hasExtension(snapshotPath.toString());
+            AtomicFiles.writeLines(tempSnapshotPath, () -> entries.stream().map(entry -> (CharSequence) entry.toString()).iterator(), compressed);
+            AtomicFiles.copyAttributes(snapshotPath, tempSnapshotPath);
+            Files.deleteIfExists(compactingPath);
+            AtomicFiles.move(tempSnapshotPath, snapshotPath);
+            deleteRotatedJournals();
+        } catch (IOException e) {
+            throw new RuntimeException("Journal compaction failed. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for a running background compaction to finish and reports its failure, which the next compaction retries.
+     */
+    private void finishCompaction() {
+        try {
+            awaitCompaction();
+        } catch (RuntimeException e) {
+            System.err.println("Journal compaction will be retried. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits for a running background compaction to finish.
+     *
+     * @throws RuntimeException if the compaction failed
+     */
+    public void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for journal compaction.");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage());
+        } finally {
+            compaction = null;
+        }
+    }
+
+    /**
+     * Waits for a running compaction, forces the pending records to disk and releases the journal file. A failed
+     * compaction is only reported, as its records are still in the journal files.
+     */
+    @Override
+    public void close() {
+        finishCompaction();
+        sync();
+        closeChannel();
+    }
+
+    /**
+     * @return the paths of the journal files which currently exist next to the snapshot, in the order of their records
+     */
+    public List<Path> getJournalFiles() {
+        List<Path> files = new ArrayList<>();
+        if (Files.exists(compactingPath)) {
+            files.add(compactingPath);
+            files.addAll(rotatedJournals());
+        }
+        if (Files.exists(journalPath)) {
+            files.add(journalPath);
+        }
+        return files;
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            completeSynced(null);
+            channel.close();
+        } catch (IOException e) {
+            RuntimeException failure = new RuntimeException("Journal close failed.");
+            completeSynced(failure);
+            throw failure;
+        } finally {
+            channel = null;
+            unsyncedRecords = 0;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.pwc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the process wide latency histograms, counters and gauges of the phone book operations. It is
+ * disabled by default, then {@link PhonebookMetrics#start()} returns without reading the clock and every other record
+ * returns after one volatile read, so the instrumented code pays next to nothing.
+ * <p>
+ * The metrics are read as a {@link Snapshot}, which {@link MetricsReporter}s publish. {@link
+ * PhonebookMetrics#fromSystemProperties()} enables the metrics and starts reporting when {@code -Dpwc.metrics} names
+ * the reporters, a comma separated list of
+ * <li>
+ *     <ul>{@code log}: {@link LogMetricsReporter}, alerting on {@code -Dpwc.metrics.slowPersistMillis} and {@code
+ *     -Dpwc.metrics.rejectSpike}</ul>
+ *     <ul>{@code json:<FILE>}: {@link JsonMetricsReporter}</ul>
+ *     <ul>{@code jmx}: {@link JmxMetricsReporter}</ul>
+ * </li>
+ * reported every {@code -Dpwc.metrics.periodSeconds}, 60 by default, and once more when the reporting is closed.
+ */
+public final class PhonebookMetrics {
+    /**
+     * The timed operations.
+     */
+    public enum Operation {
+        PARSE, LOAD, RELOAD, PERSIST
+    }
+
+    /**
+     * The counters, which only grow.
+     */
+    public enum Counter {
+        PARSED_LINES, REJECTED_LINES, PERSISTED_ENTRIES
+    }
+
+    /**
+     * The gauges, which hold the value of the last phone book loaded or persisted.
+     */
+    public enum Gauge {
+        ENTRIES
+    }
+
+    public static final String PROPERTY = "pwc.metrics";
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+    private static final Map<Operation, LatencyHistogram> LATENCIES = new EnumMap<>(Operation.class);
+    private static final Map<Counter, LongAdder> COUNTERS = new EnumMap<>(Counter.class);
+    private static final Map<Gauge, AtomicLong> GAUGES = new EnumMap<>(Gauge.class);
+    private static volatile boolean enabled;
+
+    static {
+        for (Operation operation : Operation.values()) {
+            LATENCIES.put(operation, new LatencyHistogram());
+        }
+        for (Counter counter : Counter.values()) {
+            COUNTERS.put(counter, new LongAdder());
+        }
+        for (Gauge gauge : Gauge.values()) {
+            GAUGES.put(gauge, new AtomicLong());
+        }
+    }
+
+    private PhonebookMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        PhonebookMetrics.enabled = enabled;
+    }
+
+    /**
+     * @return the start time to be passed to {@link PhonebookMetrics#stop(Operation, long)}
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Record the latency of {@code operation} since {@code start}, unless the metrics were disabled at the start.
+     *
+     * @param operation The timed operation.
+     * @param start     The result of {@link PhonebookMetrics#start()}.
+     */
+    public static void stop(Operation operation, long start) {
+        if (start != NOT_STARTED) {
+            LATENCIES.get(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    public static void increment(Counter counter) {
+        if (enabled) {
+            COUNTERS.get(counter).increment();
+        }
+    }
+
+    public static void add(Counter counter, long amount) {
+        if (enabled) {
+            COUNTERS.get(counter).add(amount);
+        }
+    }
+
+    public static void set(Gauge gauge, long value) {
+        if (enabled) {
+            GAUGES.get(gauge).set(value);
+        }
+    }
+
+    /**
+     * @return a copy of the current metrics
+     */
+    public static Snapshot snapshot() {
+        Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+        LATENCIES.forEach((operation, histogram) -> latencies.put(operation, histogram.copy()));
+        Map<Counter, Long> counters = new EnumMap<>(Counter.class);
+        COUNTERS.forEach((counter, adder) -> counters.put(counter, adder.sum()));
+        Map<Gauge, Long> gauges = new EnumMap<>(Gauge.class);
+        GAUGES.forEach((gauge, value) -> gauges.put(gauge, value.get()));
+        return new Snapshot(System.currentTimeMillis(), latencies, counters, gauges);
+    }
+
+    /**
+     * Forget all the recorded metrics.
+     */
+    public static void reset() {
+        LATENCIES.values().forEach(LatencyHistogram::reset);
+        COUNTERS.values().forEach(LongAdder::reset);
+        GAUGES.values().forEach(value -> value.set(0));
+    }
+
+    /**
+     * Enable the metrics and pass a {@link Snapshot} to {@code reporter} every {@code period} on a daemon thread.
+     *
+     * @param reporter The reporter of the metrics.
+     * @param period   The time between two reports.
+     * @param unit     The unit of {@code period}.
+     * @return the reporting, which reports once more and closes {@code reporter} when it is closed
+     */
+    public static Closeable startReporting(MetricsReporter reporter, long period, TimeUnit unit) {
+        setEnabled(true);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "phonebook-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> report(reporter), period, period, unit);
+        return () -> {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(period, unit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                reporter.report(snapshot());
+            } finally {
+                reporter.close();
+            }
+        };
+    }
+
+    /**
+     * Start reporting to the reporters named by {@code -Dpwc.metrics}, see {@link PhonebookMetrics}.
+     *
+     * @return the reporting, or a no-op if the property is not set
+     * @throws RuntimeException if a reporter is unknown or can't be created
+     */
+    public static Closeable fromSystemProperties() {
+        String names = System.getProperty(PROPERTY);
+        if (names == null || names.trim().isEmpty()) {
+            return () -> {
+            };
+        }
+        List<MetricsReporter> reporters = new ArrayList<>();
+        for (String name : names.split(",")) {
+            reporters.add(reporter(name.trim()));
+        }
+        MetricsReporter reporter = reporters.size() == 1 ? reporters.get(0) : new CompositeReporter(reporters);
+        return startReporting(reporter, Long.getLong(PROPERTY + ".periodSeconds", 60), TimeUnit.SECONDS);
+    }
+
+    private static MetricsReporter reporter(String name) {
+        if (name.equals("log")) {
+            return new LogMetricsReporter(
+                    TimeUnit.MILLISECONDS.toNanos(Long.getLong(PROPERTY + ".slowPersistMillis", 1000)),
+                    Long.getLong(PROPERTY + ".rejectSpike", 100));
+        } else if (name.startsWith("json:")) {
+            return new JsonMetricsReporter(Paths.get(name.substring("json:".length())));
+        } else if (name.equals("jmx")) {
+            return new JmxMetricsReporter();
+        }
+        System.err.println("Unknown metrics reporter " + name + ". Please use log, json:<FILE> or jmx.");
+        throw new RuntimeException("Unknown metrics reporter " + name + ".");
+    }
+
+    private static void report(MetricsReporter reporter) {
+        try {
+            reporter.report(snapshot());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Metrics report failed. Reason: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The metrics at one point in time.
+     */
+    public static final class Snapshot {
+        private final long timestamp;
+        private final Map<Operation, LatencyHistogram> latencies;
+        private final Map<Counter, Long> counters;
+        private final Map<Gauge, Long> gauges;
+
+        private Snapshot(long timestamp, Map<Operation, LatencyHistogram> latencies, Map<Counter, Long> counters,
+                         Map<Gauge, Long> gauges) {
+            this.timestamp = timestamp;
+            this.latencies = Collections.unmodifiableMap(latencies);
+            this.counters = Collections.unmodifiableMap(counters);
+            this.gauges = Collections.unmodifiableMap(gauges);
+        }
+
+        /**
+         * @return the time the snapshot was taken, in milliseconds since the epoch
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public LatencyHistogram latency(Operation operation) {
+            return latencies.get(operation);
+        }
+
+        public long count(Counter counter) {
+            return counters.get(counter);
+        }
+
+        public long value(Gauge gauge) {
+            return gauges.get(gauge);
+        }
+
+        /**
+         * @param earlier A snapshot taken earlier.
+         * @return the latencies and counts recorded since {@code earlier}, with the gauges of this snapshot
+         */
+        public Snapshot since(Snapshot earlier) {
+            Map<Operation, LatencyHistogram> intervalLatencies = new EnumMap<>(Operation.class);
+            latencies.forEach((operation, histogram) -> intervalLatencies.put(operation, histogram.minus(earlier.latency(operation))));
+            Map<Counter, Long> intervalCounters = new EnumMap<>(Counter.class);
+            counters.forEach((counter, count) -> intervalCounters.put(counter, Math.max(0, count - earlier.count(counter))));
+            return new Snapshot(timestamp, intervalLatencies, intervalCounters, gauges);
+        }
+    }
+
+    private static final class CompositeReporter implements MetricsReporter {
+        private final List<MetricsReporter> reporters;
+
+        private CompositeReporter(List<MetricsReporter> reporters) {
+            this.reporters = reporters;
+        }
+
+        @Override
+        public void report(Snapshot snapshot) throws IOException {
+            for (MetricsReporter reporter : reporters) {
+                reporter.report(snapshot);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (MetricsReporter reporter : reporters) {
+                reporter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.pwc;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link PhonebookMetrics}, registered by {@link JmxMetricsReporter}. Every attribute is read live.
+ */
+public interface PhonebookMetricsMXBean {
+    /**
+     * @return the latency statistics in nanoseconds by {@code <OPERATION>.<STATISTIC>}, eg {@code PERSIST.p99}
+     */
+    Map<String, Long> getLatencies();
+
+    /**
+     * @return the counters and gauges by name
+     */
+    Map<String, Long> getCounters();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Forget all the recorded metrics.
+     */
+    void reset();
+}
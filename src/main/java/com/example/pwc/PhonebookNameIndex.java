@@ -0,0 +1,63 @@
+package com.example.pwc;
+
+import java.util.*;
+
+/**
+ * This class indexes {@link PhonebookEntry} by their case folded name (see {@link PhonebookEntry#foldName(String)}).
+ * Entries sharing a name are kept in insertion order, so {@link PhonebookNameIndex#removeFirst(String)} removes the
+ * same entry a front-to-back scan with {@link String#compareToIgnoreCase(String)} would find.
+ */
+public class PhonebookNameIndex {
+    private final Map<String, Deque<PhonebookEntry>> entriesByName = new HashMap<>();
+
+    /**
+     * Rebuilds this index from {@code entries}.
+     *
+     * @param entries The entries in phone book order.
+     */
+    public void rebuild(Collection<PhonebookEntry> entries) {
+        entriesByName.clear();
+        entries.forEach(this::add);
+    }
+
+    /**
+     * @param entry The entry to be indexed after all the entries already indexed under the same name.
+     */
+    public void add(PhonebookEntry entry) {
+        entriesByName.computeIfAbsent(PhonebookEntry.foldName(entry.getName()), n -> new ArrayDeque<>(1)).addLast(entry);
+    }
+
+    /**
+     * @param name Name of the entry, case insensitive.
+     * @return the first indexed entry with the given {@code name}, or {@code null} if there is none
+     */
+    public PhonebookEntry removeFirst(String name) {
+        String key = PhonebookEntry.foldName(name);
+        Deque<PhonebookEntry> entries = entriesByName.get(key);
+        if (entries == null) {
+            return null;
+        }
+        PhonebookEntry entry = entries.pollFirst();
+        if (entries.isEmpty()) {
+            entriesByName.remove(key);
+        }
+        return entry;
+    }
+
+    /**
+     * @param name Name of the entries, case insensitive.
+     * @return the entries with the given {@code name} in phone book order, or an empty list if there is none
+     */
+    public List<PhonebookEntry> find(String name) {
+        Deque<PhonebookEntry> entries = entriesByName.get(PhonebookEntry.foldName(name));
+        return entries == null ? Collections.emptyList() : new ArrayList<>(entries);
+    }
+
+    /**
+     * @param name Name of the entry, case insensitive.
+     * @return {@code true} if at least one entry has the given {@code name}
+     */
+    public boolean contains(String name) {
+        return entriesByName.containsKey(PhonebookEntry.foldName(name));
+    }
+}
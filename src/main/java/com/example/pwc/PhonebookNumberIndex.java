@@ -0,0 +1,272 @@
+package com.example.pwc;
+
+import java.util.*;
+
+/**
+ * This class indexes the entries of a phone book by their normalized number, see {@link
+ * PhonebookNumberIndex#normalize(String)}, so {@code 0418 100 200} and {@code (04) 1810-0200} are the same number.
+ * <p>
+ * Exact lookups go through an open addressing hash table keyed by the primitive {@code long} encoding of the normalized
+ * number, see {@link PhonebookNumberIndex#key(String)}, which needs neither boxing nor string hashing. Prefix lookups
+ * and numbers too long for a {@code long} go through a {@link TreeMap} of the normalized numbers. The normalized number
+ * of an entry is computed once, when it is added to the index.
+ */
+public class PhonebookNumberIndex {
+    static final long NO_KEY = 0;
+    private static final int MAX_KEY_DIGITS = 18;
+    private static final PhonebookEntry[] NO_ENTRIES = new PhonebookEntry[0];
+    private final TreeMap<String, PhonebookEntry[]> numbers = new TreeMap<>();
+    private long[] keys = new long[16];
+    private PhonebookEntry[][] values = new PhonebookEntry[16][];
+    private int keyCount;
+
+    /**
+     * Digits only, with a leading {@code +} if the number starts with one. Brackets, dashes, whitespace, {@code *} and
+     * {@code #} are dropped.
+     *
+     * @param number The number as it is stored in {@link PhonebookEntry}.
+     * @return the normalized number, or {@code null} if {@code number} is {@code null}, {@code "null"} or has no digits
+     */
+    public static String normalize(String number) {
+        if (number == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                normalized.append(c);
+            } else if (c == '+' && normalized.length() == 0 && number.trim().charAt(0) == '+') {
+                normalized.append(c);
+            }
+        }
+        if (normalized.length() == 0 || (normalized.length() == 1 && normalized.charAt(0) == '+')) {
+            return null;
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Encodes a normalized number of up to 18 digits as a {@code long}: the digits after a leading {@code 1}, so
+     * leading zeros are kept, negated if the number starts with {@code +}.
+     *
+     * @param normalized The normalized number.
+     * @return the key, or {@link PhonebookNumberIndex#NO_KEY} if the number has more than 18 digits
+     */
+    static long key(String normalized) {
+        boolean plus = normalized.charAt(0) == '+';
+        int start = plus ? 1 : 0;
+        if (normalized.length() - start > MAX_KEY_DIGITS) {
+            return NO_KEY;
+        }
+        long key = 1;
+        for (int i = start; i < normalized.length(); i++) {
+            key = key * 10 + (normalized.charAt(i) - '0');
+        }
+        return plus ? -key : key;
+    }
+
+    /**
+     * Replace the content of this index with {@code entries}.
+     *
+     * @param entries The entries to be indexed.
+     */
+    public void rebuild(Collection<PhonebookEntry> entries) {
+        numbers.clear();
+        keys = new long[tableSize(entries.size())];
+        values = new PhonebookEntry[keys.length][];
+        keyCount = 0;
+        entries.forEach(this::add);
+    }
+
+    /**
+     * @param entry The entry which was added to the phone book.
+     */
+    public void add(PhonebookEntry entry) {
+        String normalized = normalize(entry.getNumber());
+        if (normalized == null) {
+            return;
+        }
+        PhonebookEntry[] entries = append(numbers.get(normalized), entry);
+        numbers.put(normalized, entries);
+        long key = key(normalized);
+        if (key != NO_KEY) {
+            put(key, entries);
+        }
+    }
+
+    /**
+     * @param entry The entry which was removed from the phone book. It is matched by identity, or
+     *              if the index does not hold that instance, like the views of {@link ColumnarEntryStore}, by equality.
+     */
+    public void remove(PhonebookEntry entry) {
+        String normalized = normalize(entry.getNumber());
+        if (normalized == null) {
+            return;
+        }
+        PhonebookEntry[] entries = numbers.get(normalized);
+        if (entries == null) {
+            return;
+        }
+        entries = without(entries, entry);
+        long key = key(normalized);
+        if (entries.length == 0) {
+            numbers.remove(normalized);
+            if (key != NO_KEY) {
+                delete(key);
+            }
+        } else {
+            numbers.put(normalized, entries);
+            if (key != NO_KEY) {
+                put(key, entries);
+            }
+        }
+    }
+
+    /**
+     * @param number The number to be looked up, in any format.
+     * @return the entries with the same normalized number in the order they were added, or an empty list if there is
+     * none
+     */
+    public List<PhonebookEntry> find(String number) {
+        String normalized = normalize(number);
+        if (normalized == null) {
+            return Collections.emptyList();
+        }
+        long key = key(normalized);
+        PhonebookEntry[] entries = key != NO_KEY ? get(key) : numbers.get(normalized);
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    /**
+     * @param prefix The prefix of the number to be looked up, in any format.
+     * @return the entries whose normalized number starts with the normalized {@code prefix}, in number order
+     */
+    public List<PhonebookEntry> findByPrefix(String prefix) {
+        String normalized = normalize(prefix);
+        if (normalized == null) {
+            return Collections.emptyList();
+        }
+        List<PhonebookEntry> entries = new ArrayList<>();
+        numbers.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()
+                .forEach(numberEntries -> entries.addAll(Arrays.asList(numberEntries)));
+        return entries;
+    }
+
+    private PhonebookEntry[] get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != NO_KEY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    private void put(long key, PhonebookEntry[] entries) {
+        if ((keyCount + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != NO_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == NO_KEY) {
+            keys[slot] = key;
+            keyCount++;
+        }
+        values[slot] = entries;
+    }
+
+    /**
+     * Removes {@code key} and shifts the following keys of its probe sequence back, so no tombstones are needed.
+     */
+    private void delete(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == NO_KEY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keyCount--;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == NO_KEY) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = NO_KEY;
+        values[slot] = null;
+    }
+
+    private void resize(int size) {
+        long[] oldKeys = keys;
+        PhonebookEntry[][] oldValues = values;
+        keys = new long[size];
+        values = new PhonebookEntry[size][];
+        keyCount = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int tableSize(int entries) {
+        int size = 16;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static PhonebookEntry[] append(PhonebookEntry[] entries, PhonebookEntry entry) {
+        if (entries == null) {
+            return new PhonebookEntry[]{entry};
+        }
+        PhonebookEntry[] appended = Arrays.copyOf(entries, entries.length + 1);
+        appended[entries.length] = entry;
+        return appended;
+    }
+
+    private static PhonebookEntry[] without(PhonebookEntry[] entries, PhonebookEntry entry) {
+        int i = indexOf(entries, entry, true);
+        if (i < 0) {
+            i = indexOf(entries, entry, false);
+        }
+        if (i < 0) {
+            return entries;
+        }
+        if (entries.length == 1) {
+            return NO_ENTRIES;
+        }
+        PhonebookEntry[] remaining = new PhonebookEntry[entries.length - 1];
+        System.arraycopy(entries, 0, remaining, 0, i);
+        System.arraycopy(entries, i + 1, remaining, i, entries.length - i - 1);
+        return remaining;
+    }
+
+    private static int indexOf(PhonebookEntry[] entries, PhonebookEntry entry, boolean identity) {
+        for (int i = 0; i < entries.length; i++) {
+            if (identity ? entries[i] == entry : entries[i].equals(entry)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
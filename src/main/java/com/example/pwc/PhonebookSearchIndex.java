@@ -0,0 +1,219 @@
+package com.example.pwc;
+
+import java.util.*;
+
+/**
+ * This class indexes the distinct names of a phone book for prefix and typo tolerant search. Names are case folded
+ * with {@link PhonebookEntry#foldName(String)}, so both searches are case insensitive like {@link
+ * Phonebook#findByName(String)}.
+ * <li>
+ *     <ul>A trie over the folded names answers prefix queries in name order.</ul>
+ *     <ul>A trigram index narrows the names within an edit distance. A name within {@code k} edits of the query
+ *     shares at least {@code trigrams(query) - 3k} trigrams with it, so only those candidates are checked with the
+ *     Levenshtein distance.</ul>
+ * </li>
+ * The index counts the entries of every name and is updated incrementally on add and remove.
+ */
+public class PhonebookSearchIndex {
+    private static final int GRAM = 3;
+    private static final char PAD = '\u0000';
+    private final TrieNode root = new TrieNode();
+    private final Map<String, Integer> nameCounts = new HashMap<>();
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+
+    /**
+     * Replace the content of this index with the names of {@code entries}.
+     *
+     * @param entries The entries to be indexed.
+     */
+    public void rebuild(Collection<PhonebookEntry> entries) {
+        root.children.clear();
+        root.name = null;
+        nameCounts.clear();
+        postings.clear();
+        entries.forEach(this::add);
+    }
+
+    /**
+     * @param entry The entry which was added to the phone book.
+     */
+    public void add(PhonebookEntry entry) {
+        String name = PhonebookEntry.foldName(entry.getName());
+        if (nameCounts.merge(name, 1, Integer::sum) > 1) {
+            return;
+        }
+        TrieNode node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.children.computeIfAbsent(name.charAt(i), c -> new TrieNode());
+        }
+        node.name = name;
+        trigrams(name).forEach((gram, count) -> postings.computeIfAbsent(gram, g -> new HashMap<>()).put(name, count));
+    }
+
+    /**
+     * @param entry The entry which was removed from the phone book.
+     */
+    public void remove(PhonebookEntry entry) {
+        String name = PhonebookEntry.foldName(entry.getName());
+        Integer count = nameCounts.get(name);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            nameCounts.put(name, count - 1);
+            return;
+        }
+        nameCounts.remove(name);
+        removeFromTrie(root, name, 0);
+        for (String gram : trigrams(name).keySet()) {
+            Map<String, Integer> names = postings.get(gram);
+            names.remove(name);
+            if (names.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * @param prefix The prefix to be looked up, case insensitive.
+     * @return the folded names starting with {@code prefix}, in the order of {@link PhonebookEntry#compareTo}
+     */
+    public List<String> findByPrefix(String prefix) {
+        String folded = PhonebookEntry.foldName(prefix);
+        TrieNode node = root;
+        for (int i = 0; i < folded.length() && node != null; i++) {
+            node = node.children.get(folded.charAt(i));
+        }
+        List<String> names = new ArrayList<>();
+        if (node != null) {
+            collect(node, names);
+        }
+        return names;
+    }
+
+    /**
+     * @param name        The name to be looked up, case insensitive.
+     * @param maxDistance The maximum number of inserted, deleted or substituted characters.
+     * @return the folded names within {@code maxDistance} edits of {@code name}, closest first and then in name order
+     */
+    public List<String> findSimilar(String name, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative.");
+        }
+        String folded = PhonebookEntry.foldName(name);
+        Map<String, Integer> queryGrams = trigrams(folded);
+        int required = folded.length() + GRAM - 1 - GRAM * maxDistance;
+        Collection<String> candidates;
+        if (required <= 0) {
+            candidates = nameCounts.keySet();
+        } else {
+            Map<String, Integer> shared = new HashMap<>();
+            queryGrams.forEach((gram, count) -> {
+                Map<String, Integer> names = postings.get(gram);
+                if (names != null) {
+                    names.forEach((candidate, candidateCount) -> shared.merge(candidate, Math.min(count, candidateCount), Integer::sum));
+                }
+            });
+            candidates = new ArrayList<>();
+            shared.forEach((candidate, count) -> {
+                if (count >= required) {
+                    candidates.add(candidate);
+                }
+            });
+        }
+        Map<String, Integer> distances = new HashMap<>();
+        for (String candidate : candidates) {
+            int distance = distance(folded, candidate, maxDistance);
+            if (distance <= maxDistance) {
+                distances.put(candidate, distance);
+            }
+        }
+        List<String> names = new ArrayList<>(distances.keySet());
+        names.sort(Comparator.<String, Integer>comparing(distances::get).thenComparing(Comparator.naturalOrder()));
+        return names;
+    }
+
+    /**
+     * @return the number of distinct folded names
+     */
+    public int size() {
+        return nameCounts.size();
+    }
+
+    private static void collect(TrieNode node, List<String> names) {
+        if (node.name != null) {
+            names.add(node.name);
+        }
+        node.children.values().forEach(child -> collect(child, names));
+    }
+
+    /**
+     * @return {@code true} if {@code node} has neither a name nor children left
+     */
+    private static boolean removeFromTrie(TrieNode node, String name, int depth) {
+        if (depth == name.length()) {
+            node.name = null;
+        } else {
+            TrieNode child = node.children.get(name.charAt(depth));
+            if (child != null && removeFromTrie(child, name, depth + 1)) {
+                node.children.remove(name.charAt(depth));
+            }
+        }
+        return node.name == null && node.children.isEmpty();
+    }
+
+    /**
+     * @return the trigrams of {@code name} padded with two characters on both ends, with their number of occurrences
+     */
+    private static Map<String, Integer> trigrams(String name) {
+        StringBuilder padded = new StringBuilder(name.length() + 2 * (GRAM - 1));
+        for (int i = 0; i < GRAM - 1; i++) {
+            padded.append(PAD);
+        }
+        padded.append(name);
+        for (int i = 0; i < GRAM - 1; i++) {
+            padded.append(PAD);
+        }
+        Map<String, Integer> grams = new HashMap<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            grams.merge(padded.substring(i, i + GRAM), 1, Integer::sum);
+        }
+        return grams;
+    }
+
+    /**
+     * The Levenshtein distance of {@code a} and {@code b}, or {@code maxDistance + 1} as soon as it is known to be
+     * larger than {@code maxDistance}.
+     */
+    static int distance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+
+    private static final class TrieNode {
+        private final TreeMap<Character, TrieNode> children = new TreeMap<>();
+        private String name;
+    }
+}
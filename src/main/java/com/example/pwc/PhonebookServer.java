@@ -0,0 +1,300 @@
+package com.example.pwc;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class serves a {@link PhonebookService} backed by a {@link PhonebookCache} on a local socket, so repeated
+ * commands don't pay for a JVM start and a full load of the phone book.
+ * <p>
+ * The protocol is line based and UTF-8 encoded. A request is three lines: the command ({@code ADD}, {@code REMOVE},
+ * {@code PRINT} or {@code UNIQUE}), the phone book filename and the argument (the entry to add, the name to remove, the
+ * other phone book to compare with, or an empty line). The response is every line printed by the command prefixed with
+ * {@code |}, followed by {@code =true} or {@code =false} with the result of the command, or {@code !<message>} if the
+ * command failed. A connection can send any number of requests. Requests are processed one at a time.
+ * <p>
+ * The port is open to every local user, so a connection starts with the secret token the server writes to its token
+ * file, readable by its owner only, and a connection with any other first line is closed. Only the phone books under
+ * the root directory of the server can be read and written: a request naming any other file fails.
+ */
+public class PhonebookServer implements Closeable {
+    public static final int DEFAULT_PORT = 7070;
+    public static final String DEFAULT_TOKEN_FILE = ".pwc-server.token";
+    static final String ADD = "ADD";
+    static final String REMOVE = "REMOVE";
+    static final String PRINT = "PRINT";
+    static final String UNIQUE = "UNIQUE";
+    static final char OUTPUT = '|';
+    static final char RESULT = '=';
+    static final char ERROR = '!';
+    private static final int TOKEN_BYTES = 32;
+    private final PhonebookService service = new PhonebookService(new PhonebookCache());
+    private final ServerSocket serverSocket;
+    private final Path root;
+    private final Path tokenFile;
+    private final byte[] token;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "phonebook-server-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Thread acceptor;
+
+    /**
+     * Binds the server to {@code port} on the loopback address and writes a new token to {@code tokenFile}.
+     *
+     * @param port      The port to listen on, or {@code 0} for any free port.
+     * @param root      The directory of the phone books this server can read and write.
+     * @param tokenFile The file the token of this server is written to, which is deleted when the server is closed.
+     * @throws IOException if the root directory doesn't exist, or the port can't be bound or the token file written
+     */
+    public PhonebookServer(int port, Path root, Path tokenFile) throws IOException {
+        this.root = root.toRealPath();
+        this.tokenFile = tokenFile;
+        this.token = newToken();
+        writeToken(tokenFile, token);
+        try {
+            this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            Files.deleteIfExists(tokenFile);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the token file in the home directory of the user, which {@link PhonebookServer} and {@link
+     * PhonebookClient} use by default
+     */
+    public static Path defaultTokenFile() {
+        return Paths.get(System.getProperty("user.home"), DEFAULT_TOKEN_FILE);
+    }
+
+    /**
+     * @return the port this server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public synchronized void start() {
+        if (acceptor != null) {
+            return;
+        }
+        acceptor = new Thread(this::acceptConnections, "phonebook-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Blocks until this server is closed.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+        Files.deleteIfExists(tokenFile);
+    }
+
+    private static byte[] newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Creates the token file readable and writable by its owner only, where the file system supports POSIX
+     * permissions. A file left by an earlier server is replaced rather than written through.
+     */
+    private static void writeToken(Path tokenFile, byte[] token) throws IOException {
+        Files.deleteIfExists(tokenFile);
+        try {
+            Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(tokenFile);
+        }
+        Files.write(tokenFile, token);
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Accepting connection failed. " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(new BufferedOutputStream(connection.getOutputStream()), false, "UTF-8")) {
+            String secret = reader.readLine();
+            if (secret == null || !MessageDigest.isEqual(token, secret.getBytes(StandardCharsets.UTF_8))) {
+                out.println(ERROR + "Invalid token.");
+                out.flush();
+                return;
+            }
+            String command;
+            while ((command = reader.readLine()) != null) {
+                String filename = reader.readLine();
+                String argument = reader.readLine();
+                if (filename == null || argument == null) {
+                    return;
+                }
+                process(command, filename, argument, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Connection failed. " + e.getMessage());
+        }
+    }
+
+    private void process(String command, String filename, String argument, PrintStream out) {
+        LinePrefixOutputStream prefixed = new LinePrefixOutputStream(out);
+        PrintStream output = new PrintStream(prefixed, false);
+        String response;
+        try {
+            boolean result;
+            synchronized (service) {
+                result = execute(command, filename, argument, output);
+            }
+            response = RESULT + Boolean.toString(result);
+        } catch (RuntimeException e) {
+            response = ERROR + String.valueOf(e.getMessage()).replace('\n', ' ');
+        }
+        output.flush();
+        if (!prefixed.lineStart) {
+            out.println();
+        }
+        out.println(response);
+    }
+
+    private boolean execute(String command, String filename, String argument, PrintStream output) {
+        checkUnderRoot(filename);
+        if (UNIQUE.equals(command)) {
+            checkUnderRoot(argument);
+        }
+        switch (command) {
+            case ADD:
+                return service.addEntry(filename, argument);
+            case REMOVE:
+                return service.removeEntry(filename, argument);
+            case PRINT:
+                return service.printPhonebook(filename, output);
+            case UNIQUE:
+                return service.printUniqueName(filename, argument, output);
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    /**
+     * Resolves the links of {@code filename}, or of its directory if the file doesn't exist yet, so a link can't lead
+     * out of the root directory.
+     *
+     * @throws IllegalArgumentException if {@code filename} is not under the root directory
+     */
+    private void checkUnderRoot(String filename) {
+        Path resolved;
+        try {
+            Path path = Paths.get(filename).toAbsolutePath().normalize();
+            if (Files.exists(path)) {
+                resolved = path.toRealPath();
+            } else {
+                Path parent = path.getParent();
+                resolved = parent == null || !Files.exists(parent) ? path : parent.toRealPath().resolve(path.getFileName());
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid phonebook filename " + filename);
+        }
+        if (!resolved.startsWith(root)) {
+            throw new IllegalArgumentException(filename + " is not under the phonebook root " + root);
+        }
+    }
+
+    /**
+     * Prefixes every line written to the response with {@link PhonebookServer#OUTPUT}.
+     */
+    private static final class LinePrefixOutputStream extends FilterOutputStream {
+        private boolean lineStart = true;
+
+        private LinePrefixOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (lineStart) {
+                out.write(OUTPUT);
+            }
+            out.write(b);
+            lineStart = b == '\n';
+        }
+
+        /**
+         * Copies the runs of bytes between the line breaks of {@code b} at once.
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            int start = off;
+            for (int i = off; i < end; i++) {
+                if (b[i] == '\n') {
+                    writeRun(b, start, i + 1);
+                    start = i + 1;
+                }
+            }
+            writeRun(b, start, end);
+        }
+
+        private void writeRun(byte[] b, int start, int end) throws IOException {
+            if (start == end) {
+                return;
+            }
+            if (lineStart) {
+                out.write(OUTPUT);
+            }
+            out.write(b, start, end - start);
+            lineStart = b[end - 1] == '\n';
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,28 +1,428 @@
 package com.example.pwc;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 /**
- * This service class is responsible performing action on the {@link Phonebook}
+ * This service class is responsible performing action on the {@link Phonebook}. By default every call loads the
+ * phone book from its file. A service created with a {@link PhonebookCache} reuses the phone books loaded by earlier
+ * calls as long as their files are unchanged.
+ * <p>
+ * A filename which is an empty directory or a directory with a manifest, or a new one ending with a separator, is a
+ * {@link ShardedPhonebook}, see {@link ShardedPhonebook#isSharded(String)}. Both are a {@link PhonebookStore}, which
+ * every call opens once and uses whichever it is. A sharded book is opened again by every call and never cached, as a
+ * call only loads the shards it needs.
+ * <p>
+ * The memory budget of the streaming prints only applies to a book in the text format. A sharded book is always sorted
+ * in memory, shard by shard, and a {@link BinaryPhonebook} is opened and sorted like it is without a budget.
+ * <p>
+ * The {@code stream} methods return what the {@code print} methods print as a lazy {@link Stream}, for callers which
+ * pass the entries or names on instead of reading them from stdout. The streams must be closed, and an {@link
+ * UncheckedIOException} is thrown while they are consumed if a spilled run can't be read.
  */
 public class PhonebookService {
+    private static final String DEFAULT_BOOK = "personalBook.txt";
+    private final PhonebookCache cache;
+
+    public PhonebookService() {
+        this(null);
+    }
+
+    /**
+     * @param cache The cache of loaded phone books, or {@code null} to load the phone book on every call.
+     */
+    public PhonebookService(PhonebookCache cache) {
+        this.cache = cache;
+    }
+
     public boolean addEntry(String filename, String line) {
-        Phonebook phoneBook = new Phonebook(filename);
-        return phoneBook.addEntry(line);
+        return mutate(filename, phoneBook -> phoneBook.addEntry(line));
     }
 
     public boolean removeEntry(String filename, String line) {
-        Phonebook phoneBook = new Phonebook(filename);
-        return phoneBook.removeEntry(line);
+        return mutate(filename, this::openLazily, phoneBook -> phoneBook.removeEntry(line));
+    }
+
+    public boolean addEntries(String filename, Iterable<String> lines) {
+        return mutate(filename, phoneBook -> phoneBook.addEntries(lines) > 0);
+    }
+
+    public boolean removeEntries(String filename, Collection<String> names) {
+        return mutate(filename, this::openLazily, phoneBook -> phoneBook.removeEntries(names) > 0);
     }
 
     public boolean printPhonebook(String filename) {
-        Phonebook phonebook = new Phonebook(filename);
-        return phonebook.printPhonebook();
+        return printPhonebook(filename, System.out);
+    }
+
+    public boolean printPhonebook(String filename, PrintStream out) {
+        return printAndFlush(out, writer -> printPhonebook(filename, writer));
+    }
+
+    /**
+     * Print the entries of {@code filename} in ascending order to {@code out}, which is flushed by the caller.
+     */
+    public boolean printPhonebook(String filename, PhonebookEntryWriter out) {
+        PhonebookStore phoneBook = open(filename);
+        try {
+            return phoneBook.printPhonebook(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error with writing entries. " + e.getMessage());
+        } finally {
+            release(phoneBook);
+        }
+    }
+
+    /**
+     * Print the entries of {@code filename} in ascending order with an {@link ExternalSortPrinter}, which holds about
+     * {@code memoryBudget} bytes of entries in memory instead of the whole phone book.
+     */
+    public boolean printPhonebook(String filename, long memoryBudget) {
+        return printAndFlush(System.out, writer -> printPhonebook(filename, memoryBudget, writer));
+    }
+
+    /**
+     * Print the entries of {@code filename} in ascending order to {@code out} with an {@link ExternalSortPrinter},
+     * {@code out} is flushed by the caller.
+     */
+    public boolean printPhonebook(String filename, long memoryBudget, PhonebookEntryWriter out) {
+        try {
+            if (!isTextFile(filename)) {
+                return printPhonebook(filename, out);
+            }
+            return new ExternalSortPrinter(memoryBudget).print(Paths.get(filename), out);
+        } catch (IOException e) {
+            throw new RuntimeException("Error with sorting files. " + e.getMessage());
+        }
+    }
+
+    /**
+     * @see PhonebookService#streamPhonebook(String, long)
+     */
+    public Stream<PhonebookEntry> streamPhonebook(String filename) {
+        return streamPhonebook(filename, ExternalSortPrinter.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * The entries of {@code filename} in ascending order, like {@link PhonebookService#printPhonebook(String)} prints
+     * them. Entries are produced while the stream is consumed: a binary book is decoded from the mapped file entry by
+     * entry, a cached book is sorted in memory, the shards of a sharded book are merged and any other book is sorted by
+     * an {@link ExternalSortPrinter} with {@code memoryBudget} bytes and merged from its runs.
+     *
+     * @return the entries in ascending order, a stream which must be closed
+     */
+    public Stream<PhonebookEntry> streamPhonebook(String filename, long memoryBudget) {
+        try {
+            if (cache == null && isTextFile(filename)) {
+                return new ExternalSortPrinter(memoryBudget).stream(Paths.get(filename));
+            }
+            return stream(open(filename), PhonebookStore::streamPhonebook);
+        } catch (IOException e) {
+            throw new RuntimeException("Error with sorting files. " + e.getMessage());
+        }
     }
 
     public boolean printUniqueName(String filename) {
-        Phonebook defaultPhonebook = new Phonebook();
-        Phonebook anotherPhonebook = new Phonebook(filename);
-        defaultPhonebook.printUniqueEntries(anotherPhonebook);
+        return printUniqueName(DEFAULT_BOOK, filename, System.out);
+    }
+
+    public boolean printUniqueName(String defaultFilename, String filename, PrintStream out) {
+        return printAndFlush(out, writer -> printUniqueName(defaultFilename, filename, writer));
+    }
+
+    /**
+     * Print the names which are in only one of {@code defaultFilename} and {@code filename} to {@code out}, which is
+     * flushed by the caller.
+     */
+    public boolean printUniqueName(String defaultFilename, String filename, PhonebookEntryWriter out) {
+        PhonebookStore defaultPhoneBook = open(defaultFilename);
+        try {
+            PhonebookStore anotherPhoneBook = open(filename);
+            try {
+                defaultPhoneBook.printUniqueEntries(anotherPhoneBook, out);
+                return true;
+            } finally {
+                release(anotherPhoneBook);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error with writing entries. " + e.getMessage());
+        } finally {
+            release(defaultPhoneBook);
+        }
+    }
+
+    /**
+     * Print the names which are in only one of {@code defaultFilename} and {@code filename} with the streaming {@link
+     * SymmetricDifference}, which holds about {@code memoryBudget} bytes of names in memory instead of both phone books.
+     */
+    public boolean printUniqueName(String defaultFilename, String filename, long memoryBudget, PrintStream out) {
+        return printAndFlush(out, writer -> printUniqueName(defaultFilename, filename, memoryBudget, writer));
+    }
+
+    /**
+     * Print the names which are in only one of {@code defaultFilename} and {@code filename} with the streaming {@link
+     * SymmetricDifference} to {@code out}, which is flushed by the caller.
+     */
+    public boolean printUniqueName(String defaultFilename, String filename, long memoryBudget, PhonebookEntryWriter out) {
+        try {
+            if (!isTextFile(defaultFilename) || !isTextFile(filename)) {
+                return printUniqueName(defaultFilename, filename, out);
+            }
+            SymmetricDifference.of(Paths.get(defaultFilename), Paths.get(filename), memoryBudget, null, out.lines());
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Error with sorting files. " + e.getMessage());
+        }
+    }
+
+    /**
+     * @see PhonebookService#streamUniqueName(String, String, long)
+     */
+    public Stream<String> streamUniqueName(String defaultFilename, String filename) {
+        return streamUniqueName(defaultFilename, filename, ExternalSortPrinter.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * The names which are in only one of {@code defaultFilename} and {@code filename}, like {@link
+     * PhonebookService#printUniqueName(String, String, PrintStream)} prints them. Both books are read and their names
+     * sorted before this returns, by {@link SymmetricDifference} with {@code memoryBudget} bytes unless they are cached,
+     * sharded or binary, and the sorted names are merged while the stream is consumed.
+     *
+     * @return the unique names in ascending order, a stream which must be closed
+     */
+    public Stream<String> streamUniqueName(String defaultFilename, String filename, long memoryBudget) {
+        try {
+            if (cache != null || !isTextFile(defaultFilename) || !isTextFile(filename)) {
+                PhonebookStore defaultPhoneBook = open(defaultFilename);
+                try {
+                    PhonebookStore anotherPhoneBook = open(filename);
+                    return stream(anotherPhoneBook, defaultPhoneBook::streamUniqueEntries).onClose(() -> release(defaultPhoneBook));
+                } catch (RuntimeException e) {
+                    release(defaultPhoneBook);
+                    throw e;
+                }
+            }
+            return SymmetricDifference.stream(Paths.get(defaultFilename), Paths.get(filename), memoryBudget, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Error with sorting files. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Print the names selected by {@code operation} from the phone books {@code filenames}, which are loaded in
+     * parallel, to {@code out}, which is flushed by the caller. Any of them may be a sharded book.
+     */
+    public boolean printSetOperation(List<String> filenames, SetOperation operation, PhonebookEntryWriter out) {
+        List<PhonebookStore> phoneBooks = Collections.synchronizedList(new ArrayList<>());
+        try {
+            operation.apply(filenames, filename -> {
+                PhonebookStore phoneBook = open(filename);
+                phoneBooks.add(phoneBook);
+                return phoneBook;
+            }, ForkJoinPool.commonPool(), out.lines());
+            return true;
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Error with writing entries. " + e.getCause().getMessage());
+        } finally {
+            phoneBooks.forEach(this::release);
+        }
+    }
+
+    /**
+     * Rewrite {@code filename} without duplicate names with a {@link PhonebookDeduplicator}, which holds about {@code
+     * memoryBudget} bytes of entries in memory instead of the whole phone book, and print the number of entries
+     * dropped to {@code out}.
+     */
+    public boolean dedupePhonebook(String filename, ConflictPolicy policy, long memoryBudget, PrintStream out) {
+        try {
+            PhonebookDeduplicator deduplicator = new PhonebookDeduplicator(policy, memoryBudget);
+            long dropped = 0;
+            if (ShardedPhonebook.isSharded(filename)) {
+                try (ShardedPhonebook phoneBook = new ShardedPhonebook(filename)) {
+                    for (int shard = 0; shard < phoneBook.getShardCount(); shard++) {
+                        dropped += deduplicator.dedupe(phoneBook.shardPath(shard));
+                    }
+                }
+            } else {
+                dropped = deduplicator.dedupe(Paths.get(filename));
+            }
+            if (cache != null) {
+                cache.invalidate(filename);
+            }
+            out.println("Dropped " + dropped + " duplicate entries.");
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Error with deduplicating files. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Print the entries of {@code filename} whose name starts with {@code prefix}, case insensitive.
+     *
+     * @return {@code true} if any entry matches
+     */
+    public boolean searchByPrefix(String filename, String prefix, PrintStream out) {
+        return read(filename, phoneBook -> printMatches(phoneBook.findByPrefix(prefix), out));
+    }
+
+    /**
+     * Print the entries of {@code filename} whose name is within {@code maxDistance} edits of {@code name}, case
+     * insensitive and closest names first.
+     *
+     * @return {@code true} if any entry matches
+     */
+    public boolean searchSimilar(String filename, String name, int maxDistance, PrintStream out) {
+        return read(filename, phoneBook -> printMatches(phoneBook.findSimilar(name, maxDistance), out));
+    }
+
+    /**
+     * Print the entries of {@code filename} with the same normalized number as {@code number}.
+     *
+     * @return {@code true} if any entry matches
+     */
+    public boolean searchByNumber(String filename, String number, PrintStream out) {
+        return read(filename, phoneBook -> printMatches(phoneBook.findByNumber(number), out));
+    }
+
+    private static boolean printMatches(List<PhonebookEntry> entries, PrintStream out) {
+        if (entries.isEmpty()) {
+            out.println("No matching entries.");
+            return false;
+        }
+        entries.forEach(out::println);
+        return true;
+    }
+
+    /**
+     * Write the entries of {@code filename} to {@code target}, in the {@link BinaryPhonebook} format if {@code binary}
+     * is {@code true} and in the text format otherwise. {@code filename} may be in either format. Either of them may be
+     * a sharded book: a sharded {@code target} gets shards in the format, a sharded {@code filename} is merged into
+     * the single file {@code target}.
+     */
+    public boolean convertPhonebook(String filename, String target, boolean binary) {
+        if (ShardedPhonebook.isSharded(target)) {
+            List<PhonebookEntry> entries = read(filename, PhonebookStore::getPhonebookEntryList);
+            ShardedPhonebook.write(target, entries, ShardedPhonebook.DEFAULT_SHARDS, binary);
+            return true;
+        }
+        read(filename, phoneBook -> {
+            phoneBook.writePhonebook(target, binary);
+            return true;
+        });
+        if (cache != null) {
+            cache.invalidate(target);
+        }
         return true;
     }
+
+    /**
+     * @return the stream of {@code phoneBook}, which releases the book when it is closed
+     */
+    private <T> Stream<T> stream(PhonebookStore phoneBook, Function<PhonebookStore, Stream<T>> stream) {
+        try {
+            return stream.apply(phoneBook).onClose(() -> release(phoneBook));
+        } catch (RuntimeException e) {
+            release(phoneBook);
+            throw e;
+        }
+    }
+
+    private static boolean printAndFlush(PrintStream out, Predicate<PhonebookEntryWriter> print) {
+        PhonebookEntryWriter writer = new PhonebookEntryWriter(out);
+        boolean printed = print.test(writer);
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error with writing entries. " + e.getMessage());
+        }
+        return printed;
+    }
+
+    /**
+     * @return {@code true} if {@code filename} is a single file in the text format, which the external sorts of a
+     * memory budget read line by line. Sharded and binary books are opened and sorted in memory instead.
+     */
+    private static boolean isTextFile(String filename) throws IOException {
+        return !ShardedPhonebook.isSharded(filename) && !BinaryPhonebook.isBinary(Paths.get(filename));
+    }
+
+    /**
+     * Opens the sharded book or the single file of {@code filename}, this is the only place which tells them apart.
+     * A sharded book is opened again by every call, a single file is taken from the cache if there is one.
+     */
+    private PhonebookStore open(String filename) {
+        if (ShardedPhonebook.isSharded(filename)) {
+            return new ShardedPhonebook(filename);
+        }
+        return cache != null ? cache.get(filename) : new Phonebook(filename);
+    }
+
+    /**
+     * Opens a phone book which is only looked up by name before it is mutated. Without a cache a single file is opened
+     * lazily, so removing names which are not in it only parses the pages they could be in.
+     */
+    private PhonebookStore openLazily(String filename) {
+        if (cache != null || ShardedPhonebook.isSharded(filename)) {
+            return open(filename);
+        }
+        return Phonebook.builder(filename).lazy(PagedPhonebook.DEFAULT_PAGE_SIZE, PagedPhonebook.DEFAULT_CACHED_PAGES).build();
+    }
+
+    /**
+     * @return {@code true} if {@code phoneBook} is owned by the cache, which keeps it open for the next calls
+     */
+    private boolean isCached(PhonebookStore phoneBook) {
+        return cache != null && phoneBook instanceof Phonebook;
+    }
+
+    /**
+     * Closes {@code phoneBook} unless it is cached.
+     */
+    private void release(PhonebookStore phoneBook) {
+        if (!isCached(phoneBook)) {
+            phoneBook.close();
+        }
+    }
+
+    private <T> T read(String filename, Function<PhonebookStore, T> action) {
+        PhonebookStore phoneBook = open(filename);
+        try {
+            return action.apply(phoneBook);
+        } finally {
+            release(phoneBook);
+        }
+    }
+
+    private boolean mutate(String filename, Predicate<PhonebookStore> mutation) {
+        return mutate(filename, this::open, mutation);
+    }
+
+    private boolean mutate(String filename, Function<String, PhonebookStore> opener, Predicate<PhonebookStore> mutation) {
+        PhonebookStore phoneBook = opener.apply(filename);
+        if (!isCached(phoneBook)) {
+            try {
+                return mutation.test(phoneBook);
+            } finally {
+                phoneBook.close();
+            }
+        }
+        try {
+            boolean mutated = mutation.test(phoneBook);
+            cache.update(filename);
+            return mutated;
+        } catch (RuntimeException e) {
+            cache.invalidate(filename);
+            throw e;
+        }
+    }
 }
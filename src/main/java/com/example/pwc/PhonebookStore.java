@@ -0,0 +1,120 @@
+package com.example.pwc;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The operations a phone book offers whether it is a single {@link Phonebook} file or a {@link ShardedPhonebook}
+ * directory, so callers like {@link PhonebookService} open a book once and use it without knowing which it is. Names
+ * are compared case insensitive, and prints and streams are in the order of {@link PhonebookEntry#compareTo}.
+ */
+public interface PhonebookStore extends AutoCloseable {
+    /**
+     * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return {@code true} if an entry is added successfully, {@code false} otherwise
+     */
+    boolean addEntry(String line);
+
+    /**
+     * @param name Name to be remove from the phonebook, case insensitive.
+     * @return {@code true} if an entry is removed successfully, {@code false} otherwise
+     */
+    boolean removeEntry(String name);
+
+    /**
+     * @param lines String representations of {@link PhonebookEntry}, added only if every line is valid.
+     * @return the number of entries added
+     */
+    int addEntries(Iterable<String> lines);
+
+    /**
+     * @param names Names to be remove from the phonebook, case insensitive.
+     * @return the number of entries removed
+     */
+    int removeEntries(Collection<String> names);
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in the order they are stored, or an empty list if there is none
+     */
+    List<PhonebookEntry> findByName(String name);
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return {@code true} if this book has at least one entry with the given {@code name}
+     */
+    boolean containsName(String name);
+
+    /**
+     * @param prefix The prefix of the names to be looked up, case insensitive.
+     * @return the entries whose name starts with {@code prefix}, in the order of {@link
+     * PhonebookStore#printPhonebook(PhonebookEntryWriter)}
+     */
+    List<PhonebookEntry> findByPrefix(String prefix);
+
+    /**
+     * @param name        The name to be looked up.
+     * @param maxDistance The maximum number of inserted, deleted or substituted characters.
+     * @return the entries whose name is within {@code maxDistance} edits of {@code name}, closest names first
+     */
+    List<PhonebookEntry> findSimilar(String name, int maxDistance);
+
+    /**
+     * @param number The number to be looked up, compared in its {@link PhonebookNumberIndex#normalize(String)} form.
+     * @return the entries with the same normalized number, or an empty list if there is none
+     */
+    List<PhonebookEntry> findByNumber(String number);
+
+    /**
+     * @return every entry of this book
+     */
+    List<PhonebookEntry> getPhonebookEntryList();
+
+    /**
+     * Print the entries of this book in ascending order to {@code out}, which is flushed by the caller.
+     *
+     * @param out The writer the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if no entries in this book
+     * @throws IOException if {@code out} can't be written
+     */
+    boolean printPhonebook(PhonebookEntryWriter out) throws IOException;
+
+    /**
+     * @return the entries in ascending order, like {@link PhonebookStore#printPhonebook(PhonebookEntryWriter)} prints
+     * them
+     */
+    Stream<PhonebookEntry> streamPhonebook();
+
+    /**
+     * Print the names which are in only one of this book and {@code phonebook} to {@code out}, which is flushed by the
+     * caller.
+     *
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @param out       The writer the names are printed to.
+     * @throws IOException if {@code out} can't be written
+     */
+    void printUniqueEntries(PhonebookStore phonebook, PhonebookEntryWriter out) throws IOException;
+
+    /**
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @return the names which are in only one of the books, in ascending order
+     */
+    Stream<String> streamUniqueEntries(PhonebookStore phonebook);
+
+    /**
+     * Write the entries of this book to the single file {@code filename}.
+     *
+     * @param filename The file to be written.
+     * @param binary   {@code true} for the {@link BinaryPhonebook} format, {@code false} for the text format
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    void writePhonebook(String filename, boolean binary);
+
+    /**
+     * Persists what is pending and releases the files of this book.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,231 @@
+package com.example.pwc;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * This class applies a set operation to the names of any number of phone books. A name is selected by the number of
+ * books it is in:
+ * <li>
+ *     <ul>{@link SetOperation#union()}: at least one book</ul>
+ *     <ul>{@link SetOperation#intersection()}: every book</ul>
+ *     <ul>{@link SetOperation#symmetricDifference()}: an odd number of books, so for two books the names which are in
+ *     only one of them, like {@link SymmetricDifference}</ul>
+ *     <ul>{@link SetOperation#exactly(int)}: exactly {@code k} books</ul>
+ * </li>
+ * Every book is loaded and its distinct names are hashed into partitions by a task of its own, then every partition is
+ * counted and filtered by a task of its own, and the sorted partitions are merged. Names are compared exactly and come
+ * out in their natural {@link String} order, like {@link Phonebook#printUniqueEntries(PhonebookStore)}.
+ */
+public final class SetOperation {
+    private enum Kind {
+        UNION, INTERSECTION, SYMMETRIC_DIFFERENCE, EXACTLY
+    }
+
+    private static final String EXACTLY = "exactly-";
+    private final Kind kind;
+    private final int k;
+
+    private SetOperation(Kind kind, int k) {
+        this.kind = kind;
+        this.k = k;
+    }
+
+    public static SetOperation union() {
+        return new SetOperation(Kind.UNION, 0);
+    }
+
+    public static SetOperation intersection() {
+        return new SetOperation(Kind.INTERSECTION, 0);
+    }
+
+    public static SetOperation symmetricDifference() {
+        return new SetOperation(Kind.SYMMETRIC_DIFFERENCE, 0);
+    }
+
+    /**
+     * @param k The number of books a name has to be in, at least {@code 1}.
+     */
+    public static SetOperation exactly(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive.");
+        }
+        return new SetOperation(Kind.EXACTLY, k);
+    }
+
+    /**
+     * @param operation {@code union}, {@code intersection}, {@code symdiff} or {@code exactly-<K>}, case insensitive.
+     * @return the operation, or {@code null} if {@code operation} is none of them
+     */
+    public static SetOperation parse(String operation) {
+        String lowerCase = operation.trim().toLowerCase(Locale.ROOT);
+        switch (lowerCase) {
+            case "union":
+                return union();
+            case "intersection":
+                return intersection();
+            case "symdiff":
+                return symmetricDifference();
+            default:
+                if (lowerCase.startsWith(EXACTLY)) {
+                    try {
+                        int k = Integer.parseInt(lowerCase.substring(EXACTLY.length()));
+                        return k > 0 ? exactly(k) : null;
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                return null;
+        }
+    }
+
+    /**
+     * @param books The number of books a name is in.
+     * @param total The number of books.
+     * @return {@code true} if the name is selected
+     */
+    boolean selects(int books, int total) {
+        switch (kind) {
+            case UNION:
+                return books > 0;
+            case INTERSECTION:
+                return books == total;
+            case SYMMETRIC_DIFFERENCE:
+                return books % 2 == 1;
+            default:
+                return books == k;
+        }
+    }
+
+    /**
+     * Loads the books with {@link Phonebook#Phonebook(String)} on the common pool.
+     *
+     * @see SetOperation#apply(List, Function, ForkJoinPool, Consumer)
+     */
+    public int apply(List<String> filenames, Consumer<? super String> consumer) {
+        return apply(filenames, Phonebook::new, ForkJoinPool.commonPool(), consumer);
+    }
+
+    /**
+     * @param filenames The phone books. A book which is given twice counts twice.
+     * @param loader    Loads the phone book of a filename, it is called by many threads at once.
+     * @param pool      The pool the books are loaded and the partitions are counted on.
+     * @param consumer  Receives the selected names in ascending order, on the calling thread.
+     * @return the number of names passed to {@code consumer}
+     */
+    public int apply(List<String> filenames, Function<String, ? extends PhonebookStore> loader, ForkJoinPool pool,
+                     Consumer<? super String> consumer) {
+        int partitions = Integer.highestOneBit(Math.max(1, pool.getParallelism() * 4 - 1)) * 2;
+        List<ForkJoinTask<List<Set<String>>>> loads = filenames.stream()
+                .map(filename -> ForkJoinTask.adapt(() -> hash(loader.apply(filename), partitions)))
+                .collect(Collectors.toList());
+        List<List<Set<String>>> books = new ArrayList<>(loads.size());
+        pool.submit(() -> ForkJoinTask.invokeAll(loads)).join().forEach(task -> books.add(task.join()));
+        List<ForkJoinTask<List<String>>> counts = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            int current = partition;
+            counts.add(ForkJoinTask.adapt(() -> select(books, current)));
+        }
+        List<List<String>> selected = new ArrayList<>(partitions);
+        pool.submit(() -> ForkJoinTask.invokeAll(counts)).join().forEach(task -> selected.add(task.join()));
+        return merge(selected, consumer);
+    }
+
+    private static List<Set<String>> hash(PhonebookStore phonebook, int partitions) {
+        List<Set<String>> names = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            names.add(new HashSet<>());
+        }
+        for (PhonebookEntry entry : phonebook.getPhonebookEntryList()) {
+            names.get(partition(entry.getName(), partitions)).add(entry.getName());
+        }
+        return names;
+    }
+
+    private static int partition(String name, int partitions) {
+        int hash = name.hashCode();
+        return (hash ^ (hash >>> 16)) & (partitions - 1);
+    }
+
+    private List<String> select(List<List<Set<String>>> books, int partition) {
+        Map<String, int[]> counts = new HashMap<>();
+        for (List<Set<String>> book : books) {
+            for (String name : book.get(partition)) {
+                counts.computeIfAbsent(name, key -> new int[1])[0]++;
+            }
+        }
+        List<String> selected = new ArrayList<>();
+        counts.forEach((name, count) -> {
+            if (selects(count[0], books.size())) {
+                selected.add(name);
+            }
+        });
+        Collections.sort(selected);
+        return selected;
+    }
+
+    private static int merge(List<List<String>> partitions, Consumer<? super String> consumer) {
+        PriorityQueue<PeekingIterator> heads = new PriorityQueue<>(Math.max(1, partitions.size()),
+                Comparator.comparing(PeekingIterator::peek));
+        for (List<String> partition : partitions) {
+            if (!partition.isEmpty()) {
+                heads.add(new PeekingIterator(partition.iterator()));
+            }
+        }
+        int count = 0;
+        while (!heads.isEmpty()) {
+            PeekingIterator head = heads.poll();
+            consumer.accept(head.next());
+            count++;
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the name of this operation for {@link SetOperation#parse(String)}
+     */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case UNION:
+                return "union";
+            case INTERSECTION:
+                return "intersection";
+            case SYMMETRIC_DIFFERENCE:
+                return "symdiff";
+            default:
+                return EXACTLY + k;
+        }
+    }
+
+    private static final class PeekingIterator {
+        private final Iterator<String> iterator;
+        private String next;
+
+        private PeekingIterator(Iterator<String> iterator) {
+            this.iterator = iterator;
+            this.next = iterator.next();
+        }
+
+        private String peek() {
+            return next;
+        }
+
+        private boolean hasNext() {
+            return next != null;
+        }
+
+        private String next() {
+            String current = next;
+            next = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+    }
+}
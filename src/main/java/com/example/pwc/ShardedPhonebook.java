@@ -0,0 +1,597 @@
+package com.example.pwc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class stores a phone book in a directory of shard files. Entries are partitioned by the hash of their name
+ * folded with {@link PhonebookEntry#foldName(String)}, so every entry of a name is in the same shard, and every shard
+ * is a {@link Phonebook} of its own in any of its formats. The {@link ShardedPhonebook#MANIFEST} of the directory
+ * records the number of shards, which is fixed when the directory is created.
+ * <p>
+ * Shards are only loaded when they are needed:
+ * <li>
+ *     <ul>Adding or removing a name loads and rewrites its shard only.</ul>
+ *     <ul>Batches are grouped by shard and every shard is mutated by a task of its own.</ul>
+ *     <ul>Prints, searches and unique names load every shard by a task of its own, then merge the sorted shards, the
+ *     same order as {@link Phonebook#printPhonebook()}.</ul>
+ * </li>
+ * The tasks run on the pool given to the constructor, the common pool by default.
+ */
+public class ShardedPhonebook implements PhonebookStore {
+    public static final String MANIFEST = "manifest.properties";
+    public static final int DEFAULT_SHARDS = 16;
+    public static final int MAX_SHARDS = 4096;
+    private static final int VERSION = 1;
+    private static final String PARTITIONER = "folded-name-hash";
+    private final Path directory;
+    private final int shardCount;
+    private final ForkJoinPool pool;
+    private final AtomicReferenceArray<Phonebook> shards;
+    private final Object[] locks;
+
+    /**
+     * Opens the sharded book of {@code directory}, which is created with {@link ShardedPhonebook#DEFAULT_SHARDS}
+     * shards if it has no manifest yet.
+     *
+     * @param directory The directory of the shards.
+     */
+    public ShardedPhonebook(String directory) {
+        this(directory, DEFAULT_SHARDS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Opens the sharded book of {@code directory}. If it has no manifest yet, the directory and the manifest are
+     * created with {@code shards} shards, otherwise the number of shards of the manifest is used.
+     *
+     * @param directory The directory of the shards.
+     * @param shards    The number of shards of a new book, from {@code 1} to {@link ShardedPhonebook#MAX_SHARDS}.
+     * @param pool      The pool the shards are loaded and mutated on.
+     * @throws RuntimeException if the manifest can't be read or written, or is not a manifest of this version
+     */
+    public ShardedPhonebook(String directory, int shards, ForkJoinPool pool) {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("shards must be between 1 and " + MAX_SHARDS + ".");
+        }
+        this.directory = Paths.get(directory);
+        this.pool = pool;
+        this.shardCount = openManifest(this.directory, shards);
+        this.shards = new AtomicReferenceArray<>(shardCount);
+        this.locks = new Object[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * A directory which is neither empty nor has a manifest is not a sharded book, so opening it never writes a
+     * manifest into a directory of other files.
+     *
+     * @param filename The name of a phone book.
+     * @return {@code true} if {@code filename} is a directory with a manifest or an empty one, or does not exist and
+     * ends with a separator and so names a new one
+     */
+    public static boolean isSharded(String filename) {
+        Path path = Paths.get(filename);
+        if (!Files.isDirectory(path)) {
+            return !Files.exists(path) && (filename.endsWith("/") || filename.endsWith(File.separator));
+        }
+        if (Files.exists(path.resolve(MANIFEST))) {
+            return true;
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            return !files.findAny().isPresent();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param name   The name of an entry.
+     * @param shards The number of shards.
+     * @return the shard of {@code name}, from the {@link String#hashCode()} of its folded name, which is the same on
+     * every JVM
+     */
+    static int shardOf(String name, int shards) {
+        int hash = PhonebookEntry.foldName(name).hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards);
+    }
+
+    /**
+     * Writes {@code entries} as a sharded book into {@code directory}, replacing every shard of the book. The number of
+     * shards of an existing manifest is kept.
+     *
+     * @param directory The directory of the shards, created if needed.
+     * @param entries   The entries of the book.
+     * @param shards    The number of shards of a new book.
+     * @param binary    {@code true} for shards in the {@link BinaryPhonebook} format, {@code false} for the text format
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    public static void write(String directory, Collection<PhonebookEntry> entries, int shards, boolean binary) {
+        try (ShardedPhonebook book = new ShardedPhonebook(directory, shards, ForkJoinPool.commonPool())) {
+            List<List<PhonebookEntry>> partitions = book.partition(entries);
+            book.invokeAll(shard -> () -> {
+                Path path = book.shardPath(shard);
+                try {
+                    if (binary) {
+                        BinaryPhonebook.write(partitions.get(shard), path);
+                    } else {
+                        AtomicFiles.writeLines(path, partitions.get(shard).stream()
+                                .map(entry -> (CharSequence) entry.toString())::iterator);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("File persistent failed.");
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * @return the number of shards of this book
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return the directory of this book
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Add an entry to the shard of its name.
+     *
+     * @param line String representation of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return {@code true} if an entry is added successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean addEntry(String line) {
+        PhonebookEntry entry = PhonebookEntryParser.parse(line);
+        return entry != null && shard(shardOf(entry.getName(), shardCount)).addEntry(line);
+    }
+
+    /**
+     * Remove the first entry of {@code name} from its shard.
+     *
+     * @param name Name to be remove from the phonebook, case insensitive.
+     * @return {@code true} if an entry is removed successfully, {@code false} otherwise
+     */
+    @Override
+    public boolean removeEntry(String name) {
+        return shard(shardOf(name, shardCount)).removeEntry(name);
+    }
+
+    /**
+     * Add all the entries of {@code lines} like {@link Phonebook#addEntries(Iterable)}: the whole batch is validated
+     * first, then the lines are grouped by shard and every shard adds its lines with a single persist.
+     *
+     * @param lines String representations of {@link PhonebookEntry}. eg Entry(name=John Citizen, number=0414557988)
+     * @return the number of entries added
+     */
+    @Override
+    public int addEntries(Iterable<String> lines) {
+        List<List<String>> partitions = emptyPartitions();
+        boolean valid = true;
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            if (line == null || line.trim().isEmpty()) {
+                continue;
+            }
+            PhonebookEntry entry = PhonebookEntryParser.parse(line);
+            if (entry == null) {
+                System.err.println("Invalid entry on line " + lineNumber + ": " + line);
+                valid = false;
+            } else if (valid) {
+                partitions.get(shardOf(entry.getName(), shardCount)).add(line);
+            }
+        }
+        if (!valid) {
+            return 0;
+        }
+        return invokeAll(shard -> () -> partitions.get(shard).isEmpty() ? 0 : shard(shard).addEntries(partitions.get(shard)))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Remove the first entry matching each of the {@code names} like {@link Phonebook#removeEntries(Collection)}, every
+     * shard removes its names with a single persist.
+     *
+     * @param names Names to be remove from the phonebook, case insensitive.
+     * @return the number of entries removed
+     */
+    @Override
+    public int removeEntries(Collection<String> names) {
+        List<List<String>> partitions = emptyPartitions();
+        for (String name : names) {
+            partitions.get(shardOf(name, shardCount)).add(name);
+        }
+        return invokeAll(shard -> () -> partitions.get(shard).isEmpty() ? 0 : shard(shard).removeEntries(partitions.get(shard)))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return the entries with the given {@code name} in the order they are stored, or an empty list if there is none
+     */
+    @Override
+    public List<PhonebookEntry> findByName(String name) {
+        return shard(shardOf(name, shardCount)).findByName(name);
+    }
+
+    /**
+     * @param name Name to be looked up, case insensitive.
+     * @return {@code true} if this book has at least one entry with the given {@code name}
+     */
+    @Override
+    public boolean containsName(String name) {
+        return shard(shardOf(name, shardCount)).containsName(name);
+    }
+
+    /**
+     * @param prefix The prefix of the names to be looked up, case insensitive.
+     * @return the entries whose name starts with {@code prefix}, in the order of {@link
+     * ShardedPhonebook#printPhonebook(PhonebookEntryWriter)}
+     */
+    @Override
+    public List<PhonebookEntry> findByPrefix(String prefix) {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        mergeEntries(invokeAll(shard -> () -> shard(shard).findByPrefix(prefix))).forEachRemaining(entries::add);
+        return entries;
+    }
+
+    /**
+     * @param name        The name to be looked up.
+     * @param maxDistance The maximum number of inserted, deleted or substituted characters.
+     * @return the entries whose name is within {@code maxDistance} edits of {@code name}, closest names first like
+     * {@link Phonebook#findSimilar(String, int)}
+     */
+    @Override
+    public List<PhonebookEntry> findSimilar(String name, int maxDistance) {
+        String folded = PhonebookEntry.foldName(name);
+        List<PhonebookEntry> entries = invokeAll(shard -> () -> shard(shard).findSimilar(name, maxDistance)).stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+        Map<String, Integer> distances = new HashMap<>();
+        entries.sort(Comparator.<PhonebookEntry, Integer>comparing(entry -> distances.computeIfAbsent(
+                PhonebookEntry.foldName(entry.getName()), candidate -> PhonebookSearchIndex.distance(folded, candidate, maxDistance)))
+                .thenComparing(entry -> PhonebookEntry.foldName(entry.getName())));
+        return entries;
+    }
+
+    /**
+     * @param number The number to be looked up, compared in its {@link PhonebookNumberIndex#normalize(String)} form.
+     * @return the entries with the same normalized number, shard after shard in the order they were added
+     */
+    @Override
+    public List<PhonebookEntry> findByNumber(String number) {
+        return invokeAll(shard -> () -> shard(shard).findByNumber(number)).stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads every shard.
+     *
+     * @return the entries of every shard, shard after shard in the order they are stored
+     */
+    @Override
+    public List<PhonebookEntry> getPhonebookEntryList() {
+        return invokeAll(shard -> () -> shard(shard).getPhonebookEntryList()).stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    /**
+     * Print the entries of this book in ascending order to {@code out}, which is flushed by the caller. Every shard is
+     * sorted by a task of its own and the sorted shards are merged while they are printed.
+     *
+     * @param out The writer the entries are printed to.
+     * @return {@code true} if entries are printed successfully, {@code false} if no entries in this book
+     * @throws IOException if {@code out} can't be written
+     */
+    @Override
+    public boolean printPhonebook(PhonebookEntryWriter out) throws IOException {
+        Iterator<PhonebookEntry> entries = sortedEntries();
+        if (!entries.hasNext()) {
+            out.writeLine("Current phone book has no entries.");
+            return false;
+        }
+        while (entries.hasNext()) {
+            out.writeEntry(entries.next());
+        }
+        return true;
+    }
+
+    /**
+     * Print the names which are in only one of this book and {@code phonebook} to {@code out}, which is flushed by the
+     * caller. The names of {@code phonebook} are partitioned like the names of this book, every shard is compared with
+     * its partition by {@link SymmetricDifference} in a task of its own, and the sorted names of the shards are merged.
+     * Sharded books with the same number of shards are compared shard by shard.
+     *
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @param out       The writer the names are printed to.
+     * @throws IOException if {@code out} can't be written
+     */
+    @Override
+    public void printUniqueEntries(PhonebookStore phonebook, PhonebookEntryWriter out) throws IOException {
+        printUniqueEntries(uniqueNames(partitionsOf(phonebook)), out);
+    }
+
+    /**
+     * The unique names of this book and {@code phonebook}, like {@link
+     * ShardedPhonebook#printUniqueEntries(PhonebookStore, PhonebookEntryWriter)} prints them. The shards are compared
+     * before this returns, their sorted names are merged while the stream is consumed.
+     *
+     * @param phonebook Another phonebook to be compare with this phonebook
+     * @return the names which are in only one of the books, in ascending order
+     */
+    @Override
+    public Stream<String> streamUniqueEntries(PhonebookStore phonebook) {
+        return stream(uniqueNames(partitionsOf(phonebook)));
+    }
+
+    private static void printUniqueEntries(Iterator<String> names, PhonebookEntryWriter out) throws IOException {
+        while (names.hasNext()) {
+            out.writeLine(names.next());
+        }
+    }
+
+    /**
+     * @return the entries of {@code phonebook} partitioned like the shards of this book, its own shards if it is a
+     * sharded book with as many
+     */
+    private List<? extends Collection<PhonebookEntry>> partitionsOf(PhonebookStore phonebook) {
+        if (phonebook instanceof ShardedPhonebook && ((ShardedPhonebook) phonebook).shardCount == shardCount) {
+            ShardedPhonebook sharded = (ShardedPhonebook) phonebook;
+            return sharded.invokeAll(shard -> () -> sharded.shard(shard).getPhonebookEntryList());
+        }
+        return partition(phonebook.getPhonebookEntryList());
+    }
+
+    private Iterator<String> uniqueNames(List<? extends Collection<PhonebookEntry>> partitions) {
+        List<List<String>> names = invokeAll(shard -> () -> {
+            List<String> unique = new ArrayList<>();
+            SymmetricDifference.of(shard(shard).getPhonebookEntryList(), partitions.get(shard), unique::add);
+            return unique;
+        });
+        return merge(names, name -> name);
+    }
+
+    /**
+     * The entries of this book in ascending order, like {@link ShardedPhonebook#printPhonebook(PhonebookEntryWriter)}
+     * prints them. The shards are loaded and sorted before this returns, they are merged while the stream is consumed.
+     *
+     * @return the entries in ascending order
+     */
+    @Override
+    public Stream<PhonebookEntry> streamPhonebook() {
+        return stream(sortedEntries());
+    }
+
+    /**
+     * Write the entries of this book to the single file {@code filename} in ascending order, like {@link
+     * Phonebook#writePhonebook(String, boolean)}.
+     *
+     * @param filename The file to be written.
+     * @param binary   {@code true} for the {@link BinaryPhonebook} format, {@code false} for the text format
+     * @throws RuntimeException if there is {@link IOException} being thrown
+     */
+    @Override
+    public void writePhonebook(String filename, boolean binary) {
+        Path path = Paths.get(filename);
+        try {
+            if (binary) {
+                BinaryPhonebook.write(getPhonebookEntryList(), path);
+            } else {
+                Iterator<PhonebookEntry> entries = sortedEntries();
+                AtomicFiles.writeLines(path, () -> new Iterator<CharSequence>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public CharSequence next() {
+                        return entries.next().toString();
+                    }
+                }, CompressedPhonebook.hasExtension(filename));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("File persistent failed.");
+        }
+    }
+
+    /**
+     * Closes the loaded shards, see {@link Phonebook#close()}.
+     */
+    @Override
+    public void close() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            Phonebook phonebook = shards.get(shard);
+            if (phonebook != null) {
+                phonebook.close();
+            }
+        }
+    }
+
+    Path shardPath(int shard) {
+        return directory.resolve(String.format("shard-%04d.txt", shard));
+    }
+
+    /**
+     * @return the {@link Phonebook} of {@code shard}, which is loaded by the first call
+     */
+    private Phonebook shard(int shard) {
+        Phonebook phonebook = shards.get(shard);
+        if (phonebook == null) {
+            synchronized (locks[shard]) {
+                phonebook = shards.get(shard);
+                if (phonebook == null) {
+                    phonebook = new Phonebook(shardPath(shard).toString());
+                    shards.set(shard, phonebook);
+                }
+            }
+        }
+        return phonebook;
+    }
+
+    /**
+     * Runs a task for every shard on the pool of this book.
+     *
+     * @param task The task of a shard.
+     * @return the results of the tasks in shard order
+     */
+    private <T> List<T> invokeAll(IntFunction<Callable<T>> task) {
+        List<ForkJoinTask<T>> tasks = IntStream.range(0, shardCount)
+                .mapToObj(shard -> ForkJoinTask.adapt(task.apply(shard)))
+                .collect(Collectors.toList());
+        List<T> results = new ArrayList<>(shardCount);
+        pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join().forEach(shard -> results.add(shard.join()));
+        return results;
+    }
+
+    private <T> List<List<T>> emptyPartitions() {
+        List<List<T>> partitions = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            partitions.add(new ArrayList<>());
+        }
+        return partitions;
+    }
+
+    private List<List<PhonebookEntry>> partition(Collection<PhonebookEntry> entries) {
+        List<List<PhonebookEntry>> partitions = emptyPartitions();
+        for (PhonebookEntry entry : entries) {
+            partitions.get(shardOf(entry.getName(), shardCount)).add(entry);
+        }
+        return partitions;
+    }
+
+    /**
+     * @return the entries of every shard in ascending order, each shard sorted by a task of its own
+     */
+    private Iterator<PhonebookEntry> sortedEntries() {
+        return mergeEntries(invokeAll(shard -> () -> Phonebook.sortedEntries(shard(shard).getPhonebookEntryList())));
+    }
+
+    /**
+     * Merges lists of entries in the order of {@link PhonebookEntry#compareTo}. A name is in one shard only, so the
+     * entries of a name keep the order of their list.
+     */
+    private Iterator<PhonebookEntry> mergeEntries(List<List<PhonebookEntry>> sorted) {
+        return merge(sorted, entry -> PhonebookEntry.foldName(entry.getName()));
+    }
+
+    /**
+     * Merges lists sorted by {@code key}, every list once, lazily.
+     */
+    private <T> Iterator<T> merge(List<List<T>> sorted, Function<T, String> key) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()), Comparator.comparing(head -> head.key));
+        for (List<T> list : sorted) {
+            Head.offer(heads, list.iterator(), key);
+        }
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (heads.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return Head.poll(heads, key);
+            }
+        };
+    }
+
+    private static <T> Stream<T> stream(Iterator<T> elements) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return the number of shards of the manifest of {@code directory}, which is written with {@code shards} first
+     * if there is none
+     */
+    private static int openManifest(Path directory, int shards) {
+        Path manifest = directory.resolve(MANIFEST);
+        try {
+            if (!Files.exists(manifest)) {
+                Files.createDirectories(directory);
+                AtomicFiles.writeLines(manifest, Arrays.asList(
+                        "version=" + VERSION,
+                        "shards=" + shards,
+                        "partitioner=" + PARTITIONER));
+                return shards;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(manifest)) {
+                properties.load(in);
+            }
+            int count = Integer.parseInt(properties.getProperty("shards", "0").trim());
+            if (!String.valueOf(VERSION).equals(properties.getProperty("version", "").trim())
+                    || !PARTITIONER.equals(properties.getProperty("partitioner", "").trim())
+                    || count < 1 || count > MAX_SHARDS) {
+                throw new RuntimeException(manifest + " is not a valid manifest.");
+            }
+            return count;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Opening " + directory + " failed. Reason: " + e.getMessage());
+            throw new RuntimeException("Error with reading files. " + e.getMessage());
+        }
+    }
+
+    /**
+     * The next element of a sorted list in a k-way merge, with its sort key.
+     */
+    private static final class Head<T> {
+        private final Iterator<T> iterator;
+        private T element;
+        private String key;
+
+        private Head(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        private static <T> void offer(PriorityQueue<Head<T>> heads, Iterator<T> iterator, Function<T, String> key) {
+            Head<T> head = new Head<>(iterator);
+            if (head.advance(key)) {
+                heads.add(head);
+            }
+        }
+
+        private static <T> T poll(PriorityQueue<Head<T>> heads, Function<T, String> key) {
+            Head<T> head = heads.poll();
+            T element = head.element;
+            if (head.advance(key)) {
+                heads.add(head);
+            }
+            return element;
+        }
+
+        private boolean advance(Function<T, String> key) {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            element = iterator.next();
+            this.key = key.apply(element);
+            return true;
+        }
+    }
+}
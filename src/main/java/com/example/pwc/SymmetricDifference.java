@@ -0,0 +1,230 @@
+package com.example.pwc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class finds the names which are in exactly one of two phone books. Both inputs are sorted by name and walked in
+ * a single merge pass, so the names come out already sorted and each input only has to be sorted once.
+ * <p>
+ * Names are compared exactly and in their natural {@link String} order, like {@link
+ * Phonebook#printUniqueEntries(PhonebookStore)} always did. A name which is repeated in a book is only reported once.
+ * <p>
+ * Every variant also returns a lazy {@link Stream}, eg {@link SymmetricDifference#stream(Path, Path, long, Path)},
+ * which merges the next names when the next name is pulled.
+ */
+public final class SymmetricDifference {
+    private SymmetricDifference() {
+    }
+
+    /**
+     * Merges two sorted name iterators and passes every name which is in exactly one of them to {@code consumer}, in
+     * ascending order.
+     *
+     * @param first    The names of the first book in ascending order. Duplicates are allowed.
+     * @param second   The names of the second book in ascending order. Duplicates are allowed.
+     * @param consumer Receives the names which are in only one book.
+     * @return the number of names passed to {@code consumer}
+     * @throws IllegalArgumentException if an input is not sorted
+     */
+    public static int merge(Iterator<String> first, Iterator<String> second, Consumer<? super String> consumer) {
+        int count = 0;
+        for (Iterator<String> names = new Merged(first, second); names.hasNext(); count++) {
+            consumer.accept(names.next());
+        }
+        return count;
+    }
+
+    /**
+     * Sorts the names of both lists in memory and merges them.
+     *
+     * @param first    The entries of the first book.
+     * @param second   The entries of the second book.
+     * @param consumer Receives the names which are in only one book.
+     * @return the number of names passed to {@code consumer}
+     */
+    public static int of(Collection<PhonebookEntry> first, Collection<PhonebookEntry> second, Consumer<? super String> consumer) {
+        return merge(sortedNames(first), sortedNames(second), consumer);
+    }
+
+    /**
+     * Streaming variant for phone book files which may not fit in memory. The names of each file are sorted by an
+     * {@link ExternalSorter} with half of {@code memoryBudget}, then merged while the sorted runs are read back.
+     * Lines which are not valid entries are skipped, a missing file has no names and a {@link CompressedPhonebook} is
+     * decompressed while it is read.
+     *
+     * @param first        The first phone book file.
+     * @param second       The second phone book file.
+     * @param memoryBudget The approximate number of bytes of names held in memory at once.
+     * @param tempDirectory The directory of the spilled runs, or {@code null} for the default temporary directory.
+     * @param consumer     Receives the names which are in only one book.
+     * @return the number of names passed to {@code consumer}
+     * @throws IOException if a file can't be read or the runs can't be spilled
+     */
+    public static int of(Path first, Path second, long memoryBudget, Path tempDirectory, Consumer<? super String> consumer)
+            throws IOException {
+        ExternalSorter<String> sorter = ExternalSorter.ofStrings(Math.max(1, memoryBudget / 2), tempDirectory);
+        try (Stream<String> firstLines = lines(first);
+             ExternalSorter.Sorted<String> firstNames = sorter.sort(names(firstLines));
+             Stream<String> secondLines = lines(second);
+             ExternalSorter.Sorted<String> secondNames = sorter.sort(names(secondLines))) {
+            return merge(firstNames, secondNames, consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Sorts the names of both lists in memory and merges them lazily.
+     *
+     * @param first  The entries of the first book.
+     * @param second The entries of the second book.
+     * @return the names which are in only one book, in ascending order
+     */
+    public static Stream<String> stream(Collection<PhonebookEntry> first, Collection<PhonebookEntry> second) {
+        return stream(new Merged(sortedNames(first), sortedNames(second)));
+    }
+
+    /**
+     * Streaming variant of {@link SymmetricDifference#of(Path, Path, long, Path, Consumer)}. Both files are read and
+     * their names sorted before this returns, the sorted runs are merged while the stream is consumed. The stream must
+     * be closed to delete the spilled runs.
+     *
+     * @param first         The first phone book file.
+     * @param second        The second phone book file.
+     * @param memoryBudget  The approximate number of bytes of names held in memory at once.
+     * @param tempDirectory The directory of the spilled runs, or {@code null} for the default temporary directory.
+     * @return the names which are in only one book, in ascending order
+     * @throws IOException if a file can't be read or the runs can't be spilled
+     */
+    public static Stream<String> stream(Path first, Path second, long memoryBudget, Path tempDirectory) throws IOException {
+        ExternalSorter<String> sorter = ExternalSorter.ofStrings(Math.max(1, memoryBudget / 2), tempDirectory);
+        ExternalSorter.Sorted<String> firstNames = sortedNames(sorter, first);
+        ExternalSorter.Sorted<String> secondNames;
+        try {
+            secondNames = sortedNames(sorter, second);
+        } catch (IOException | RuntimeException e) {
+            firstNames.close();
+            throw e;
+        }
+        return stream(new Merged(firstNames, secondNames)).onClose(() -> {
+            try {
+                try {
+                    firstNames.close();
+                } finally {
+                    secondNames.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Stream<String> stream(Iterator<String> names) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(names,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    private static ExternalSorter.Sorted<String> sortedNames(ExternalSorter<String> sorter, Path path) throws IOException {
+        try (Stream<String> lines = lines(path)) {
+            return sorter.sort(names(lines));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Iterator<String> sortedNames(Collection<PhonebookEntry> entries) {
+        String[] names = new String[entries.size()];
+        int i = 0;
+        for (PhonebookEntry entry : entries) {
+            names[i++] = entry.getName();
+        }
+        Arrays.sort(names);
+        return Arrays.asList(names).iterator();
+    }
+
+    private static Stream<String> lines(Path path) throws IOException {
+        return Files.exists(path) ? CompressedPhonebook.lines(path) : Stream.empty();
+    }
+
+    private static Iterator<String> names(Stream<String> lines) {
+        return lines.map(PhonebookEntryParser::parse).filter(Objects::nonNull).map(PhonebookEntry::getName).iterator();
+    }
+
+    /**
+     * Walks two sorted name iterators in a single merge pass, one selected name ahead of the caller.
+     */
+    private static final class Merged implements Iterator<String> {
+        private final Iterator<String> first;
+        private final Iterator<String> second;
+        private String a;
+        private String b;
+        private String next;
+
+        private Merged(Iterator<String> first, Iterator<String> second) {
+            this.first = first;
+            this.second = second;
+            this.a = nextDistinct(first, null);
+            this.b = nextDistinct(second, null);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && (a != null || b != null)) {
+                int compare = a == null ? 1 : b == null ? -1 : a.compareTo(b);
+                if (compare < 0) {
+                    next = a;
+                    a = nextDistinct(first, a);
+                } else if (compare > 0) {
+                    next = b;
+                    b = nextDistinct(second, b);
+                } else {
+                    a = nextDistinct(first, a);
+                    b = nextDistinct(second, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next name of {@code names} which is not {@code current}, or {@code null} at the end
+     */
+    private static String nextDistinct(Iterator<String> names, String current) {
+        while (names.hasNext()) {
+            String name = names.next();
+            if (current == null) {
+                return name;
+            }
+            int compare = name.compareTo(current);
+            if (compare > 0) {
+                return name;
+            }
+            if (compare < 0) {
+                throw new IllegalArgumentException("Names are not sorted: " + name + " after " + current);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AtomicFilesTest {
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("pwc-atomic");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String permissions(Path path) throws IOException {
+        return PosixFilePermissions.toString(Files.getPosixFilePermissions(path));
+    }
+
+    @Test
+    void givenExistingFile_whenReplaced_thenPermissionsAndOwnerAreKept() throws IOException {
+        Path book = directory.resolve("book.txt");
+        Files.write(book, Collections.singletonList("PhonebookEntry(name=John Citizen, number=0414557988)"));
+        for (String mode : Arrays.asList("rw-r--r--", "rw-rw----", "r--------")) {
+            Files.setPosixFilePermissions(book, PosixFilePermissions.fromString(mode));
+            AtomicFiles.writeLines(book, Collections.singletonList("PhonebookEntry(name=Angela McDowell, number=0418100200)"));
+            assertEquals(mode, permissions(book));
+            BinaryPhonebook.write(new Phonebook(book.toString()).getPhonebookEntryList(), directory.resolve("book.bin"));
+            Files.setPosixFilePermissions(directory.resolve("book.bin"), PosixFilePermissions.fromString(mode));
+            BinaryPhonebook.write(Collections.emptyList(), directory.resolve("book.bin"));
+            assertEquals(mode, permissions(directory.resolve("book.bin")));
+            assertEquals(Files.getOwner(directory), Files.getOwner(book));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void givenNewFile_whenWritten_thenItGetsTheDefaultPermissionsOfANewFile() throws IOException {
+        Path plain = Files.createFile(directory.resolve("plain.txt"));
+        Path book = directory.resolve("book.txt");
+        AtomicFiles.writeLines(book, Collections.singletonList("PhonebookEntry(name=John Citizen, number=0414557988)"), true);
+        assertEquals(permissions(plain), permissions(book));
+    }
+}
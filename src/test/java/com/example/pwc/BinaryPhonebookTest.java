@@ -0,0 +1,114 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryPhonebookTest {
+    private static final String INPUT = "src/test/resources/binary/input/default.txt";
+    private static final String RESULT = "src/test/resources/binary/result/default.pwcb";
+
+    @Test
+    void givenTextBook_whenWriteAndOpen_thenEntriesAreSortedStably() throws IOException {
+        List<PhonebookEntry> entries = new Phonebook(INPUT).getPhonebookEntryList();
+        BinaryPhonebook.write(entries, Paths.get(RESULT), 2);
+        BinaryPhonebook book = BinaryPhonebook.open(Paths.get(RESULT));
+        List<PhonebookEntry> expected = entries.stream().sorted().collect(Collectors.toList());
+        assertEquals(entries.size(), book.size());
+        assertEquals(expected, book.toList());
+        assertTrue(book.verify());
+        assertTrue(BinaryPhonebook.isBinary(Paths.get(RESULT)));
+        assertFalse(BinaryPhonebook.isBinary(Paths.get(INPUT)));
+    }
+
+    @Test
+    void givenEveryIndexInterval_whenFindByName_thenResultMatchesLinearSearch() throws IOException {
+        List<PhonebookEntry> entries = new Phonebook(INPUT).getPhonebookEntryList();
+        List<String> names = Arrays.asList("john citizen", "ANGELA MCDOWELL", "Aaron", "Zed Zulu", "Zz", "Shanz Gate",
+                "Danny O'Connell", "Dr. William Vo");
+        for (int interval = 1; interval <= entries.size() + 1; interval++) {
+            BinaryPhonebook.write(entries, Paths.get(RESULT), interval);
+            BinaryPhonebook book = BinaryPhonebook.open(Paths.get(RESULT));
+            for (String name : names) {
+                List<PhonebookEntry> expected = entries.stream().sorted().filter(e -> e.getName().equalsIgnoreCase(name))
+                        .collect(Collectors.toList());
+                assertEquals(expected, book.findByName(name), name + " every " + interval);
+                assertEquals(!expected.isEmpty(), book.containsName(name), name + " every " + interval);
+            }
+        }
+    }
+
+    @Test
+    void givenNullNumberAndEmptyBook_whenWriteAndOpen_thenRoundTrip() throws IOException {
+        PhonebookEntry entry = PhonebookEntry.builder().name("Nul Number").build();
+        BinaryPhonebook.write(Collections.singletonList(entry), Paths.get(RESULT));
+        assertEquals(Collections.singletonList(entry), BinaryPhonebook.open(Paths.get(RESULT)).toList());
+        BinaryPhonebook.write(Collections.emptyList(), Paths.get(RESULT));
+        BinaryPhonebook book = BinaryPhonebook.open(Paths.get(RESULT));
+        assertEquals(0, book.size());
+        assertTrue(book.findByName("Nul Number").isEmpty());
+        assertFalse(book.iterator().hasNext());
+    }
+
+    @Test
+    void givenCorruptRecord_whenOpened_thenItIsRejected() throws IOException {
+        BinaryPhonebook.write(new Phonebook(INPUT).getPhonebookEntryList(), Paths.get(RESULT));
+        Path corrupt = Paths.get("src/test/resources/binary/result/corrupt.pwcb");
+        Files.copy(Paths.get(RESULT), corrupt, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(corrupt, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), BinaryPhonebook.HEADER_SIZE + 3);
+        }
+        IOException e = assertThrows(IOException.class, () -> BinaryPhonebook.open(corrupt));
+        assertTrue(e.getMessage().contains("checksum"));
+        assertThrows(RuntimeException.class, () -> new Phonebook(corrupt.toString()));
+        String converted = "src/test/resources/binary/result/corrupt.txt";
+        Files.deleteIfExists(Paths.get(converted));
+        assertThrows(RuntimeException.class, () -> new PhonebookService().convertPhonebook(corrupt.toString(), converted, false));
+        assertFalse(Files.exists(Paths.get(converted)));
+    }
+
+    @Test
+    void givenTextFile_whenOpen_thenThrowIOException() {
+        assertThrows(IOException.class, () -> BinaryPhonebook.open(Paths.get(INPUT)));
+    }
+
+    @Test
+    void givenBinaryBook_whenPhonebookIsLoaded_thenItIsSearchedAndPrintedLikeTheTextBook() throws IOException {
+        Phonebook text = new Phonebook(INPUT);
+        BinaryPhonebook.write(text.getPhonebookEntryList(), Paths.get(RESULT));
+        Phonebook binary = new Phonebook(RESULT);
+        assertEquals(text.findByName("john citizen"), binary.findByName("JOHN CITIZEN"));
+        assertTrue(binary.containsName("zed zulu"));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        text.printPhonebook(new PrintStream(expected));
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        binary.printPhonebook(new PrintStream(actual));
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    void givenBinaryBook_whenEntryIsAdded_thenBookIsPersistedInBinaryFormat() throws IOException {
+        BinaryPhonebook.write(new Phonebook(INPUT).getPhonebookEntryList(), Paths.get(RESULT));
+        Phonebook phonebook = new Phonebook(RESULT);
+        assertTrue(phonebook.addEntry("PhonebookEntry(name=Aaron Able, number=0400000000)"));
+        assertTrue(phonebook.removeEntry("Zed Zulu"));
+        assertTrue(BinaryPhonebook.isBinary(Paths.get(RESULT)));
+        BinaryPhonebook book = BinaryPhonebook.open(Paths.get(RESULT));
+        assertEquals(9, book.size());
+        assertEquals("Aaron Able", book.iterator().next().getName());
+        assertFalse(book.containsName("Zed Zulu"));
+        assertTrue(book.verify());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEntryStoreTest {
+    private static final String INPUT = "src/test/resources/number/input/default.txt";
+
+    @Test
+    void givenEntries_whenCopiedIntoStore_thenEveryEntryIsReadBackEqual() {
+        List<PhonebookEntry> entries = new Phonebook(INPUT).getPhonebookEntryList();
+        ColumnarEntryStore store = new ColumnarEntryStore(entries);
+        assertEquals(entries, store);
+        assertEquals(entries, new ArrayList<>(store));
+        assertEquals(entries.hashCode(), store.hashCode());
+    }
+
+    @Test
+    void givenNumbersOfEveryKind_whenAdd_thenNumbersAreDecodedUnchanged() {
+        ColumnarEntryStore store = new ColumnarEntryStore();
+        List<String> numbers = Arrays.asList("0418100200", "000", "0", "999999999999999999", "1234567890123456789",
+                "(04) 1810-0200", "+61 2 8834 5647", "04\u00001810", "+ ()", "1234 5678 9012 3456 7890", "null", null, "");
+        numbers.forEach(number -> store.add(PhonebookEntry.builder().name("Ángela Ñúñez").number(number).build()));
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(numbers.get(i), store.get(i).getNumber());
+            assertEquals("Ángela Ñúñez", store.get(i).getName());
+        }
+    }
+
+    @Test
+    void givenStore_whenFindByName_thenNamesAreMatchedCaseInsensitive() {
+        ColumnarEntryStore store = new ColumnarEntryStore(new Phonebook(INPUT).getPhonebookEntryList());
+        store.add(PhonebookEntry.builder().name("angela mcdowell").number("1").build());
+        assertEquals(0, store.indexOfName("ANGELA MCDOWELL"));
+        assertEquals(2, store.findByName("Angela McDowell").size());
+        assertEquals("1", store.findByName("Angela McDowell").get(1).getNumber());
+        assertEquals(-1, store.indexOfName("Angela"));
+        assertTrue(store.findByName("Angela McDowell Jr").isEmpty());
+        store.add(PhonebookEntry.builder().name("Ángela").number("2").build());
+        assertEquals(store.size() - 1, store.indexOfName("ÁNGELA"));
+        assertEquals(0, store.indexOfName("angela MCDOWELL"));
+    }
+
+    @Test
+    void givenRandomAddsSetsAndRemoves_whenCompared_thenStoreMatchesArrayList() {
+        Random random = new Random(20200614L);
+        ColumnarEntryStore store = new ColumnarEntryStore();
+        List<PhonebookEntry> expected = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            int operation = random.nextInt(4);
+            PhonebookEntry entry = PhonebookEntry.builder().name("Name " + random.nextInt(1000))
+                    .number(random.nextBoolean() ? "04" + random.nextInt(100_000) : "(04) " + random.nextInt(100_000)).build();
+            if (expected.isEmpty() || operation < 2) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, entry);
+                store.add(index, entry);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, entry), store.set(index, entry));
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), store.remove(index));
+            }
+        }
+        assertEquals(expected, store);
+        store.clear();
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    void givenRandomMutationsAfterLookups_whenFindByName_thenIndexMatchesScan() {
+        Random random = new Random(20200615L);
+        ColumnarEntryStore store = new ColumnarEntryStore();
+        List<PhonebookEntry> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int operation = random.nextInt(6);
+            PhonebookEntry entry = PhonebookEntry.builder().name(random.nextBoolean() ? "Name " + random.nextInt(300)
+                    : "NAME " + random.nextInt(300)).number("04" + i).build();
+            if (expected.isEmpty() || operation < 2) {
+                int index = random.nextBoolean() ? expected.size() : random.nextInt(expected.size() + 1);
+                expected.add(index, entry);
+                store.add(index, entry);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size());
+                expected.set(index, entry);
+                store.set(index, entry);
+            } else if (operation == 3) {
+                int index = random.nextInt(expected.size());
+                expected.remove(index);
+                store.remove(index);
+            } else if (operation == 4 && random.nextInt(100) == 0) {
+                int from = random.nextInt(expected.size());
+                expected.subList(from, Math.min(expected.size(), from + 10)).clear();
+                store.subList(from, Math.min(store.size(), from + 10)).clear();
+            } else {
+                String name = "name " + random.nextInt(300);
+                List<PhonebookEntry> matches = new ArrayList<>();
+                expected.stream().filter(e -> e.getName().equalsIgnoreCase(name)).forEach(matches::add);
+                assertEquals(matches, store.findByName(name));
+                assertEquals(matches.isEmpty() ? -1 : expected.indexOf(matches.get(0)), store.indexOfName(name));
+            }
+        }
+        assertEquals(expected, store);
+    }
+
+    @Test
+    void givenManyRemoves_whenArenaIsMostlyGarbage_thenItIsCompacted() {
+        ColumnarEntryStore store = new ColumnarEntryStore();
+        for (int i = 0; i < 100_000; i++) {
+            store.add(PhonebookEntry.builder().name("Name " + i).number("+61 " + i).build());
+        }
+        long footprint = store.footprint();
+        store.subList(0, 99_000).clear();
+        for (int i = 0; i < 1_000; i++) {
+            store.set(i, store.get(i));
+        }
+        assertEquals(1_000, store.size());
+        assertEquals("Name 99000", store.get(0).getName());
+        assertEquals("+61 99999", store.get(999).getNumber());
+        store.add(PhonebookEntry.builder().name("Name").number("1").build());
+        assertTrue(store.footprint() < footprint);
+    }
+
+    @Test
+    void givenIndexOutOfRange_whenGet_thenIndexOutOfBoundsException() {
+        ColumnarEntryStore store = new ColumnarEntryStore();
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.add(1, PhonebookEntry.builder().name("Name").build()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedPhonebookTest {
+    private static final Path DUPLICATES = Paths.get("src/test/resources/sort/input/duplicates.txt");
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void givenNewBookWithGzExtension_whenAddEntry_thenBookIsCompressedAndLoadsBack() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-compressed");
+        try {
+            String filename = directory.resolve("book.txt.GZ").toString();
+            Phonebook phonebook = new Phonebook(filename);
+            assertTrue(phonebook.addEntry("PhonebookEntry(name=John Citizen, number=0414557988)"));
+            assertTrue(phonebook.addEntry("PhonebookEntry(name=Angela McDowell, number=0418100200)"));
+            assertTrue(CompressedPhonebook.isCompressed(Paths.get(filename)));
+            assertEquals(phonebook.getPhonebookEntryList(), new Phonebook(filename).getPhonebookEntryList());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void givenCompressedBookWithoutExtension_whenLoaded_thenItIsDetectedAndStaysCompressed() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-compressed");
+        try {
+            Path book = directory.resolve("book.txt");
+            List<String> lines = Files.readAllLines(DUPLICATES);
+            AtomicFiles.writeLines(book, lines, true);
+            assertTrue(CompressedPhonebook.isCompressed(book));
+            Phonebook phonebook = new Phonebook(book.toString());
+            assertEquals(new Phonebook(DUPLICATES.toString()).getPhonebookEntryList(), phonebook.getPhonebookEntryList());
+            assertTrue(phonebook.removeEntry("John Citizen"));
+            assertTrue(CompressedPhonebook.isCompressed(book));
+            assertEquals(phonebook.getPhonebookEntryList(), new Phonebook(book.toString()).getPhonebookEntryList());
+
+            Path exported = directory.resolve("exported.txt");
+            phonebook.writePhonebook(exported.toString(), false);
+            assertFalse(CompressedPhonebook.isCompressed(exported));
+            try (Stream<String> compressed = CompressedPhonebook.lines(book)) {
+                assertEquals(Files.readAllLines(exported), compressed.collect(Collectors.toList()));
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void givenCompressedBook_whenPrintedWithExternalSort_thenOutputMatchesPlainBook() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-compressed");
+        try {
+            Path book = directory.resolve("book.gz");
+            AtomicFiles.writeLines(book, Files.readAllLines(DUPLICATES), true);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new ExternalSortPrinter(1).print(DUPLICATES, new PrintStream(expected));
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new ExternalSortPrinter(1).print(book, new PrintStream(actual));
+            assertEquals(expected.toString(), actual.toString());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void givenCompressedBookRewrittenByAnotherBook_whenReload_thenChangesAreLoaded() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-compressed");
+        try {
+            String filename = directory.resolve("book.gz").toString();
+            Phonebook reader = new Phonebook(filename);
+            Phonebook writer = new Phonebook(filename);
+            assertTrue(writer.addEntry("PhonebookEntry(name=John Citizen, number=0414557988)"));
+            assertTrue(reader.reload());
+            assertEquals(writer.getPhonebookEntryList(), reader.getPhonebookEntryList());
+            assertFalse(reader.reload());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void givenPlainShortAndMissingFiles_whenIsCompressed_thenFalse() throws IOException {
+        assertFalse(CompressedPhonebook.isCompressed(DUPLICATES));
+        assertFalse(CompressedPhonebook.isCompressed(Paths.get("src/test/resources/sort/input/missing.gz")));
+        assertFalse(CompressedPhonebook.isCompressed(Paths.get("src/test/resources/sort/input")));
+        assertTrue(CompressedPhonebook.hasExtension("book.txt.gz"));
+        assertFalse(CompressedPhonebook.hasExtension("gz"));
+        assertFalse(CompressedPhonebook.hasExtension("book.tgz.txt"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentPhonebookTest {
+    private static final String INPUT = "src/test/resources/concurrent/input/default.txt";
+    private static final String RESULT = "src/test/resources/concurrent/result/default.txt";
+    private static final int THREADS = 8;
+    private static final int ENTRIES_PER_THREAD = 50;
+
+    @Test
+    void givenBook_whenLoaded_thenEntriesCanBeFoundCaseInsensitive() throws IOException {
+        Files.copy(Paths.get(INPUT), Paths.get(RESULT), StandardCopyOption.REPLACE_EXISTING);
+        ConcurrentPhonebook phonebook = new ConcurrentPhonebook(RESULT);
+        assertEquals(new Phonebook(INPUT).getPhonebookEntryList(), phonebook.getPhonebookEntryList());
+        assertEquals(2, phonebook.findByName("ANGELA MCDOWELL").size());
+        assertTrue(phonebook.containsName("zed zulu"));
+        assertTrue(phonebook.removeEntry("Zed Zulu"));
+        assertFalse(phonebook.containsName("zed zulu"));
+        assertFalse(phonebook.removeEntry("Zed Zulu"));
+        assertFalse(phonebook.addEntry("not an entry"));
+    }
+
+    @Test
+    void givenCompressedBook_whenMutated_thenItIsPersistedCompressed() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-concurrent-test");
+        Path book = directory.resolve("default.txt" + CompressedPhonebook.EXTENSION);
+        Path newBook = directory.resolve("new.txt" + CompressedPhonebook.EXTENSION);
+        try {
+            AtomicFiles.writeLines(book, Files.readAllLines(Paths.get(INPUT)), true);
+            ConcurrentPhonebook phonebook = new ConcurrentPhonebook(book.toString());
+            assertTrue(phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)"));
+            assertTrue(CompressedPhonebook.isCompressed(book));
+            assertEquals(phonebook.getPhonebookEntryList(), new Phonebook(book.toString()).getPhonebookEntryList());
+
+            assertTrue(new ConcurrentPhonebook(newBook.toString()).addEntry("PhonebookEntry(name=Zed Zulu, number=0400)"));
+            assertTrue(CompressedPhonebook.isCompressed(newBook));
+        } finally {
+            Files.deleteIfExists(book);
+            Files.deleteIfExists(newBook);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void givenConcurrentWritersAndReaders_whenBookIsMutated_thenNoWriteIsLostAndFileIsConsistent() throws Exception {
+        Path directory = Files.createTempDirectory("pwc-concurrent-test");
+        Path book = directory.resolve("default.txt");
+        try {
+            assertConcurrentMutations(book);
+        } finally {
+            Files.deleteIfExists(book);
+            Files.delete(directory);
+        }
+    }
+
+    private static void assertConcurrentMutations(Path book) throws Exception {
+        Files.copy(Paths.get(INPUT), book);
+        String filename = book.toString();
+        ConcurrentPhonebook phonebook = new ConcurrentPhonebook(filename);
+        int initial = phonebook.getPhonebookEntryList().size();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                int reads = 0;
+                while (writing.get()) {
+                    List<PhonebookEntry> snapshot = new Phonebook(filename).getPhonebookEntryList();
+                    assertTrue(snapshot.size() >= initial - THREADS, "partial file with " + snapshot.size() + " entries");
+                    phonebook.findByName("Writer 0 Entry");
+                    reads++;
+                }
+                return reads;
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                char writer = (char) ('A' + t);
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                        assertTrue(phonebook.addEntry("PhonebookEntry(name=Writer " + writer + " Entry, number=04" + i + ")"));
+                    }
+                    assertTrue(phonebook.removeEntry("Writer " + writer + " Entry"));
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+        int expected = initial + THREADS * (ENTRIES_PER_THREAD - 1);
+        assertEquals(expected, phonebook.getPhonebookEntryList().size());
+        assertEquals(phonebook.getPhonebookEntryList(), new Phonebook(filename).getPhonebookEntryList());
+        assertEquals(ENTRIES_PER_THREAD - 1, phonebook.findByName("writer c entry").size());
+        try (Stream<Path> files = Files.list(book.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+}
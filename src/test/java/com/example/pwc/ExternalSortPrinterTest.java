@@ -0,0 +1,58 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSortPrinterTest {
+    private static final String DUPLICATES = "src/test/resources/sort/input/duplicates.txt";
+
+    @Test
+    void givenBudgetForOneEntry_whenPrint_thenOutputMatchesInMemoryPrint() throws IOException {
+        assertSameAsPrintPhonebook(Paths.get(DUPLICATES), new ExternalSortPrinter(1));
+    }
+
+    @Test
+    void givenMoreRunsThanOneMergeTakes_whenPrint_thenOutputMatchesInMemoryPrint() throws IOException {
+        assertSameAsPrintPhonebook(Paths.get(DUPLICATES), new ExternalSortPrinter(1, null, 2));
+        assertSameAsPrintPhonebook(Paths.get(DUPLICATES), new ExternalSortPrinter(300, null, 3));
+    }
+
+    @Test
+    void givenBudgetForWholeBook_whenPrint_thenOutputMatchesInMemoryPrint() throws IOException {
+        assertSameAsPrintPhonebook(Paths.get(DUPLICATES), new ExternalSortPrinter(ExternalSortPrinter.DEFAULT_MEMORY_BUDGET));
+    }
+
+    @Test
+    void givenTestResources_whenPrint_thenOutputMatchesInMemoryPrint() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get("src/test/resources/phoneBook"))) {
+            for (Path path : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                assertSameAsPrintPhonebook(path, new ExternalSortPrinter(200, null, 2));
+            }
+        }
+    }
+
+    @Test
+    void givenMissingBook_whenPrint_thenNoEntriesIsPrinted() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(new ExternalSortPrinter(1).print(Paths.get("src/test/resources/sort/input/missing.txt"), out));
+        assertEquals("Current phone book has no entries.", out.toString().trim());
+    }
+
+    private static void assertSameAsPrintPhonebook(Path path, ExternalSortPrinter printer) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        boolean expectedResult = new Phonebook(path.toString()).printPhonebook(new PrintStream(expected));
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        assertEquals(expectedResult, printer.print(path, actual), path.toString());
+        assertEquals(expected.toString(), actual.toString(), path.toString());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSorterTest {
+
+    @Test
+    void givenBudgetForOneString_whenSort_thenStringsAreSortedAndRunsAreDeleted() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-sorter-test");
+        try {
+            List<String> input = Arrays.asList("d", "b", "a", "c", "b", "e");
+            List<String> result = new ArrayList<>();
+            try (ExternalSorter.Sorted<String> sorted = ExternalSorter.ofStrings(1, directory).sort(input.iterator())) {
+                sorted.forEachRemaining(result::add);
+            }
+            assertEquals(Arrays.asList("a", "b", "b", "c", "d", "e"), result);
+            assertEmpty(directory);
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void givenMoreRunsThanOneMergeTakes_whenSort_thenEqualRecordsKeepTheirInputOrder() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-sorter-test");
+        try {
+            ExternalSorter<String> sorter = new ExternalSorter<>(Comparator.comparing(s -> s.charAt(0)),
+                    Function.identity(), Function.identity(), s -> 1, 2, directory, 2);
+            List<String> input = new ArrayList<>();
+            Random random = new Random(20200601L);
+            for (int i = 0; i < 200; i++) {
+                input.add((char) ('a' + random.nextInt(5)) + Integer.toString(i));
+            }
+            List<String> expected = new ArrayList<>(input);
+            expected.sort(Comparator.comparing(s -> s.charAt(0)));
+            List<String> result = new ArrayList<>();
+            try (ExternalSorter.Sorted<String> sorted = sorter.sort(input.iterator())) {
+                sorted.forEachRemaining(result::add);
+            }
+            assertEquals(expected, result);
+            assertEmpty(directory);
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void givenBudgetForWholeInput_whenSort_thenNothingIsSpilled() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-sorter-test");
+        try {
+            ExternalSorter<String> sorter = ExternalSorter.ofStrings(ExternalSortPrinter.DEFAULT_MEMORY_BUDGET, directory);
+            try (ExternalSorter.Sorted<String> sorted = sorter.sort(Arrays.asList("b", "a").iterator())) {
+                assertEmpty(directory);
+                assertEquals("a", sorted.next());
+                assertEquals("b", sorted.next());
+                assertFalse(sorted.hasNext());
+            }
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    private static void assertEmpty(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
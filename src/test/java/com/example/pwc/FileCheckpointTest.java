@@ -0,0 +1,65 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCheckpointTest {
+
+    @Test
+    void givenLinesAcrossChunks_whenReadLines_thenOnlyCompleteLinesAreConsumed() throws IOException {
+        Path file = Files.createTempFile("pwc-checkpoint", ".txt");
+        try {
+            StringBuilder content = new StringBuilder();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                String line = "PhonebookEntry(name=Zoë " + i + ", number=" + i + ")";
+                expected.add(line);
+                content.append(line).append(i % 2 == 0 ? "\n" : "\r\n");
+            }
+            content.append("PhonebookEntry(name=Partial");
+            byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+            Files.write(file, bytes);
+            List<String> lines = new ArrayList<>();
+            long consumed = FileCheckpoint.ABSENT.readLines(file, bytes.length, lines::add);
+            assertEquals(expected, lines);
+            assertEquals(bytes.length - "PhonebookEntry(name=Partial".length(), consumed);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void givenCheckpoint_whenFileChanges_thenChangeIsClassified() throws IOException {
+        Path file = Files.createTempFile("pwc-checkpoint", ".txt");
+        try {
+            Files.write(file, Arrays.asList("first", "second"));
+            FileCheckpoint checkpoint = FileCheckpoint.ofComplete(file, FileCheckpoint.stat(file), Files.size(file));
+            assertEquals(FileCheckpoint.Change.UNCHANGED, checkpoint.changeOf(file, FileCheckpoint.stat(file)));
+            Files.write(file, Arrays.asList("third"), StandardOpenOption.APPEND);
+            assertEquals(FileCheckpoint.Change.APPENDED, checkpoint.changeOf(file, FileCheckpoint.stat(file)));
+            Files.write(file, Arrays.asList("First", "second", "third"));
+            assertEquals(FileCheckpoint.Change.REWRITTEN, checkpoint.changeOf(file, FileCheckpoint.stat(file)));
+            Files.write(file, Arrays.asList("first"));
+            assertEquals(FileCheckpoint.Change.REWRITTEN, checkpoint.changeOf(file, FileCheckpoint.stat(file)));
+            Files.write(file, "first".getBytes(StandardCharsets.UTF_8));
+            FileCheckpoint partial = FileCheckpoint.ofComplete(file, FileCheckpoint.stat(file), Files.size(file));
+            Files.write(file, "more".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            assertEquals(FileCheckpoint.Change.REWRITTEN, partial.changeOf(file, FileCheckpoint.stat(file)));
+            Files.delete(file);
+            assertEquals(FileCheckpoint.Change.REWRITTEN, checkpoint.changeOf(file, FileCheckpoint.stat(file)));
+            assertEquals(FileCheckpoint.Change.UNCHANGED, FileCheckpoint.ABSENT.changeOf(file, FileCheckpoint.stat(file)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void givenEveryMagnitude_whenBucketed_thenHighestValueIsWithinThreePercent() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1_000, 999_999, 1L << 40, Long.MAX_VALUE}) {
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.bucket(value));
+            assertTrue(highest >= value, "value " + value);
+            assertTrue(highest - value <= value / 32, "value " + value);
+        }
+        for (int bucket = 1; bucket < LatencyHistogram.bucket(Long.MAX_VALUE); bucket++) {
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.highestValue(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.highestValue(bucket - 1) + 1));
+        }
+    }
+
+    @Test
+    void givenUniformLatencies_whenPercentile_thenValuesAreWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+        assertEquals(100_000, histogram.count());
+        assertEquals(50_000_500, histogram.mean(), 0.5);
+        assertEquals(50_000_000, histogram.percentile(50), 50_000_000 / 32);
+        assertEquals(99_000_000, histogram.percentile(99), 99_000_000 / 32);
+        assertEquals(100_000_000, histogram.max(), 100_000_000 / 32);
+        assertEquals(1_000, histogram.percentile(0), 1_000 / 32);
+    }
+
+    @Test
+    void givenCopy_whenMoreLatenciesAreRecorded_thenMinusHoldsOnlyTheNewOnes() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(20200614L);
+        for (int i = 0; i < 10_000; i++) {
+            histogram.record(random.nextInt(1_000_000));
+        }
+        LatencyHistogram earlier = histogram.copy();
+        histogram.record(5_000_000_000L);
+        histogram.record(5_000_000_000L);
+        LatencyHistogram interval = histogram.minus(earlier);
+        assertEquals(2, interval.count());
+        assertEquals(5_000_000_000L, interval.percentile(50), 5_000_000_000L / 32);
+        assertEquals(10_000, earlier.count());
+        assertTrue(earlier.max() < 1_100_000);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.max());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedPhonebookLoaderTest {
+
+    @Test
+    void givenMixedLineEndings_whenLoadedInTinyChunks_thenEntriesMatchSequentialLoad() throws IOException {
+        Path path = Paths.get("src/test/resources/mapped/input/mixedLineEndings.txt");
+        for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            List<PhonebookEntry> entries = new MappedPhonebookLoader(ForkJoinPool.commonPool(), chunkSize).load(path);
+            assertEquals(sequentialLoad(path), entries, "chunkSize " + chunkSize);
+        }
+        assertEquals(5, new MappedPhonebookLoader().load(path).size());
+    }
+
+    @Test
+    void givenTestResources_whenLoaded_thenEntriesMatchSequentialLoad() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (Stream<Path> files = Files.walk(Paths.get("src/test/resources/phoneBook"))) {
+            for (Path path : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                assertEquals(sequentialLoad(path), new MappedPhonebookLoader(pool, 100).load(path), path.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void givenEmptyFile_whenLoaded_thenNoEntries() throws IOException {
+        Path path = Paths.get("src/test/resources/mapped/input/empty.txt");
+        assertTrue(new MappedPhonebookLoader().load(path).isEmpty());
+    }
+
+    private static List<PhonebookEntry> sequentialLoad(Path path) throws IOException {
+        try (Stream<String> lines = Files.lines(path)) {
+            return lines.map(PhonebookEntryParser::parse).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedPhonebookTest {
+    private static final int ENTRIES = 3_000;
+    private Path book;
+
+    private static String name(int i) {
+        StringBuilder name = new StringBuilder("Name ");
+        do {
+            name.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return name.toString();
+    }
+
+    @BeforeEach
+    void writeBook() throws IOException {
+        book = Files.createTempFile("pwc-paged", ".txt");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < ENTRIES; i++) {
+            lines.append("PhonebookEntry(name=").append(i % 100 == 7 ? name(i - 1).toUpperCase() : name(i))
+                    .append(", number=04").append(i).append(')').append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 500 == 0) {
+                lines.append("PhonebookEntry(name=Invalid ").append(i).append(", number=0)\n\n");
+            }
+        }
+        lines.append("PhonebookEntry(name=Last Line, number=null)");
+        Files.write(book, lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void deleteBook() throws IOException {
+        Files.deleteIfExists(book);
+    }
+
+    @Test
+    void givenBook_whenOpened_thenNoPageIsParsedAndLookupsMatchTheLoadedBook() throws IOException {
+        Phonebook loaded = new Phonebook(book.toString());
+        try (PagedPhonebook paged = PagedPhonebook.open(book, 1024, 4)) {
+            assertEquals(0, paged.pageLoads());
+            assertTrue(paged.pageCount() > 100);
+            for (String name : Arrays.asList(name(0), name(6), "name g", name(1234), name(ENTRIES - 1), "Last Line")) {
+                assertEquals(loaded.findByName(name), paged.findByName(name), name);
+                assertTrue(paged.containsName(name), name);
+            }
+            long before = paged.pageLoads();
+            for (String name : Arrays.asList("Missing Name", "Invalid", "Name é", "")) {
+                assertEquals(0, paged.findByName(name).size(), name);
+                assertFalse(paged.containsName(name), name);
+            }
+            assertTrue(paged.pageLoads() - before < paged.pageCount() / 10);
+            assertEquals(loaded.getPhonebookEntryList(), paged.toList());
+        }
+    }
+
+    @Test
+    void givenSmallCache_whenIteratedTwice_thenEvictedPagesAreParsedAgain() throws IOException {
+        try (PagedPhonebook paged = PagedPhonebook.open(book, 1024, 2)) {
+            List<PhonebookEntry> entries = new ArrayList<>();
+            paged.forEach(entries::add);
+            paged.forEach(entries::add);
+            assertEquals(2L * paged.pageCount(), paged.pageLoads());
+            assertEquals(entries.subList(0, entries.size() / 2), entries.subList(entries.size() / 2, entries.size()));
+        }
+        try (PagedPhonebook paged = PagedPhonebook.open(book, 1024, 1_000)) {
+            paged.toList();
+            paged.toList();
+            assertEquals(paged.pageCount(), paged.pageLoads());
+        }
+    }
+
+    @Test
+    void givenEmptyBook_whenOpened_thenItHasNoPages() throws IOException {
+        Files.write(book, new byte[0]);
+        try (PagedPhonebook paged = PagedPhonebook.open(book)) {
+            assertEquals(0, paged.pageCount());
+            assertTrue(paged.toList().isEmpty());
+            assertFalse(paged.containsName(name(0)));
+        }
+        assertThrows(IllegalArgumentException.class, () -> PagedPhonebook.open(book, 0, 1));
+    }
+
+    @Test
+    void givenLazyPhonebook_whenMissingNameIsRemoved_thenBookIsNotLoaded() throws IOException {
+        byte[] before = Files.readAllBytes(book);
+        Phonebook eager = new Phonebook(book.toString());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        eager.printPhonebook(new PrintStream(expected));
+        try (Phonebook lazy = Phonebook.builder(book.toString()).lazy(1024, 4).build()) {
+            assertFalse(lazy.removeEntry("Missing Name"));
+            assertArrayEquals(before, Files.readAllBytes(book));
+            assertEquals(eager.findByName(name(42)), lazy.findByName(name(42)));
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            assertTrue(lazy.printPhonebook(new PrintStream(actual)));
+            assertEquals(expected.toString(), actual.toString());
+
+            assertTrue(lazy.removeEntry(name(6)));
+            assertTrue(eager.removeEntry(name(6)));
+            assertEquals(eager.getPhonebookEntryList(), lazy.getPhonebookEntryList());
+            assertEquals(eager.getPhonebookEntryList(), new Phonebook(book.toString()).getPhonebookEntryList());
+        }
+        assertThrows(IllegalArgumentException.class, () -> Phonebook.builder(book.toString()).lazy(1024, 0).build());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceSchedulerTest {
+    private Path directory;
+    private String filename;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("pwc-persistence");
+        filename = directory.resolve("book.txt").toString();
+        PhonebookMetrics.reset();
+        PhonebookMetrics.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        PhonebookMetrics.setEnabled(false);
+        PhonebookMetrics.reset();
+        if (Files.exists(directory)) {
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static String line(int i) {
+        return "PhonebookEntry(name=Name " + (char) ('A' + i / 26 % 26) + (char) ('a' + i % 26) + ", number=04181" + i + ")";
+    }
+
+    private static long writes() {
+        return PhonebookMetrics.snapshot().latency(PhonebookMetrics.Operation.PERSIST).count();
+    }
+
+    @Test
+    void givenGroupCommit_whenBurstOfAsyncAdds_thenEveryMaxBatchMutationsShareOneWrite() {
+        Phonebook phonebook = Phonebook.builder(filename).persistencePolicy(PersistencePolicy.group(60_000, 50)).build();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(phonebook.addEntryAsync(line(i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        assertTrue(futures.stream().allMatch(CompletableFuture::join));
+        assertEquals(2, writes());
+        assertEquals(100, new Phonebook(filename).getPhonebookEntryList().size());
+        assertFalse(phonebook.addEntryAsync("not an entry").join());
+        assertEquals(2, writes());
+    }
+
+    @Test
+    void givenGroupCommit_whenManyThreadsAdd_thenEveryAddReturnsDurableWithFewerWrites() throws Exception {
+        Phonebook phonebook = Phonebook.builder(filename).persistencePolicy(PersistencePolicy.group(20, 1_000)).build();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> adds = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String line = line(i);
+                adds.add(threads.submit(() -> phonebook.addEntry(line)));
+            }
+            for (Future<Boolean> add : adds) {
+                assertTrue(add.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(200, new Phonebook(filename).getPhonebookEntryList().size());
+        assertTrue(writes() < 200, "writes " + writes());
+    }
+
+    @Test
+    void givenAsync_whenMutated_thenFileIsWrittenOnFlush() {
+        Phonebook phonebook = Phonebook.builder(filename).persistencePolicy(PersistencePolicy.async(60_000)).build();
+        assertTrue(phonebook.addEntry(line(0)));
+        assertEquals(1, phonebook.addEntries(Arrays.asList(line(1), "")));
+        assertTrue(phonebook.removeEntry("Name Aa"));
+        CompletableFuture<Integer> removed = phonebook.removeEntriesAsync(Arrays.asList("Name Ab", "Nobody"));
+        assertFalse(removed.isDone());
+        assertFalse(Files.exists(directory.resolve("book.txt")));
+        phonebook.addEntry(line(2));
+        phonebook.flush().join();
+        assertEquals(1, removed.join());
+        assertEquals(1, writes());
+        assertEquals(Arrays.asList(PhonebookEntryParser.parse(line(2))), new Phonebook(filename).getPhonebookEntryList());
+        phonebook.addEntry(line(3));
+        phonebook.close();
+        assertEquals(2, new Phonebook(filename).getPhonebookEntryList().size());
+    }
+
+    @Test
+    void givenSync_whenAddEntryAsync_thenFutureIsDoneAndFileIsWritten() {
+        Phonebook phonebook = Phonebook.builder(filename).persistencePolicy(PersistencePolicy.sync()).build();
+        CompletableFuture<Boolean> added = phonebook.addEntryAsync(line(0));
+        assertTrue(added.isDone());
+        assertTrue(added.join());
+        assertEquals(1, writes());
+        assertEquals(1, new Phonebook(filename).getPhonebookEntryList().size());
+        assertTrue(phonebook.flush().isDone());
+    }
+
+    @Test
+    void givenSync_whenOneFlushFutureIsObtruded_thenOtherFuturesStillSucceed() {
+        Phonebook phonebook = Phonebook.builder(filename).persistencePolicy(PersistencePolicy.sync()).build();
+        phonebook.flush().obtrudeException(new IllegalStateException("obtruded"));
+        assertNull(phonebook.flush().join());
+        assertTrue(phonebook.addEntryAsync(line(0)).join());
+        assertFalse(phonebook.addEntryAsync("Entry(name=Name, number=0418)").join());
+    }
+
+    @Test
+    void givenGroupCommit_whenWriteFails_thenFutureFailsAndAddEntryThrows() throws IOException {
+        Phonebook phonebook = Phonebook.builder(filename).persistencePolicy(PersistencePolicy.group(1, 1)).build();
+        Files.delete(directory);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> phonebook.addEntryAsync(line(0)).get());
+        assertEquals("File persistent failed.", failure.getCause().getMessage());
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> phonebook.addEntry(line(1)));
+        assertEquals("File persistent failed.", thrown.getMessage());
+    }
+}
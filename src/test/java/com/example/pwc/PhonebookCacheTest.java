@@ -0,0 +1,58 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookCacheTest {
+    private static final String INPUT_FILENAME = "src/test/resources/server/input/default.txt";
+    private static final String RESULT_FILENAME = "src/test/resources/server/result/cache.txt";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.copy(Paths.get(INPUT_FILENAME), Paths.get(RESULT_FILENAME), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    void givenUnchangedFile_whenGet_thenSamePhonebookIsReturned() {
+        PhonebookCache cache = new PhonebookCache();
+        Phonebook phonebook = cache.get(RESULT_FILENAME);
+        assertSame(phonebook, cache.get(RESULT_FILENAME));
+        assertSame(phonebook, cache.get("src/test/resources/server/../server/result/cache.txt"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void givenWriteThroughCache_whenGet_thenSamePhonebookIsReturned() {
+        PhonebookCache cache = new PhonebookCache();
+        Phonebook phonebook = cache.get(RESULT_FILENAME);
+        assertTrue(phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)"));
+        cache.update(RESULT_FILENAME);
+        assertSame(phonebook, cache.get(RESULT_FILENAME));
+    }
+
+    @Test
+    void givenChangedFile_whenGet_thenPhonebookIsReloaded() throws IOException {
+        PhonebookCache cache = new PhonebookCache();
+        Phonebook phonebook = cache.get(RESULT_FILENAME);
+        Files.write(Paths.get(RESULT_FILENAME), Arrays.asList("PhonebookEntry(name=Shaun Gate, number=28834#1)"));
+        Phonebook reloaded = cache.get(RESULT_FILENAME);
+        assertNotSame(phonebook, reloaded);
+        assertEquals(1, reloaded.getPhonebookEntryList().size());
+    }
+
+    @Test
+    void givenInvalidFilename_whenGet_thenRuntimeExceptionThrow() {
+        PhonebookCache cache = new PhonebookCache();
+        assertThrows(RuntimeException.class, () -> cache.get(null));
+        assertThrows(RuntimeException.class, () -> cache.get(" "));
+        assertThrows(RuntimeException.class, () -> cache.get("src/test/resources/server"));
+    }
+}
@@ -6,23 +6,56 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class PhonebookCliTest {
-    private static final String EXPECTED_HELP = "usage: java -jar  target\\pwc-1.0.0-shaded.jar -a <PhonebookEntry> | -h |" + System.lineSeparator() +
-            "       -p | -r <Name> | -u [-b <FILE>]" + System.lineSeparator() +
+    private static final String EXPECTED_HELP = "usage: java -jar  target\\pwc-1.0.0-shaded.jar -a <PhonebookEntry> | -d |" + System.lineSeparator() +
+            "       -e <FILE> | -f <NAME> | -h | -i <FILE> | -n <NUMBER> | -p | -r" + System.lineSeparator() +
+            "       <Name> | -s <PREFIX> | -t <FILE> | -u | -w <POLICY> | -x" + System.lineSeparator() +
+            "       <OPERATION> [-b <FILE>] [-c]      [-k <EDITS>] [-m <MB>]  [-o" + System.lineSeparator() +
+            "       <FILE>]" + System.lineSeparator() +
             " -a <PhonebookEntry>   PhonebookEntry(name=<NAME>, number=<NUMBER>)" + System.lineSeparator() +
             " -b <FILE>             Relative path of a file which contains the phone" + System.lineSeparator() +
-            "                       entries" + System.lineSeparator() +
+            "                       entries, or of a directory of shards, repeated for" + System.lineSeparator() +
+            "                       the books of -x" + System.lineSeparator() +
+            " -c                    Send the -a, -r, -p or -u command to the running" + System.lineSeparator() +
+            "                       phonebook server" + System.lineSeparator() +
+            " -d                    Start the phonebook server on localhost port 7070" + System.lineSeparator() +
+            "                       or -Dpwc.port" + System.lineSeparator() +
+            " -e <FILE>             Write the phonebook to FILE in the binary format" + System.lineSeparator() +
+            " -f <NAME>             Print the entries whose name is within -k edits of" + System.lineSeparator() +
+            "                       NAME, case insensitive" + System.lineSeparator() +
             " -h                    Print this help" + System.lineSeparator() +
+            " -i <FILE>             Import the PhonebookEntry lines of FILE, or - for" + System.lineSeparator() +
+            "                       stdin, with a single write" + System.lineSeparator() +
+            " -k <EDITS>            Maximum number of edits of -f, default 2" + System.lineSeparator() +
+            " -m <MB>               Print, find unique names or dedupe with an external" + System.lineSeparator() +
+            "                       merge sort using about MB of memory" + System.lineSeparator() +
+            " -n <NUMBER>           Print the entries with NUMBER, ignoring everything" + System.lineSeparator() +
+            "                       but digits and a leading +" + System.lineSeparator() +
+            " -o <FILE>             Write the entries or names of -p, -u and -x to FILE" + System.lineSeparator() +
+            "                       instead of stdout" + System.lineSeparator() +
             " -p                    Print phonebook in ascending order" + System.lineSeparator() +
             " -r <Name>             Name" + System.lineSeparator() +
+            " -s <PREFIX>           Print the entries whose name starts with PREFIX," + System.lineSeparator() +
+            "                       case insensitive" + System.lineSeparator() +
+            " -t <FILE>             Write the phonebook to FILE in the text format" + System.lineSeparator() +
             " -u                    Print the unique name from default phone book and" + System.lineSeparator() +
-            "                       given phonebook" + System.lineSeparator() + System.lineSeparator() +
+            "                       given phonebook" + System.lineSeparator() +
+            " -w <POLICY>           Rewrite the phonebook without duplicate names," + System.lineSeparator() +
+            "                       keeping the entries of last-wins, first-wins or" + System.lineSeparator() +
+            "                       keep-all-numbers" + System.lineSeparator() +
+            " -x <OPERATION>        Print the names in the union, intersection, symdiff" + System.lineSeparator() +
+            "                       or exactly-<K> of the books of every -b" + System.lineSeparator() + System.lineSeparator() +
             "This is help menu on how to run PWC coding challenge.";
     private static final String DEFAULT_FILE = "personalBook.txt";
     private final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
@@ -108,6 +141,35 @@ class PhonebookCliTest {
         assertEquals(expected, outputStreamCaptor.toString().trim());
     }
 
+    @Test
+    void givenPrintWithMemoryBudget_whenProcessPB_thenPrintAllTheEntries() throws ParseException {
+        String inputFilename = "src/test/resources/cli/input/print.txt";
+        String[] args = {"-p", "-m", "1", "-b", inputFilename};
+        CommandLine cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+        assertTrue(PhonebookCli.processPhonebook(cmd));
+        String expected = "PhonebookEntry(name=Danny O'Connell, number=null)" + System.lineSeparator() +
+                "PhonebookEntry(name=John Citizen, number=0414557988)";
+        assertEquals(expected, outputStreamCaptor.toString().trim());
+    }
+
+    @Test
+    void givenPrintWithInvalidMemoryBudget_whenProcessPB_thenReturnFalse() throws ParseException {
+        String[] args = {"-p", "-m", "lots", "-b", "src/test/resources/cli/input/print.txt"};
+        CommandLine cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+        assertFalse(PhonebookCli.processPhonebook(cmd));
+    }
+
+    @Test
+    void givenClientWithCommandItCannotSend_whenProcessPB_thenReturnFalse() throws ParseException {
+        String book = "src/test/resources/cli/input/print.txt";
+        for (String[] args : new String[][]{{"-c", "-s", "Angela", "-b", book}, {"-c", "-i", book},
+                {"-c", "-p", "-m", "1", "-b", book}, {"-c", "-p", "-o", DEFAULT_FILE, "-b", book}}) {
+            CommandLine cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+            assertFalse(PhonebookCli.processPhonebook(cmd));
+        }
+        assertEquals("", outputStreamCaptor.toString());
+    }
+
     @Test
     void givenTwoFiles_whenProcessPB_thenPrintUnique() throws ParseException, IOException {
         String defaultFile = "src/test/resources/cli/input/default.txt";
@@ -124,17 +186,194 @@ class PhonebookCliTest {
         assertEquals(expected, outputStreamCaptor.toString().trim());
     }
 
+    @Test
+    void givenTwoFilesWithMemoryBudget_whenProcessPB_thenPrintUnique() throws ParseException, IOException {
+        Files.deleteIfExists(Paths.get(DEFAULT_FILE));
+        Files.copy(Paths.get("src/test/resources/cli/input/default.txt"), Paths.get(DEFAULT_FILE));
+        String[] args = {"-u", "-m", "1", "-b", "src/test/resources/cli/input/unique.txt"};
+        CommandLine cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+        assertTrue(PhonebookCli.processPhonebook(cmd));
+        String expected = "Danny O'Connell" + System.lineSeparator() + "Dr. William Vo" + System.lineSeparator() +
+                "George W. Bush Junior" + System.lineSeparator() + "Shanz Gate";
+        assertEquals(expected, outputStreamCaptor.toString().trim());
+    }
+
+    @Test
+    void givenOutputFile_whenProcessPB_thenEntriesAndNamesAreWrittenToTheFile() throws ParseException, IOException {
+        String resultFilename = "src/test/resources/cli/result/output.txt";
+        Files.deleteIfExists(Paths.get(resultFilename));
+        String[] args = {"-p", "-o", resultFilename, "-b", "src/test/resources/cli/input/print.txt"};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertEquals(Arrays.asList("PhonebookEntry(name=Danny O'Connell, number=null)",
+                "PhonebookEntry(name=John Citizen, number=0414557988)"), Files.readAllLines(Paths.get(resultFilename)));
+        Files.deleteIfExists(Paths.get(DEFAULT_FILE));
+        Files.copy(Paths.get("src/test/resources/cli/input/default.txt"), Paths.get(DEFAULT_FILE));
+        args = new String[]{"-u", "-m", "1", "-o", resultFilename, "-b", "src/test/resources/cli/input/unique.txt"};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertEquals(Arrays.asList("Danny O'Connell", "Dr. William Vo", "George W. Bush Junior", "Shanz Gate"),
+                Files.readAllLines(Paths.get(resultFilename)));
+        assertEquals("", outputStreamCaptor.toString());
+    }
+
+    @Test
+    void givenOutputFileIsABook_whenProcessPB_thenBookIsKept() throws ParseException, IOException {
+        String resultFilename = "src/test/resources/cli/result/output.txt";
+        Files.copy(Paths.get("src/test/resources/cli/input/print.txt"), Paths.get(resultFilename), StandardCopyOption.REPLACE_EXISTING);
+        byte[] before = Files.readAllBytes(Paths.get(resultFilename));
+        String[] args = {"-p", "-o", resultFilename, "-b", resultFilename};
+        assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        args = new String[]{"-x", "union", "-o", "src/test/resources/cli/result/../result/output.txt",
+                "-b", "src/test/resources/setOperation/input/north.txt", "-b", resultFilename};
+        assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertArrayEquals(before, Files.readAllBytes(Paths.get(resultFilename)));
+        try (Stream<Path> files = Files.list(Paths.get("src/test/resources/cli/result"))) {
+            assertFalse(files.anyMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void givenSetOperationAndManyBooks_whenProcessPB_thenSelectedNamesArePrinted() throws ParseException {
+        String[] args = {"-x", "exactly-2", "-b", "src/test/resources/setOperation/input/north.txt",
+                "-b", "src/test/resources/setOperation/input/south.txt", "-b", "src/test/resources/setOperation/input/east.txt"};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        args = new String[]{"-x", "intersection", "-b", "src/test/resources/setOperation/input/north.txt",
+                "-b", "src/test/resources/setOperation/input/south.txt"};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertEquals("Shanz Gate" + System.lineSeparator() + "John Citizen" + System.lineSeparator() + "Shanz Gate",
+                outputStreamCaptor.toString().trim());
+        args = new String[]{"-x", "xor", "-b", "src/test/resources/setOperation/input/north.txt"};
+        assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        args = new String[]{"-x", "union"};
+        assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+    }
+
+    @Test
+    void givenDedupeAndPolicy_whenProcessPB_thenBookIsRewrittenWithoutDuplicates() throws ParseException, IOException {
+        Path book = Files.createTempFile("pwc-dedupe", ".txt");
+        try {
+            Files.copy(Paths.get("src/test/resources/dedupe/input/duplicates.txt"), book, StandardCopyOption.REPLACE_EXISTING);
+            String[] args = {"-w", "first-wins", "-m", "1", "-b", book.toString()};
+            assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+            assertEquals("Dropped 3 duplicate entries.", outputStreamCaptor.toString().trim());
+            assertEquals(Files.readAllLines(Paths.get("src/test/resources/dedupe/expected/first-wins.txt")), Files.readAllLines(book));
+            args = new String[]{"-w", "newest", "-b", book.toString()};
+            assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    @Test
+    void givenImportFile_whenProcessPB_thenAllEntriesAreAdded() throws ParseException, IOException {
+        String inputFilename = "src/test/resources/cli/input/print.txt";
+        String resultFilename = "src/test/resources/cli/result/import.txt";
+        Files.deleteIfExists(Paths.get(resultFilename));
+        Files.copy(Paths.get(inputFilename), Paths.get(resultFilename));
+        String[] args = {"-i", "src/test/resources/cli/input/import.txt", "-b", resultFilename};
+        CommandLine cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+        assertTrue(PhonebookCli.processPhonebook(cmd));
+        assertEquals(4, Files.readAllLines(Paths.get(resultFilename)).size());
+        args = new String[]{"-i", "src/test/resources/cli/input/importInvalid.txt", "-b", resultFilename};
+        cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+        assertFalse(PhonebookCli.processPhonebook(cmd));
+        assertEquals(4, Files.readAllLines(Paths.get(resultFilename)).size());
+    }
+
+    @Test
+    void givenImportFromStdin_whenProcessPB_thenAllEntriesAreAdded() throws ParseException, IOException {
+        String inputFilename = "src/test/resources/cli/input/print.txt";
+        String resultFilename = "src/test/resources/cli/result/import.txt";
+        Files.deleteIfExists(Paths.get(resultFilename));
+        Files.copy(Paths.get(inputFilename), Paths.get(resultFilename));
+        InputStream stdin = System.in;
+        try {
+            System.setIn(Files.newInputStream(Paths.get("src/test/resources/cli/input/import.txt")));
+            String[] args = {"-i", "-", "-b", resultFilename};
+            CommandLine cmd = new DefaultParser().parse(PhonebookCli.getOptions(), args);
+            assertTrue(PhonebookCli.processPhonebook(cmd));
+        } finally {
+            System.setIn(stdin);
+        }
+        assertEquals(4, Files.readAllLines(Paths.get(resultFilename)).size());
+    }
+
+    @Test
+    void givenExportOptions_whenProcessPB_thenBookIsConvertedBothWays() throws ParseException, IOException {
+        String inputFilename = "src/test/resources/cli/input/print.txt";
+        String binaryFilename = "src/test/resources/cli/result/export.pwcb";
+        String textFilename = "src/test/resources/cli/result/export.txt";
+        Files.deleteIfExists(Paths.get(textFilename));
+        String[] args = {"-e", binaryFilename, "-b", inputFilename};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertTrue(BinaryPhonebook.isBinary(Paths.get(binaryFilename)));
+        args = new String[]{"-t", textFilename, "-b", binaryFilename};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertEquals(Arrays.asList("PhonebookEntry(name=Danny O'Connell, number=null)",
+                "PhonebookEntry(name=John Citizen, number=0414557988)"), Files.readAllLines(Paths.get(textFilename)));
+    }
+
+    @Test
+    void givenBinaryBookWithMemoryBudget_whenProcessPB_thenEntriesAndNamesArePrinted() throws ParseException, IOException {
+        String binaryFilename = "src/test/resources/cli/result/export.pwcb";
+        String[] args = {"-e", binaryFilename, "-b", "src/test/resources/cli/input/unique.txt"};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        outputStreamCaptor.reset();
+        args = new String[]{"-p", "-m", "1", "-b", binaryFilename};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertEquals(Arrays.asList("PhonebookEntry(name=Dr. William Vo, number=+61 (02) 8834 5647))",
+                "PhonebookEntry(name=George W. Bush Junior, number=+61298002333)",
+                "PhonebookEntry(name=John Citizen, number=0414557988)", "PhonebookEntry(name=Shanz Gate, number=38888#1))"),
+                Arrays.asList(outputStreamCaptor.toString().trim().split(System.lineSeparator())));
+
+        outputStreamCaptor.reset();
+        Files.deleteIfExists(Paths.get(DEFAULT_FILE));
+        Files.copy(Paths.get("src/test/resources/cli/input/default.txt"), Paths.get(DEFAULT_FILE));
+        args = new String[]{"-u", "-m", "1", "-b", binaryFilename};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        String expected = "Danny O'Connell" + System.lineSeparator() + "Dr. William Vo" + System.lineSeparator() +
+                "George W. Bush Junior" + System.lineSeparator() + "Shanz Gate";
+        assertEquals(expected, outputStreamCaptor.toString().trim());
+    }
+
+    @Test
+    void givenSearchOptions_whenProcessPB_thenMatchingEntriesArePrinted() throws ParseException {
+        String inputFilename = "src/test/resources/search/input/default.txt";
+        String[] args = {"-s", "ANGELA", "-b", inputFilename};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        args = new String[]{"-f", "Zed Zula", "-k", "1", "-b", inputFilename};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        args = new String[]{"-f", "Zed", "-b", inputFilename};
+        assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        String expected = "PhonebookEntry(name=Angela McDowell, number=0418100200)" + System.lineSeparator() +
+                "PhonebookEntry(name=Angela McDowell, number=0418100201)" + System.lineSeparator() +
+                "PhonebookEntry(name=Zed Zulu, number=0411000000)" + System.lineSeparator() + "No matching entries.";
+        assertEquals(expected, outputStreamCaptor.toString().trim());
+        args = new String[]{"-f", "Zed", "-k", "-1", "-b", inputFilename};
+        assertFalse(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+    }
+
+    @Test
+    void givenNumberOption_whenProcessPB_thenEntriesWithTheNumberArePrinted() throws ParseException {
+        String[] args = {"-n", "+61 02 8834-5647", "-b", "src/test/resources/number/input/default.txt"};
+        assertTrue(PhonebookCli.processPhonebook(new DefaultParser().parse(PhonebookCli.getOptions(), args)));
+        assertEquals("PhonebookEntry(name=Dr. William Vo, number=+61 (02) 8834 5647)", outputStreamCaptor.toString().trim());
+    }
+
     @Test
     void getOptions() {
         Options options = PhonebookCli.getOptions();
         assertEquals(1, options.getRequiredOptions().size());
-        assertEquals(6, options.getOptions().size());
+        assertEquals(19, options.getOptions().size());
         assertEquals("PhonebookEntry", options.getOption("a").getArgName());
         assertEquals("Name", options.getOption("r").getArgName());
         assertEquals("FILE", options.getOption("b").getArgName());
+        assertEquals("FILE", options.getOption("i").getArgName());
+        assertEquals("MB", options.getOption("m").getArgName());
         assertNull(options.getOption("p").getArgName());
         assertNull(options.getOption("u").getArgName());
         assertNull(options.getOption("h").getArgName());
+        assertNull(options.getOption("d").getArgName());
+        assertNull(options.getOption("c").getArgName());
     }
 
     @Test
@@ -0,0 +1,88 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookDeduplicatorTest {
+    private static final Path DUPLICATES = Paths.get("src/test/resources/dedupe/input/duplicates.txt");
+
+    private static Path expected(ConflictPolicy policy) {
+        return Paths.get("src/test/resources/dedupe/expected/" + policy + ".txt");
+    }
+
+    private static long dropped(ConflictPolicy policy) {
+        return policy == ConflictPolicy.KEEP_ALL_NUMBERS ? 1 : 3;
+    }
+
+    @Test
+    void givenDuplicateNames_whenDedupe_thenFileHoldsTheEntriesThePolicyKeeps() throws IOException {
+        Path book = Files.createTempFile("pwc-dedupe", ".txt");
+        try {
+            for (ConflictPolicy policy : ConflictPolicy.values()) {
+                for (long memoryBudget : new long[]{1, 300, ExternalSortPrinter.DEFAULT_MEMORY_BUDGET}) {
+                    Files.copy(DUPLICATES, book, StandardCopyOption.REPLACE_EXISTING);
+                    assertEquals(dropped(policy), new PhonebookDeduplicator(policy, memoryBudget).dedupe(book));
+                    assertEquals(Files.readAllLines(expected(policy)), Files.readAllLines(book), policy + " " + memoryBudget);
+                    assertEquals(0, new PhonebookDeduplicator(policy, memoryBudget).dedupe(book));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    @Test
+    void givenDuplicateNames_whenLoadedWithConflictPolicy_thenPrintMatchesDedupe() throws IOException {
+        for (ConflictPolicy policy : ConflictPolicy.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Phonebook phonebook = Phonebook.builder(DUPLICATES.toString()).conflictPolicy(policy).build();
+            assertTrue(phonebook.printPhonebook(new PrintStream(out)));
+            assertEquals(String.join(System.lineSeparator(), Files.readAllLines(expected(policy))), out.toString().trim(),
+                    policy.toString());
+        }
+    }
+
+    @Test
+    void givenBinaryBook_whenDedupe_thenBookStaysBinaryWithoutDuplicates() throws IOException {
+        Path book = Files.createTempFile("pwc-dedupe", ".bin");
+        try {
+            new Phonebook(DUPLICATES.toString()).writePhonebook(book.toString(), true);
+            assertEquals(3, new PhonebookDeduplicator(ConflictPolicy.FIRST_WINS, 1).dedupe(book));
+            assertTrue(BinaryPhonebook.isBinary(book));
+            BinaryPhonebook binaryBook = BinaryPhonebook.open(book);
+            assertEquals(3, binaryBook.size());
+            List<PhonebookEntry> john = binaryBook.findByName("John Citizen");
+            assertEquals(1, john.size());
+            assertEquals("0414557988", john.get(0).getNumber());
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    @Test
+    void givenMissingBook_whenDedupe_thenNothingIsWritten() throws IOException {
+        Path missing = Paths.get("src/test/resources/dedupe/input/missing.txt");
+        assertEquals(0, new PhonebookDeduplicator(ConflictPolicy.LAST_WINS, 1).dedupe(missing));
+        assertFalse(Files.exists(missing));
+    }
+
+    @Test
+    void givenPolicyNames_whenParse_thenPoliciesRoundTrip() {
+        for (ConflictPolicy policy : ConflictPolicy.values()) {
+            assertEquals(policy, ConflictPolicy.parse(policy.toString()));
+        }
+        assertEquals(ConflictPolicy.KEEP_ALL_NUMBERS, ConflictPolicy.parse(" Keep-All-Numbers "));
+        assertNull(ConflictPolicy.parse("last"));
+        assertNull(ConflictPolicy.parse(""));
+    }
+}
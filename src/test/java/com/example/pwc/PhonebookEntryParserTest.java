@@ -0,0 +1,90 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookEntryParserTest {
+    private static final String ALPHABET = "aZ'-. \t\n09+()*#,=?\\A";
+
+    @Test
+    void givenValidLines_whenParse_thenNameAndNumberAreExtracted() {
+        PhonebookEntry entry = PhonebookEntryParser.parse("PhonebookEntry(name=Dr. William Vo, number=+61 (02) 8834 5647))");
+        assertEquals("Dr. William Vo", entry.getName());
+        assertEquals("+61 (02) 8834 5647)", entry.getNumber());
+        entry = PhonebookEntryParser.parse("PhonebookEntry(name=Danny O'Connell, number=null)");
+        assertEquals("Danny O'Connell", entry.getName());
+        assertEquals("null", entry.getNumber());
+    }
+
+    @Test
+    void givenInvalidLines_whenParse_thenReturnNull() {
+        assertNull(PhonebookEntryParser.parse(null));
+        assertNull(PhonebookEntryParser.parse(""));
+        assertNull(PhonebookEntryParser.parse("   "));
+        assertNull(PhonebookEntryParser.parse("PhonebookEntry(name=A, number=0418100200)"));
+        assertNull(PhonebookEntryParser.parse("PhonebookEntry(name=Angela McDowell, number=)"));
+        assertNull(PhonebookEntryParser.parse("PhonebookEntry(name=Angela McDowell, number=nul)"));
+        assertNull(PhonebookEntryParser.parse("PhonebookEntry(name=Angela McDowell, number=0418100200"));
+        assertNull(PhonebookEntryParser.parse(" PhonebookEntry(name=Angela McDowell, number=0418100200)"));
+        assertNull(PhonebookEntryParser.parse("PhonebookEntry(name=Angela McDowell, number=0418100200) "));
+    }
+
+    @Test
+    void givenLinesFromTestResources_whenParse_thenResultMatchesRegex() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Paths.get("src/test/resources"))) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".txt")).collect(Collectors.toList())) {
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        assertFalse(lines.isEmpty());
+        lines.forEach(this::assertSameAsRegex);
+    }
+
+    @Test
+    void givenMutatedLines_whenParse_thenResultMatchesRegex() {
+        List<String> seeds = Arrays.asList("PhonebookEntry(name=Angela McDowell, number=0418100200)",
+                "PhonebookEntry(name=Danny O'Connell, number=null)",
+                "PhonebookEntry(name=Cr. Dany-Slate O'Field, number=+61#(02)9800-2333*1)");
+        Random random = new Random(20200531L);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder line = new StringBuilder(seeds.get(random.nextInt(seeds.size())));
+            int mutations = 1 + random.nextInt(3);
+            for (int m = 0; m < mutations; m++) {
+                int position = random.nextInt(line.length() + 1);
+                char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        line.insert(position, c);
+                        break;
+                    case 1:
+                        if (position < line.length()) {
+                            line.deleteCharAt(position);
+                        }
+                        break;
+                    default:
+                        if (position < line.length()) {
+                            line.setCharAt(position, c);
+                        }
+                }
+            }
+            assertSameAsRegex(line.toString());
+        }
+    }
+
+    private void assertSameAsRegex(String line) {
+        assertEquals(PhonebookEntryParser.parseWithRegex(line), PhonebookEntryParser.parse(line), line);
+    }
+}
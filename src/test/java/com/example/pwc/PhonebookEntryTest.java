@@ -24,4 +24,11 @@ class PhonebookEntryTest {
         PhonebookEntry anotherEntry = PhonebookEntry.builder().name("joe biden").number("+1(02)23021392139").build();
         assertEquals(0, entry.compareTo(anotherEntry));
     }
+
+    @Test
+    void foldNameMatchesCompareTo() {
+        assertEquals(PhonebookEntry.foldName("Danny O'Connell"), PhonebookEntry.foldName("DANNY o'connell"));
+        assertNotEquals(PhonebookEntry.foldName("Danny O'Connell"), PhonebookEntry.foldName("Danny O Connell"));
+        assertEquals("dr. william vo", PhonebookEntry.foldName("Dr. William Vo"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookEntryWriterTest {
+    private static final List<PhonebookEntry> ENTRIES = Arrays.asList(
+            PhonebookEntry.builder().name("John Citizen").number("0414557988").build(),
+            PhonebookEntry.builder().name("Danny O'Connell").number("null").build(),
+            PhonebookEntry.builder().name("Nobody").build(),
+            PhonebookEntry.builder().name("Zoë Ñúñez 李").number("+61 (02) 8834-5647").build());
+
+    @Test
+    void givenEntries_whenWriteEntry_thenOutputIsTheSameAsPrintln() throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(expected);
+        ENTRIES.forEach(printStream::println);
+        printStream.println("Shanz Gate");
+        printStream.flush();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        PhonebookEntryWriter writer = new PhonebookEntryWriter(actual);
+        for (PhonebookEntry entry : ENTRIES) {
+            writer.writeEntry(entry);
+        }
+        writer.writeLine("Shanz Gate");
+        assertEquals(0, actual.size());
+        writer.flush();
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void givenSmallBufferAndOtherCharsets_whenWriteEntry_thenEveryByteIsWritten() throws IOException {
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16, StandardCharsets.ISO_8859_1)) {
+            StringBuilder expected = new StringBuilder();
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            try (PhonebookEntryWriter writer = new PhonebookEntryWriter(Channels.newChannel(actual), charset, 16, true)) {
+                for (int i = 0; i < 1000; i++) {
+                    PhonebookEntry entry = ENTRIES.get(i % ENTRIES.size());
+                    writer.writeEntry(entry);
+                    expected.append(entry).append(System.lineSeparator());
+                }
+            }
+            assertArrayEquals(expected.toString().getBytes(charset), actual.toByteArray(), charset.name());
+        }
+    }
+
+    @Test
+    void givenFile_whenWrittenAndClosed_thenFileIsReplaced() throws IOException {
+        Path file = Files.createTempFile("pwc-writer", ".txt");
+        try {
+            Files.write(file, Arrays.asList("stale", "stale", "stale", "stale", "stale", "stale", "stale", "stale"));
+            try (PhonebookEntryWriter writer = PhonebookEntryWriter.toFile(file)) {
+                writer.writeEntry(ENTRIES.get(0));
+                writer.lines().accept("Shanz Gate");
+            }
+            assertEquals(Arrays.asList(ENTRIES.get(0).toString(), "Shanz Gate"), Files.readAllLines(file, Charset.defaultCharset()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookJournalTest {
+    private static final String INPUT_FILENAME = "src/test/resources/journal/input/default.txt";
+    private static final String RESULT_FILENAME = "src/test/resources/journal/result/default.txt";
+    private static final String EXPECTED_COMPACTED = "src/test/resources/journal/expected/compacted.txt";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (String suffix : new String[]{"", ".journal", ".journal.old", ".journal.old.1", ".journal.old.2", ".snapshot"}) {
+            Files.deleteIfExists(Paths.get(RESULT_FILENAME + suffix));
+        }
+        Files.copy(Paths.get(INPUT_FILENAME), Paths.get(RESULT_FILENAME));
+    }
+
+    @Test
+    void givenJournaledPhonebook_whenMutated_thenSnapshotIsUnchangedAndJournalIsAppended() throws IOException {
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).build()) {
+            assertTrue(phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)"));
+            assertTrue(phonebook.removeEntry("danny o'connell"));
+            assertFalse(phonebook.removeEntry("McFurlan"));
+        }
+        assertLinesMatch(Files.readAllLines(Paths.get(INPUT_FILENAME)), Files.readAllLines(Paths.get(RESULT_FILENAME)));
+        assertLinesMatch(Arrays.asList("+PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)", "-Danny O'Connell"),
+                Files.readAllLines(Paths.get(RESULT_FILENAME + ".journal")));
+    }
+
+    @Test
+    void givenJournal_whenPhonebookIsLoaded_thenReplayMatchesFullRewrite() throws IOException {
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).build()) {
+            phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)");
+            phonebook.removeEntry("Danny O'Connell");
+        }
+        Phonebook replayed = Phonebook.builder(RESULT_FILENAME).journaled(true).build();
+        assertEquals(Files.readAllLines(Paths.get(EXPECTED_COMPACTED)).size(), replayed.getPhonebookEntryList().size());
+        assertLinesMatch(Files.readAllLines(Paths.get(EXPECTED_COMPACTED)),
+                replayed.getPhonebookEntryList().stream().map(PhonebookEntry::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    void givenJournal_whenCompacted_thenJournalIsFoldedIntoSnapshot() throws IOException {
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).build()) {
+            phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)");
+            phonebook.removeEntry("Danny O'Connell");
+            phonebook.compact();
+        }
+        assertLinesMatch(Files.readAllLines(Paths.get(EXPECTED_COMPACTED)), Files.readAllLines(Paths.get(RESULT_FILENAME)));
+        assertTrue(new PhonebookJournal(RESULT_FILENAME).getJournalFiles().isEmpty());
+    }
+
+    @Test
+    void givenCompactionThreshold_whenReached_thenCompactionRunsInBackground() throws IOException {
+        PhonebookJournal journal = new PhonebookJournal(RESULT_FILENAME, 1, 2);
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journal(journal).build()) {
+            phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)");
+            phonebook.removeEntry("Danny O'Connell");
+        }
+        assertLinesMatch(Files.readAllLines(Paths.get(EXPECTED_COMPACTED)), Files.readAllLines(Paths.get(RESULT_FILENAME)));
+    }
+
+    @Test
+    void givenInterruptedCompaction_whenJournalIsOpened_thenUncommittedSnapshotIsDiscarded() throws IOException {
+        Path tempSnapshot = Paths.get(RESULT_FILENAME + ".snapshot");
+        Path oldJournal = Paths.get(RESULT_FILENAME + ".journal.old");
+        Files.write(tempSnapshot, Arrays.asList("PhonebookEntry(name=Half Written, number=1)"));
+        Files.write(oldJournal, Arrays.asList("+PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)", "-Danny O'Connell"));
+        Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).build();
+        assertFalse(Files.exists(tempSnapshot));
+        assertEquals(6, phonebook.getPhonebookEntryList().size());
+        assertEquals("Billy-Jean McBill", phonebook.getPhonebookEntryList().get(5).getName());
+    }
+
+    @Test
+    void givenFailedCompaction_whenMutatedAgain_thenMutationsSucceedAndNextCompactionFoldsEverything() throws IOException {
+        Path tempSnapshot = Paths.get(RESULT_FILENAME + ".snapshot");
+        PhonebookJournal journal = new PhonebookJournal(RESULT_FILENAME, 1, 2);
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journal(journal).build()) {
+            Files.createDirectory(tempSnapshot);
+            try {
+                assertTrue(phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)"));
+                assertTrue(phonebook.removeEntry("Danny O'Connell"));
+                assertThrows(RuntimeException.class, journal::awaitCompaction);
+                assertTrue(phonebook.addEntry("PhonebookEntry(name=Second Try, number=0400)"));
+                assertTrue(phonebook.removeEntry("second try"));
+                journal.close();
+                assertEquals(Arrays.asList(Paths.get(RESULT_FILENAME + ".journal.old"), Paths.get(RESULT_FILENAME + ".journal.old.1")),
+                        journal.getJournalFiles());
+                assertLinesMatch(Files.readAllLines(Paths.get(EXPECTED_COMPACTED)), Phonebook.builder(RESULT_FILENAME).journaled(true).build()
+                        .getPhonebookEntryList().stream().map(PhonebookEntry::toString).collect(Collectors.toList()));
+            } finally {
+                Files.deleteIfExists(tempSnapshot);
+            }
+            phonebook.compact();
+        }
+        assertLinesMatch(Files.readAllLines(Paths.get(EXPECTED_COMPACTED)), Files.readAllLines(Paths.get(RESULT_FILENAME)));
+        assertTrue(journal.getJournalFiles().isEmpty());
+    }
+
+    @Test
+    void givenJournaledPhonebook_whenMutatedAsync_thenFuturesCompleteOnceTheRecordsAreForced() {
+        PhonebookJournal journal = new PhonebookJournal(RESULT_FILENAME, 3, 100);
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journal(journal).build()) {
+            CompletableFuture<Boolean> added = phonebook.addEntryAsync("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)");
+            CompletableFuture<Boolean> removed = phonebook.removeEntryAsync("Danny O'Connell");
+            assertFalse(added.isDone());
+            assertFalse(removed.isDone());
+            assertTrue(phonebook.addEntryAsync("PhonebookEntry(name=Third Record, number=0400)").join());
+            assertTrue(added.isDone());
+            assertTrue(removed.join());
+
+            CompletableFuture<Boolean> pending = phonebook.removeEntryAsync("third record");
+            assertFalse(pending.isDone());
+            phonebook.flush().join();
+            assertTrue(pending.isDone());
+            assertFalse(phonebook.removeEntryAsync("McFurlan").join());
+        }
+    }
+
+    @Test
+    void givenJournaledBookWithConflictPolicy_whenReopened_thenDroppedDuplicatesStayDropped() {
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).conflictPolicy(ConflictPolicy.LAST_WINS).build()) {
+            assertTrue(phonebook.addEntry("PhonebookEntry(name=Angela McDowell, number=0400000001)"));
+            assertEquals(2, phonebook.addEntries(Arrays.asList("PhonebookEntry(name=angela mcdowell, number=0400000002)",
+                    "PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)")));
+        }
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).conflictPolicy(ConflictPolicy.FIRST_WINS).build()) {
+            assertEquals(Arrays.asList("0400000002"), numbers(phonebook, "Angela McDowell"));
+            assertFalse(phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=0400000003)"));
+            assertEquals(0, phonebook.addEntries(Arrays.asList("PhonebookEntry(name=Billy-Jean McBill, number=0400000004)")));
+        }
+        try (Phonebook phonebook = Phonebook.builder(RESULT_FILENAME).journaled(true).conflictPolicy(ConflictPolicy.LAST_WINS).build()) {
+            assertEquals(Arrays.asList("0400000002"), numbers(phonebook, "Angela McDowell"));
+            assertEquals(Arrays.asList("++6188779-0992"), numbers(phonebook, "Billy-Jean McBill"));
+            phonebook.compact();
+        }
+        Phonebook compacted = new Phonebook(RESULT_FILENAME);
+        assertEquals(Arrays.asList("0400000002"), numbers(compacted, "Angela McDowell"));
+        assertEquals(Arrays.asList("++6188779-0992"), numbers(compacted, "Billy-Jean McBill"));
+    }
+
+    @Test
+    void givenCompressedJournaledBook_whenCompacted_thenSnapshotIsCompressed() throws IOException {
+        Path directory = Files.createTempDirectory("pwc-journal");
+        String book = directory.resolve("book.txt" + CompressedPhonebook.EXTENSION).toString();
+        try {
+            assertTrue(new Phonebook(book).addEntry("PhonebookEntry(name=John Citizen, number=0414557988)"));
+            assertTrue(CompressedPhonebook.isCompressed(Paths.get(book)));
+            try (Phonebook phonebook = Phonebook.builder(book).journaled(true).build()) {
+                assertTrue(phonebook.addEntry("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)"));
+                phonebook.compact();
+            }
+            assertTrue(CompressedPhonebook.isCompressed(Paths.get(book)));
+            assertFalse(Files.exists(Paths.get(book + ".journal")));
+            assertEquals(2, new Phonebook(book).getPhonebookEntryList().size());
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static List<String> numbers(Phonebook phonebook, String name) {
+        return phonebook.findByName(name).stream().map(PhonebookEntry::getNumber).collect(Collectors.toList());
+    }
+}
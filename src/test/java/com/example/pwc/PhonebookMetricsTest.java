@@ -0,0 +1,136 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookMetricsTest {
+    private Path book;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        PhonebookMetrics.reset();
+        book = Files.createTempFile("pwc-metrics", ".txt");
+        Files.write(book, Arrays.asList("PhonebookEntry(name=John Citizen, number=0414557988)",
+                "not an entry", "PhonebookEntry(name=Angela McDowell, number=(02) 8834-5647)", "PhonebookEntry(name=1, number=2)"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        PhonebookMetrics.setEnabled(false);
+        PhonebookMetrics.reset();
+        Files.deleteIfExists(book);
+    }
+
+    @Test
+    void givenDisabled_whenPhonebookIsLoadedAndPersisted_thenNothingIsRecorded() {
+        Phonebook phonebook = new Phonebook(book.toString());
+        phonebook.addEntry("PhonebookEntry(name=Danny Smith, number=0418100200)");
+        PhonebookMetrics.Snapshot snapshot = PhonebookMetrics.snapshot();
+        for (PhonebookMetrics.Operation operation : PhonebookMetrics.Operation.values()) {
+            assertEquals(0, snapshot.latency(operation).count());
+        }
+        assertEquals(0, snapshot.count(PhonebookMetrics.Counter.PARSED_LINES));
+        assertEquals(0, snapshot.value(PhonebookMetrics.Gauge.ENTRIES));
+    }
+
+    @Test
+    void givenEnabled_whenPhonebookIsLoadedAndPersisted_thenOperationsAndLinesAreRecorded() {
+        PhonebookMetrics.setEnabled(true);
+        Phonebook phonebook = new Phonebook(book.toString());
+        phonebook.addEntry("PhonebookEntry(name=Danny Smith, number=0418100200)");
+        PhonebookMetrics.Snapshot snapshot = PhonebookMetrics.snapshot();
+        assertEquals(5, snapshot.latency(PhonebookMetrics.Operation.PARSE).count());
+        assertEquals(1, snapshot.latency(PhonebookMetrics.Operation.LOAD).count());
+        assertEquals(1, snapshot.latency(PhonebookMetrics.Operation.PERSIST).count());
+        assertTrue(snapshot.latency(PhonebookMetrics.Operation.PERSIST).max() > 0);
+        assertEquals(3, snapshot.count(PhonebookMetrics.Counter.PARSED_LINES));
+        assertEquals(2, snapshot.count(PhonebookMetrics.Counter.REJECTED_LINES));
+        assertEquals(3, snapshot.count(PhonebookMetrics.Counter.PERSISTED_ENTRIES));
+        assertEquals(3, snapshot.value(PhonebookMetrics.Gauge.ENTRIES));
+    }
+
+    @Test
+    void givenJsonReporter_whenReported_thenFileHoldsTheSnapshot() throws IOException {
+        PhonebookMetrics.setEnabled(true);
+        new Phonebook(book.toString());
+        Path json = Files.createTempFile("pwc-metrics", ".json");
+        try {
+            new JsonMetricsReporter(json).report(PhonebookMetrics.snapshot());
+            List<String> lines = Files.readAllLines(json);
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).startsWith("{\"timestamp\":"));
+            assertTrue(lines.get(0).contains("\"LOAD\":{\"count\":1,"));
+            assertTrue(lines.get(0).contains("\"counters\":{\"PARSED_LINES\":2,\"REJECTED_LINES\":2,\"PERSISTED_ENTRIES\":0}"));
+            assertTrue(lines.get(0).endsWith("\"gauges\":{\"ENTRIES\":2}}"));
+        } finally {
+            Files.deleteIfExists(json);
+        }
+    }
+
+    @Test
+    void givenLogReporter_whenRejectsSpikeInAnInterval_thenReportIsAWarning() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        List<LogRecord> records = new ArrayList<>();
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        LogMetricsReporter reporter = new LogMetricsReporter(logger, TimeUnit.SECONDS.toNanos(10), 3);
+        PhonebookMetrics.setEnabled(true);
+        new Phonebook(book.toString());
+        reporter.report(PhonebookMetrics.snapshot());
+        assertTrue(records.stream().allMatch(record -> record.getLevel() == Level.INFO));
+        assertTrue(records.stream().anyMatch(record -> record.getMessage().contains("REJECTED_LINES=2")));
+        records.clear();
+        new Phonebook(book.toString());
+        new Phonebook(book.toString());
+        reporter.report(PhonebookMetrics.snapshot());
+        assertTrue(records.stream().allMatch(record -> record.getLevel() == Level.WARNING));
+        assertTrue(records.stream().anyMatch(record -> record.getMessage().startsWith("LOAD count=2 ")));
+        assertTrue(records.stream().anyMatch(record -> record.getMessage().startsWith("Rejected line spike: 4 lines")));
+    }
+
+    @Test
+    void givenJmxReporter_whenRegistered_thenAttributesAreLiveUntilClosed() throws Exception {
+        ObjectName name = new ObjectName(JmxMetricsReporter.OBJECT_NAME);
+        try (Closeable reporting = PhonebookMetrics.startReporting(new JmxMetricsReporter(), 1, TimeUnit.HOURS)) {
+            assertTrue(PhonebookMetrics.isEnabled());
+            new Phonebook(book.toString());
+            TabularData counters = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Counters");
+            assertEquals(2L, counters.get(new Object[]{"REJECTED_LINES"}).get("value"));
+            TabularData latencies = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Latencies");
+            assertEquals(1L, latencies.get(new Object[]{"LOAD.count"}).get("value"));
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookNumberIndexTest {
+    private static final String INPUT = "src/test/resources/number/input/default.txt";
+
+    @Test
+    void givenNumbersInAnyFormat_whenNormalize_thenOnlyDigitsAndLeadingPlusAreKept() {
+        assertEquals("0418100200", PhonebookNumberIndex.normalize("(04) 1810-0200"));
+        assertEquals("+610288345647", PhonebookNumberIndex.normalize(" +61 (02) 8834 5647"));
+        assertEquals("0298002333", PhonebookNumberIndex.normalize("0298002333*#"));
+        assertEquals("6112", PhonebookNumberIndex.normalize("61+12"));
+        assertNull(PhonebookNumberIndex.normalize("null"));
+        assertNull(PhonebookNumberIndex.normalize(null));
+        assertNull(PhonebookNumberIndex.normalize("+ ()"));
+    }
+
+    @Test
+    void givenNormalizedNumbers_whenKey_thenLeadingZerosAndPlusAreDistinct() {
+        assertNotEquals(PhonebookNumberIndex.key("0418"), PhonebookNumberIndex.key("418"));
+        assertNotEquals(PhonebookNumberIndex.key("+61"), PhonebookNumberIndex.key("61"));
+        assertNotEquals(PhonebookNumberIndex.NO_KEY, PhonebookNumberIndex.key("000000000000000000"));
+        assertEquals(PhonebookNumberIndex.NO_KEY, PhonebookNumberIndex.key("0000000000000000000"));
+    }
+
+    @Test
+    void givenIndexedBook_whenFind_thenEntriesWithTheSameNormalizedNumberAreReturned() {
+        PhonebookNumberIndex index = new PhonebookNumberIndex();
+        index.rebuild(new Phonebook(INPUT).getPhonebookEntryList());
+        assertEquals(Arrays.asList("Angela McDowell", "John Citizen"), names(index.find("0418100200")));
+        assertEquals(Collections.singletonList("Dr. William Vo"), names(index.find("+610288345647")));
+        assertTrue(index.find("610288345647").isEmpty());
+        assertEquals(Collections.singletonList("Long Number"), names(index.find("1234 5678 9012 3456 7890 12")));
+        assertTrue(index.find("null").isEmpty());
+        assertEquals(Arrays.asList("Shanz Gate", "Angela McDowell", "John Citizen"), names(index.findByPrefix("0")));
+        assertEquals(Arrays.asList("Angela McDowell", "John Citizen"), names(index.findByPrefix("04 18")));
+        assertEquals(Collections.singletonList("Dr. William Vo"), names(index.findByPrefix("+6")));
+    }
+
+    @Test
+    void givenRandomAddsAndRemoves_whenFind_thenResultMatchesLinearScan() {
+        Random random = new Random(20200603L);
+        PhonebookNumberIndex index = new PhonebookNumberIndex();
+        List<PhonebookEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            if (entries.isEmpty() || random.nextInt(3) > 0) {
+                PhonebookEntry entry = PhonebookEntry.builder().name("N").number("04" + random.nextInt(500)).build();
+                entries.add(entry);
+                index.add(entry);
+            } else {
+                index.remove(entries.remove(random.nextInt(entries.size())));
+            }
+            String number = "04" + random.nextInt(500);
+            List<PhonebookEntry> expected = entries.stream().filter(e -> e.getNumber().equals(number)).collect(Collectors.toList());
+            assertEquals(identities(expected), identities(index.find(number)), number);
+        }
+    }
+
+    private static List<String> names(List<PhonebookEntry> entries) {
+        return entries.stream().map(PhonebookEntry::getName).collect(Collectors.toList());
+    }
+
+    private static List<Integer> identities(List<PhonebookEntry> entries) {
+        return entries.stream().map(System::identityHashCode).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookSearchIndexTest {
+    private static final String INPUT = "src/test/resources/search/input/default.txt";
+
+    @Test
+    void givenIndexedBook_whenFindByPrefix_thenFoldedNamesAreReturnedInNameOrder() {
+        PhonebookSearchIndex index = new PhonebookSearchIndex();
+        index.rebuild(new Phonebook(INPUT).getPhonebookEntryList());
+        assertEquals(Arrays.asList("danny o'connell", "dr. william vo"), index.findByPrefix("D"));
+        assertEquals(Collections.singletonList("john citizen"), index.findByPrefix("JOHN"));
+        assertEquals(7, index.findByPrefix("").size());
+        assertTrue(index.findByPrefix("Johnny").isEmpty());
+        assertEquals(7, index.size());
+    }
+
+    @Test
+    void givenAddAndRemove_whenSearch_thenIndexIsUpdatedIncrementally() {
+        PhonebookSearchIndex index = new PhonebookSearchIndex();
+        PhonebookEntry first = entry("Ann Lee");
+        PhonebookEntry second = entry("ANN LEE");
+        index.add(first);
+        index.add(second);
+        index.add(entry("Anna Lee"));
+        assertEquals(Arrays.asList("ann lee", "anna lee"), index.findByPrefix("ann"));
+        index.remove(first);
+        assertEquals(Arrays.asList("ann lee", "anna lee"), index.findByPrefix("ann"));
+        index.remove(second);
+        assertEquals(Collections.singletonList("anna lee"), index.findByPrefix("ann"));
+        assertEquals(Collections.singletonList("anna lee"), index.findSimilar("Ann Lee", 1));
+        index.remove(entry("Anna Lee"));
+        assertTrue(index.findByPrefix("").isEmpty());
+        assertTrue(index.findSimilar("Ann Lee", 3).isEmpty());
+    }
+
+    @Test
+    void givenTypos_whenFindSimilar_thenClosestNamesAreReturnedFirst() {
+        PhonebookSearchIndex index = new PhonebookSearchIndex();
+        index.rebuild(new Phonebook(INPUT).getPhonebookEntryList());
+        assertEquals(Collections.singletonList("john citizen"), index.findSimilar("Jon Citizn", 2));
+        assertTrue(index.findSimilar("Jon Citizn", 1).isEmpty());
+        assertEquals(Collections.singletonList("angela mcdowell"), index.findSimilar("angela mcdowell", 0));
+        assertThrows(IllegalArgumentException.class, () -> index.findSimilar("x", -1));
+    }
+
+    @Test
+    void givenRandomNames_whenFindSimilar_thenResultMatchesBruteForce() {
+        Random random = new Random(20200602L);
+        List<String> names = new ArrayList<>();
+        PhonebookSearchIndex index = new PhonebookSearchIndex();
+        for (int i = 0; i < 300; i++) {
+            String name = randomName(random);
+            names.add(name);
+            index.add(entry(name));
+        }
+        for (int i = 0; i < 300; i++) {
+            String query = random.nextBoolean() ? mutate(names.get(random.nextInt(names.size())), random) : randomName(random);
+            int maxDistance = random.nextInt(4);
+            List<String> expected = names.stream().map(PhonebookEntry::foldName).distinct()
+                    .filter(n -> PhonebookSearchIndex.distance(PhonebookEntry.foldName(query), n, maxDistance) <= maxDistance)
+                    .sorted(Comparator.<String, Integer>comparing(n -> PhonebookSearchIndex.distance(PhonebookEntry.foldName(query), n, maxDistance))
+                            .thenComparing(Comparator.naturalOrder()))
+                    .collect(Collectors.toList());
+            assertEquals(expected, index.findSimilar(query, maxDistance), query + " within " + maxDistance);
+        }
+    }
+
+    @Test
+    void givenTwoStrings_whenDistance_thenLevenshteinDistanceIsBounded() {
+        assertEquals(3, PhonebookSearchIndex.distance("kitten", "sitting", 5));
+        assertEquals(3, PhonebookSearchIndex.distance("kitten", "sitting", 2));
+        assertEquals(0, PhonebookSearchIndex.distance("", "", 0));
+        assertEquals(2, PhonebookSearchIndex.distance("ab", "", 2));
+    }
+
+    private static PhonebookEntry entry(String name) {
+        return PhonebookEntry.builder().name(name).number("0400000000").build();
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 2 + random.nextInt(6); i > 0; i--) {
+            name.append("abAB c".charAt(random.nextInt(6)));
+        }
+        return name.toString();
+    }
+
+    private static String mutate(String name, Random random) {
+        StringBuilder mutated = new StringBuilder(name);
+        for (int i = random.nextInt(4); i > 0; i--) {
+            int position = random.nextInt(mutated.length() + 1);
+            if (random.nextBoolean() || position == mutated.length()) {
+                mutated.insert(position, 'x');
+            } else {
+                mutated.deleteCharAt(position);
+            }
+        }
+        return mutated.toString();
+    }
+}
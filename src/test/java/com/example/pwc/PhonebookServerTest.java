@@ -0,0 +1,118 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookServerTest {
+    private static final String INPUT_FILENAME = "src/test/resources/server/input/default.txt";
+    private static final String ANOTHER_FILENAME = "src/test/resources/server/input/anotherPhonebook.txt";
+    private static final String RESULT_FILENAME = "src/test/resources/server/result/default.txt";
+    private static final String OUTSIDE_FILENAME = "src/test/resources/service/input/default.txt";
+    private final ByteArrayOutputStream outputStreamCaptor = new ByteArrayOutputStream();
+    private PhonebookServer server;
+    private PhonebookClient client;
+    private Path tokenFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        System.setOut(new PrintStream(outputStreamCaptor));
+        Files.copy(Paths.get(INPUT_FILENAME), Paths.get(RESULT_FILENAME), StandardCopyOption.REPLACE_EXISTING);
+        tokenFile = Files.createTempDirectory("pwc-server").resolve(PhonebookServer.DEFAULT_TOKEN_FILE);
+        server = new PhonebookServer(0, Paths.get("src/test/resources/server"), tokenFile);
+        server.start();
+        client = new PhonebookClient(server.getPort(), tokenFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(tokenFile.getParent());
+    }
+
+    @Test
+    void givenServer_whenAddAndRemove_thenFileIsPersisted() throws IOException {
+        assertTrue(client.addEntry(RESULT_FILENAME, "PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)"));
+        assertTrue(client.removeEntry(RESULT_FILENAME, "angela mcdowell"));
+        assertFalse(client.removeEntry(RESULT_FILENAME, "McFurlan"));
+        assertFalse(client.addEntry(RESULT_FILENAME, "Entry(name=Angela McDowell, number=0418100200)"));
+        assertEquals(6, Files.readAllLines(Paths.get(RESULT_FILENAME)).size());
+        assertFalse(Files.readAllLines(Paths.get(RESULT_FILENAME)).contains("PhonebookEntry(name=Angela McDowell, number=0418100200)"));
+    }
+
+    @Test
+    void givenServer_whenPrint_thenOutputMatchesLocalPrint() throws IOException {
+        assertTrue(client.printPhonebook(RESULT_FILENAME));
+        String remote = outputStreamCaptor.toString();
+        outputStreamCaptor.reset();
+        assertTrue(new PhonebookService().printPhonebook(RESULT_FILENAME));
+        assertEquals(outputStreamCaptor.toString(), remote);
+    }
+
+    @Test
+    void givenServer_whenUnique_thenUniqueNamesArePrinted() throws IOException {
+        assertTrue(client.printUniqueName(RESULT_FILENAME, ANOTHER_FILENAME));
+        assertEquals("Shanz Gate", outputStreamCaptor.toString().trim());
+    }
+
+    @Test
+    void givenFileChangedByAnotherProcess_whenPrint_thenPhonebookIsReloaded() throws IOException {
+        assertTrue(client.printPhonebook(RESULT_FILENAME));
+        Files.write(Paths.get(RESULT_FILENAME), Arrays.asList("PhonebookEntry(name=Shaun Gate, number=28834#1)"));
+        outputStreamCaptor.reset();
+        assertTrue(client.printPhonebook(RESULT_FILENAME));
+        assertEquals("PhonebookEntry(name=Shaun Gate, number=28834#1)", outputStreamCaptor.toString().trim());
+    }
+
+    @Test
+    void givenDirectory_whenPrint_thenErrorIsReported() {
+        assertThrows(IOException.class, () -> client.printPhonebook("src/test/resources/server"));
+    }
+
+    @Test
+    void givenServer_whenStarted_thenTokenFileIsReadableByItsOwnerOnly() throws IOException {
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+        server.close();
+        assertFalse(Files.exists(tokenFile));
+    }
+
+    @Test
+    void givenWrongToken_whenSend_thenRequestIsRejected() throws IOException {
+        Path wrongToken = tokenFile.resolveSibling("wrong.token");
+        Files.write(wrongToken, "0123".getBytes());
+        try {
+            PhonebookClient intruder = new PhonebookClient(server.getPort(), wrongToken);
+            assertThrows(IOException.class, () -> intruder.addEntry(RESULT_FILENAME, "PhonebookEntry(name=Intruder, number=0400)"));
+            assertFalse(Files.readAllLines(Paths.get(RESULT_FILENAME)).contains("PhonebookEntry(name=Intruder, number=0400)"));
+        } finally {
+            Files.delete(wrongToken);
+        }
+    }
+
+    @Test
+    void givenFileOutsideRoot_whenSend_thenRequestIsRejected() throws IOException {
+        byte[] before = Files.readAllBytes(Paths.get(OUTSIDE_FILENAME));
+        assertThrows(IOException.class, () -> client.addEntry(OUTSIDE_FILENAME, "PhonebookEntry(name=Intruder, number=0400)"));
+        assertThrows(IOException.class, () -> client.removeEntry("src/test/resources/server/../service/input/default.txt", "john citizen"));
+        assertThrows(IOException.class, () -> client.printUniqueName(RESULT_FILENAME, OUTSIDE_FILENAME));
+        assertArrayEquals(before, Files.readAllBytes(Paths.get(OUTSIDE_FILENAME)));
+    }
+
+    @Test
+    void givenNoServer_whenSend_thenIOExceptionIsThrown() throws IOException {
+        server.close();
+        assertThrows(IOException.class, () -> client.printPhonebook(RESULT_FILENAME));
+    }
+}
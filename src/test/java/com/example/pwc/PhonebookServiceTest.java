@@ -7,7 +7,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +49,19 @@ class PhonebookServiceTest {
         assertLinesMatch(Files.readAllLines(Paths.get(expectedFilename)), Files.readAllLines(Paths.get(resultFilename)));
     }
 
+    @Test
+    void addAndRemoveEntries() throws IOException {
+        String inputFilename = "src/test/resources/service/input/default.txt";
+        String resultFilename = "src/test/resources/service/result/batch.txt";
+        Files.deleteIfExists(Paths.get(resultFilename));
+        Files.copy(Paths.get(inputFilename), Paths.get(resultFilename));
+        PhonebookService service = new PhonebookService();
+        assertTrue(service.addEntries(resultFilename, Arrays.asList("PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)")));
+        assertTrue(service.removeEntries(resultFilename, Arrays.asList("Angela McDowell", "Shanz Gate")));
+        assertFalse(service.removeEntries(resultFilename, Arrays.asList("Angela McDowell")));
+        assertEquals(5, Files.readAllLines(Paths.get(resultFilename)).size());
+    }
+
     @Test
     void printPhonebook() throws IOException {
         PhonebookService service = new PhonebookService();
@@ -69,4 +87,30 @@ class PhonebookServiceTest {
         String expectedNames = "Shanz Gate";
         assertEquals(expectedNames, outputStreamCaptor.toString().trim());
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamPhonebookAndUniqueNames() throws IOException {
+        String inputFilename1 = "src/test/resources/service/input/default.txt";
+        String inputFilename2 = "src/test/resources/service/input/anotherPhoneBook.txt";
+        Phonebook phonebook = new Phonebook(inputFilename1);
+        List<String> expected = phonebook.streamPhonebook().map(PhonebookEntry::toString).collect(Collectors.toList());
+        assertEquals(6, expected.size());
+        Path binary = Files.createTempFile("pwc-service", ".pwcb");
+        try {
+            phonebook.writePhonebook(binary.toString(), true);
+            for (PhonebookService service : Arrays.asList(new PhonebookService(), new PhonebookService(new PhonebookCache()))) {
+                for (String filename : Arrays.asList(inputFilename1, binary.toString())) {
+                    try (Stream<PhonebookEntry> entries = service.streamPhonebook(filename, 1)) {
+                        assertEquals(expected, entries.map(PhonebookEntry::toString).collect(Collectors.toList()));
+                    }
+                }
+                try (Stream<String> names = service.streamUniqueName(inputFilename1, inputFilename2)) {
+                    assertEquals(Arrays.asList("Shanz Gate"), names.collect(Collectors.toList()));
+                }
+            }
+        } finally {
+            Files.delete(binary);
+        }
+        assertEquals("", outputStreamCaptor.toString());
+    }
+}
@@ -6,8 +6,18 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -176,6 +186,215 @@ class PhonebookTest {
         assertLinesMatch(Files.readAllLines(Paths.get(expectedFilename)), Files.readAllLines(Paths.get(resultFilename)));
     }
 
+    @Test
+    void givenExistingEntries_whenFindByName_thenMatchingEntriesAreReturnedCaseInsensitive() {
+        Phonebook phoneBook = new Phonebook("src/test/resources/phoneBook/createPhoneBook.txt");
+        assertTrue(phoneBook.containsName("JOHN CITIZEN"));
+        assertFalse(phoneBook.containsName("John"));
+        assertEquals(1, phoneBook.findByName("john citizen").size());
+        assertEquals("0414557988", phoneBook.findByName("john citizen").get(0).getNumber());
+        assertTrue(phoneBook.findByName("McFurlan").isEmpty());
+    }
+
+    @Test
+    void givenDuplicateNames_whenRemoveEntry_thenFirstEntryIsRemovedAndIndexIsUpdated() {
+        Phonebook phoneBook = new Phonebook("src/test/resources/phoneBook/addEntry/result/nonExistenceFile.txt");
+        phoneBook.applyAdd(PhonebookEntry.builder().name("Angela McDowell").number("1").build());
+        phoneBook.applyAdd(PhonebookEntry.builder().name("John Citizen").number("2").build());
+        phoneBook.applyAdd(PhonebookEntry.builder().name("angela mcdowell").number("3").build());
+        assertEquals("1", phoneBook.applyRemove("ANGELA MCDOWELL").getNumber());
+        assertEquals(1, phoneBook.findByName("Angela McDowell").size());
+        assertEquals("3", phoneBook.findByName("Angela McDowell").get(0).getNumber());
+        assertEquals(2, phoneBook.getPhonebookEntryList().size());
+        assertEquals("3", phoneBook.applyRemove("Angela McDowell").getNumber());
+        assertFalse(phoneBook.containsName("Angela McDowell"));
+        assertNull(phoneBook.applyRemove("Angela McDowell"));
+        assertEquals(1, phoneBook.getPhonebookEntryList().size());
+    }
+
+    @Test
+    void givenSearchedBook_whenEntriesAreAddedAndRemoved_thenSearchSeesTheChanges() {
+        Phonebook phoneBook = new Phonebook("src/test/resources/phoneBook/addEntry/result/nonExistenceFile.txt");
+        phoneBook.applyAdd(PhonebookEntry.builder().name("Angela McDowell").number("1").build());
+        phoneBook.applyAdd(PhonebookEntry.builder().name("angela mcdowell").number("2").build());
+        assertEquals(2, phoneBook.findByPrefix("ANG").size());
+        phoneBook.applyAdd(PhonebookEntry.builder().name("Angus Young").number("3").build());
+        assertEquals(Arrays.asList("1", "2", "3"), phoneBook.findByPrefix("ang").stream().map(PhonebookEntry::getNumber).collect(Collectors.toList()));
+        assertEquals("3", phoneBook.findSimilar("Angus Yung", 1).get(0).getNumber());
+        phoneBook.applyRemove("Angus Young");
+        assertTrue(phoneBook.findSimilar("Angus Yung", 1).isEmpty());
+        assertEquals(2, phoneBook.findByPrefix("ang").size());
+    }
+
+    @Test
+    void givenLookedUpBook_whenEntriesAreAddedAndRemoved_thenFindByNumberSeesTheChanges() {
+        Phonebook phoneBook = new Phonebook("src/test/resources/number/input/default.txt");
+        assertEquals("John Citizen", phoneBook.findByNumber("0418-100-200").get(1).getName());
+        PhonebookEntry entry = PhonebookEntry.builder().name("Angus Young").number("0418 999 000").build();
+        phoneBook.applyAdd(entry);
+        assertEquals(Collections.singletonList(entry), phoneBook.findByNumber("0418999000"));
+        assertEquals(3, phoneBook.findByNumberPrefix("0418").size());
+        phoneBook.applyRemove("angus young");
+        assertTrue(phoneBook.findByNumber("0418999000").isEmpty());
+        assertEquals(2, phoneBook.findByNumberPrefix("0418").size());
+    }
+
+    @Test
+    void givenOptionsWhichDontCombine_whenBuild_thenBookIsRejected() {
+        String filename = "src/test/resources/number/input/default.txt";
+        assertThrows(IllegalArgumentException.class, () -> Phonebook.builder(filename).journaled(true)
+                .persistencePolicy(PersistencePolicy.async(1_000)).build());
+        assertThrows(IllegalArgumentException.class, () -> Phonebook.builder(filename).lazy(1024, 4).columnar(true).build());
+        assertThrows(IllegalArgumentException.class, () -> Phonebook.builder(filename).lazy(1024, 4)
+                .conflictPolicy(ConflictPolicy.LAST_WINS).build());
+        assertTrue(Phonebook.builder(filename).columnar(true).conflictPolicy(ConflictPolicy.FIRST_WINS).build()
+                .getPhonebookEntryList() instanceof ColumnarEntryStore);
+    }
+
+    @Test
+    void givenColumnarBook_whenLookedUpAndMutated_thenItBehavesLikeTheDefaultBook() {
+        Phonebook phoneBook = Phonebook.builder("src/test/resources/number/input/default.txt").columnar(true).build();
+        Phonebook expected = new Phonebook("src/test/resources/number/input/default.txt");
+        assertTrue(phoneBook.getPhonebookEntryList() instanceof ColumnarEntryStore);
+        assertEquals(expected.getPhonebookEntryList(), phoneBook.getPhonebookEntryList());
+        assertEquals(expected.findByName("angela mcdowell"), phoneBook.findByName("angela mcdowell"));
+        assertEquals(expected.findByNumber("0418-100-200"), phoneBook.findByNumber("0418-100-200"));
+        assertEquals(expected.findByPrefix("d"), phoneBook.findByPrefix("d"));
+        PhonebookEntry entry = PhonebookEntry.builder().name("Angus Young").number("0418 999 000").build();
+        phoneBook.applyAdd(entry);
+        assertEquals(Collections.singletonList(entry), phoneBook.findByNumber("0418999000"));
+        assertEquals(entry, phoneBook.applyRemove("ANGUS YOUNG"));
+        assertFalse(phoneBook.containsName("Angus Young"));
+        assertTrue(phoneBook.findByNumber("0418999000").isEmpty());
+        assertEquals("Angela McDowell", phoneBook.applyRemove("Angela McDowell").getName());
+        assertEquals(Collections.singletonList("John Citizen"), phoneBook.findByNumber("0418100200").stream().map(PhonebookEntry::getName).collect(Collectors.toList()));
+        assertEquals(5, phoneBook.getPhonebookEntryList().size());
+    }
+
+    @Test
+    void givenAppendedFile_whenReload_thenOnlyTheNewLinesAreParsed() throws IOException {
+        Path book = Files.createTempFile("pwc-reload", ".txt");
+        try {
+            Files.write(book, Collections.singletonList("PhonebookEntry(name=Angela McDowell, number=0418 100 200)"));
+            Phonebook phoneBook = new Phonebook(book.toString());
+            PhonebookEntry loaded = phoneBook.getPhonebookEntryList().get(0);
+            assertFalse(phoneBook.reload());
+            Files.write(book, Arrays.asList("PhonebookEntry(name=John Citizen, number=0414557988)", "not an entry"),
+                    StandardOpenOption.APPEND);
+            Files.write(book, "PhonebookEntry(name=Shanz Gate, number=28834".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            assertTrue(phoneBook.reload());
+            assertSame(loaded, phoneBook.getPhonebookEntryList().get(0));
+            assertEquals(2, phoneBook.getPhonebookEntryList().size());
+            assertTrue(phoneBook.containsName("john citizen"));
+            assertFalse(phoneBook.containsName("Shanz Gate"));
+            Files.write(book, ("#1)" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            assertTrue(phoneBook.reload());
+            assertSame(loaded, phoneBook.getPhonebookEntryList().get(0));
+            assertEquals("28834#1", phoneBook.findByName("Shanz Gate").get(0).getNumber());
+            assertFalse(phoneBook.reload());
+            assertTrue(phoneBook.addEntry("PhonebookEntry(name=Dr. William Vo, number=+61 (02) 8834 5647)"));
+            assertFalse(phoneBook.reload());
+            assertEquals(4, phoneBook.getPhonebookEntryList().size());
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    private static String letters(int i) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return letters.toString();
+    }
+
+    @Test
+    void givenConcurrentAdds_whenReload_thenEveryAddedEntryIsIndexedOnce() throws Exception {
+        Path book = Files.createTempFile("pwc-reload", ".txt");
+        try {
+            Phonebook phoneBook = new Phonebook(book.toString());
+            int adds = 300;
+            Thread adder = new Thread(() -> {
+                for (int i = 0; i < adds; i++) {
+                    phoneBook.addEntry("PhonebookEntry(name=Added " + letters(i) + ", number=04" + i + ")");
+                }
+            });
+            adder.start();
+            int appended = 0;
+            while (adder.isAlive()) {
+                Files.write(book, Collections.singletonList("PhonebookEntry(name=Appended " + letters(appended++) + ", number=0400)"),
+                        StandardOpenOption.APPEND);
+                phoneBook.reload();
+            }
+            adder.join();
+            for (int i = 0; i < adds; i++) {
+                assertEquals(1, phoneBook.findByName("added " + letters(i)).size(), "Added " + letters(i));
+            }
+            List<PhonebookEntry> entries = phoneBook.getPhonebookEntryList();
+            assertEquals(entries.size(), entries.stream().map(PhonebookEntry::getName).distinct().count());
+            assertEquals(adds, entries.stream().filter(entry -> entry.getName().startsWith("Added ")).count());
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    @Test
+    void givenRewrittenFile_whenReload_thenTheWholeFileIsLoadedAgain() throws IOException {
+        Path book = Files.createTempFile("pwc-reload", ".txt");
+        try {
+            Files.write(book, Arrays.asList("PhonebookEntry(name=Angela McDowell, number=0418 100 200)",
+                    "PhonebookEntry(name=John Citizen, number=0414557988)"));
+            Phonebook phoneBook = new Phonebook(book.toString());
+            try (FileChannel channel = FileChannel.open(book, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap("PhonebookEntry(name=Angela McDowelL".getBytes(StandardCharsets.UTF_8)), 0);
+                channel.write(ByteBuffer.wrap("PhonebookEntry(name=Shanz Gate, number=1)\n".getBytes(StandardCharsets.UTF_8)), channel.size());
+            }
+            assertTrue(phoneBook.reload());
+            assertEquals("Angela McDowelL", phoneBook.getPhonebookEntryList().get(0).getName());
+            assertEquals(3, phoneBook.getPhonebookEntryList().size());
+            Path rewritten = Files.createTempFile(book.getParent(), "pwc-reload", ".tmp");
+            Files.write(rewritten, Collections.singletonList("PhonebookEntry(name=John Citizen, number=0414557988)"));
+            Files.move(rewritten, book, StandardCopyOption.REPLACE_EXISTING);
+            assertTrue(phoneBook.reload());
+            assertEquals(Collections.singletonList("John Citizen"), phoneBook.getPhonebookEntryList().stream().map(PhonebookEntry::getName).collect(Collectors.toList()));
+            Files.delete(book);
+            assertTrue(phoneBook.reload());
+            assertTrue(phoneBook.getPhonebookEntryList().isEmpty());
+            assertFalse(phoneBook.reload());
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    @Test
+    void givenBatch_whenAddAndRemoveEntries_thenEntriesArePersistedOnce() throws IOException {
+        String inputFilename = "src/test/resources/phoneBook/addEntries/input/withExistingEntries.txt";
+        String resultFilename = "src/test/resources/phoneBook/addEntries/result/withExistingEntries.txt";
+        String expectedFilename = "src/test/resources/phoneBook/addEntries/expected/withExistingEntries.txt";
+        Files.deleteIfExists(Paths.get(resultFilename));
+        Files.copy(Paths.get(inputFilename), Paths.get(resultFilename));
+        Phonebook phoneBook = new Phonebook(resultFilename);
+        assertEquals(2, phoneBook.addEntries(Arrays.asList("PhonebookEntry(name=George W. Bush Junior, number=+61298002333)",
+                "", "PhonebookEntry(name=Billy-Jean McBill, number=++6188779-0992)")));
+        assertEquals(2, phoneBook.removeEntries(Arrays.asList("angela mcdowell", "McFurlan", "Danny O'Connell")));
+        assertEquals(0, phoneBook.removeEntries(Arrays.asList("McFurlan")));
+        assertLinesMatch(Files.readAllLines(Paths.get(expectedFilename)), Files.readAllLines(Paths.get(resultFilename)));
+    }
+
+    @Test
+    void givenBatchWithInvalidEntry_whenAddEntries_thenNoEntryIsAdded() throws IOException {
+        String inputFilename = "src/test/resources/phoneBook/addEntries/input/withExistingEntries.txt";
+        String resultFilename = "src/test/resources/phoneBook/addEntries/result/withExistingEntries.txt";
+        Files.deleteIfExists(Paths.get(resultFilename));
+        Files.copy(Paths.get(inputFilename), Paths.get(resultFilename));
+        Phonebook phoneBook = new Phonebook(resultFilename);
+        assertEquals(0, phoneBook.addEntries(Arrays.asList("PhonebookEntry(name=George W. Bush Junior, number=+61298002333)",
+                "PhonebookEntry(name=Daniel McBean, number=0418100200?)")));
+        assertEquals(5, phoneBook.getPhonebookEntryList().size());
+        assertLinesMatch(Files.readAllLines(Paths.get(inputFilename)), Files.readAllLines(Paths.get(resultFilename)));
+    }
+
     @Test
     void givenNoEntries_whenListPhonebook_thenPrintNoEntries() {
         String inputFilename = "src/test/resources/phoneBook/listEntry/input/withExistingEntriesCaseInsensitive.txt";
@@ -229,6 +448,46 @@ class PhonebookTest {
         assertEquals(expected, outputStreamCaptor.toString().trim());
     }
 
+    @Test
+    void givenConflictPolicy_whenAddEntryWithExistingName_thenEntryIsUpserted() throws IOException {
+        Path book = Files.createTempFile("pwc-upsert", ".txt");
+        try {
+            String added = "PhonebookEntry(name=angela mcdowell, number=0402 111 222)";
+            for (ConflictPolicy policy : ConflictPolicy.values()) {
+                Files.copy(Paths.get("src/test/resources/dedupe/input/duplicates.txt"), book, StandardCopyOption.REPLACE_EXISTING);
+                Phonebook phoneBook = Phonebook.builder(book.toString()).conflictPolicy(policy).build();
+                assertEquals(policy == ConflictPolicy.LAST_WINS, phoneBook.addEntry(added), policy.toString());
+                assertFalse(phoneBook.addEntry(policy == ConflictPolicy.LAST_WINS ? added : "PhonebookEntry(name=Shanz Gate, number=0399998888)"));
+                assertTrue(phoneBook.addEntry("PhonebookEntry(name=Prof. Joe Manuel, number=0400000000)"));
+                assertEquals(policy == ConflictPolicy.LAST_WINS ? 2 : policy == ConflictPolicy.FIRST_WINS ? 0 : 1,
+                        phoneBook.addEntries(Arrays.asList("PhonebookEntry(name=Prof. Joe Manuel, number=0400000001)",
+                                "PhonebookEntry(name=Prof. Joe Manuel, number=0400 000 000)")));
+                List<PhonebookEntry> angela = phoneBook.findByName("Angela McDowell");
+                List<PhonebookEntry> joe = phoneBook.findByName("Prof. Joe Manuel");
+                switch (policy) {
+                    case LAST_WINS:
+                        assertEquals(Collections.singletonList("0402 111 222"), numbers(angela));
+                        assertEquals(Collections.singletonList("0400 000 000"), numbers(joe));
+                        break;
+                    case FIRST_WINS:
+                        assertEquals(Collections.singletonList("0402111222"), numbers(angela));
+                        assertEquals(Collections.singletonList("0400000000"), numbers(joe));
+                        break;
+                    default:
+                        assertEquals(Arrays.asList("0402111222", "0402111333"), numbers(angela));
+                        assertEquals(Arrays.asList("0400000000", "0400000001"), numbers(joe));
+                }
+                assertEquals(phoneBook.getPhonebookEntryList(), new Phonebook(book.toString()).getPhonebookEntryList());
+            }
+        } finally {
+            Files.deleteIfExists(book);
+        }
+    }
+
+    private static List<String> numbers(List<PhonebookEntry> entries) {
+        return entries.stream().map(PhonebookEntry::getNumber).collect(Collectors.toList());
+    }
+
     @Test
     void givenNoOverlap_WhenPrintUnique_thenBothList() {
     }
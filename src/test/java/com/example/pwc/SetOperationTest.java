@@ -0,0 +1,100 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SetOperationTest {
+    private static final List<String> BOOKS = Arrays.asList("src/test/resources/setOperation/input/north.txt",
+            "src/test/resources/setOperation/input/south.txt", "src/test/resources/setOperation/input/east.txt");
+
+    private static List<String> apply(SetOperation operation, List<String> books) {
+        List<String> names = new ArrayList<>();
+        assertEquals(operation.apply(books, names::add), names.size());
+        return names;
+    }
+
+    @Test
+    void givenThreeBooks_whenApplied_thenNamesAreSelectedByTheNumberOfBooksTheyAreIn() {
+        assertEquals(Arrays.asList("Angela McDowell", "Dr. William Vo", "George W. Bush Junior", "John Citizen", "Shanz Gate"),
+                apply(SetOperation.union(), BOOKS));
+        assertEquals(Collections.singletonList("John Citizen"), apply(SetOperation.intersection(), BOOKS));
+        assertEquals(Arrays.asList("Angela McDowell", "Dr. William Vo", "George W. Bush Junior", "John Citizen"),
+                apply(SetOperation.symmetricDifference(), BOOKS));
+        assertEquals(Arrays.asList("Angela McDowell", "Dr. William Vo", "George W. Bush Junior"),
+                apply(SetOperation.exactly(1), BOOKS));
+        assertEquals(Collections.singletonList("Shanz Gate"), apply(SetOperation.exactly(2), BOOKS));
+        assertTrue(apply(SetOperation.exactly(4), BOOKS).isEmpty());
+        assertTrue(apply(SetOperation.union(), Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void givenTwoBooks_whenSymmetricDifference_thenNamesAreTheSameAsSymmetricDifference() {
+        List<String> books = BOOKS.subList(0, 2);
+        List<String> expected = new ArrayList<>();
+        SymmetricDifference.of(new Phonebook(books.get(0)).getPhonebookEntryList(),
+                new Phonebook(books.get(1)).getPhonebookEntryList(), expected::add);
+        assertEquals(expected, apply(SetOperation.symmetricDifference(), books));
+    }
+
+    @Test
+    void givenRandomBooks_whenAppliedOnAPool_thenNamesMatchCountingEveryBook() throws IOException {
+        Random random = new Random(20200614L);
+        List<String> books = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        Map<String, Integer> expectedCounts = new TreeMap<>();
+        try {
+            for (int book = 0; book < 6; book++) {
+                Set<String> names = new HashSet<>();
+                List<String> lines = new ArrayList<>();
+                for (int i = 0; i < 2_000; i++) {
+                    String name = "Name " + (char) ('A' + random.nextInt(26)) + (char) ('a' + random.nextInt(26))
+                            + (char) ('a' + random.nextInt(6));
+                    names.add(name);
+                    lines.add("PhonebookEntry(name=" + name + ", number=" + i + ")");
+                }
+                names.forEach(name -> expectedCounts.merge(name, 1, Integer::sum));
+                Path file = Files.createTempFile("pwc-set", ".txt");
+                files.add(file);
+                Files.write(file, lines);
+                books.add(file.toString());
+            }
+            ForkJoinPool pool = new ForkJoinPool(3);
+            for (SetOperation operation : Arrays.asList(SetOperation.union(), SetOperation.intersection(),
+                    SetOperation.symmetricDifference(), SetOperation.exactly(1), SetOperation.exactly(3))) {
+                List<String> expected = new ArrayList<>();
+                expectedCounts.forEach((name, count) -> {
+                    if (operation.selects(count, books.size())) {
+                        expected.add(name);
+                    }
+                });
+                List<String> actual = new ArrayList<>();
+                operation.apply(books, Phonebook::new, pool, actual::add);
+                assertEquals(expected, actual, operation.toString());
+            }
+            pool.shutdown();
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void givenOperationNames_whenParse_thenOperationsRoundTrip() {
+        for (String name : Arrays.asList("union", "intersection", "symdiff", "exactly-1", "exactly-12")) {
+            assertEquals(name, SetOperation.parse(name).toString());
+        }
+        assertEquals("exactly-2", SetOperation.parse(" Exactly-2 ").toString());
+        for (String name : Arrays.asList("", "xor", "exactly-", "exactly-0", "exactly--1", "exactly-two")) {
+            assertNull(SetOperation.parse(name), name);
+        }
+        assertThrows(IllegalArgumentException.class, () -> SetOperation.exactly(0));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedPhonebookTest {
+    private static final Path DUPLICATES = Paths.get("src/test/resources/sort/input/duplicates.txt");
+    private Path directory;
+
+    private static String line(int i) {
+        StringBuilder name = new StringBuilder(i % 7 == 0 ? "NAME " : "Name ");
+        for (int rest = i; rest > 0 || name.length() == 5; rest /= 26) {
+            name.append((char) ('a' + rest % 26));
+        }
+        return "PhonebookEntry(name=" + name + ", number=04" + i % 300 + ")";
+    }
+
+    private static List<String> lines(int from, int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add(line(i));
+        }
+        return lines;
+    }
+
+    private static String print(Phonebook phonebook) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        phonebook.printPhonebook(new PrintStream(out));
+        return out.toString();
+    }
+
+    private static String print(ShardedPhonebook phonebook) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PhonebookEntryWriter writer = new PhonebookEntryWriter(new PrintStream(out));
+        phonebook.printPhonebook(writer);
+        writer.flush();
+        return out.toString();
+    }
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("pwc-sharded");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void givenNewDirectory_whenAddEntry_thenOnlyTheShardOfTheNameIsWritten() throws IOException {
+        String books = directory.resolve("books") + "/";
+        assertTrue(ShardedPhonebook.isSharded(books));
+        assertTrue(ShardedPhonebook.isSharded(directory.toString()));
+        assertFalse(ShardedPhonebook.isSharded("src/test/resources/server"));
+        assertFalse(ShardedPhonebook.isSharded(DUPLICATES.toString()));
+        try (ShardedPhonebook phonebook = new ShardedPhonebook(books, 8, ForkJoinPool.commonPool())) {
+            assertTrue(Files.exists(directory.resolve("books").resolve(ShardedPhonebook.MANIFEST)));
+            assertTrue(phonebook.addEntry("PhonebookEntry(name=John Citizen, number=0414557988)"));
+            assertFalse(phonebook.addEntry("not an entry"));
+            int shard = ShardedPhonebook.shardOf("john citizen", 8);
+            for (int i = 0; i < 8; i++) {
+                assertEquals(i == shard, Files.exists(phonebook.shardPath(i)), "shard " + i);
+            }
+            assertTrue(phonebook.containsName("JOHN CITIZEN"));
+            assertTrue(phonebook.removeEntry("john citizen"));
+            assertFalse(phonebook.removeEntry("john citizen"));
+        }
+        try (ShardedPhonebook reopened = new ShardedPhonebook(books, 3, ForkJoinPool.commonPool())) {
+            assertEquals(8, reopened.getShardCount());
+            assertTrue(reopened.getPhonebookEntryList().isEmpty());
+        }
+    }
+
+    @Test
+    void givenShardedBook_whenPrintedAndSearched_thenResultsMatchASingleBook() throws IOException {
+        List<String> lines = lines(0, 2_000);
+        lines.addAll(Files.readAllLines(DUPLICATES).stream().filter(line -> line.startsWith("PhonebookEntry")).collect(Collectors.toList()));
+        Phonebook single = new Phonebook(directory.resolve("single.txt").toString());
+        assertEquals(lines.size(), single.addEntries(lines));
+        try (ShardedPhonebook sharded = new ShardedPhonebook(directory.resolve("books").toString(), 16, ForkJoinPool.commonPool())) {
+            assertEquals(lines.size(), sharded.addEntries(lines));
+            assertEquals(0, sharded.addEntries(Arrays.asList(line(1), "not an entry")));
+            assertEquals(print(single), print(sharded));
+            assertEquals(single.findByPrefix("angela"), sharded.findByPrefix("angela"));
+            assertEquals(single.findByPrefix("name b"), sharded.findByPrefix("name b"));
+            assertEquals(single.findSimilar("Angela McDowel", 2), sharded.findSimilar("Angela McDowel", 2));
+            assertEquals(single.findSimilar("name xy", 1), sharded.findSimilar("name xy", 1));
+            assertEquals(single.findByName("john citizen"), sharded.findByName("john citizen"));
+            assertEquals(new HashSet<>(single.findByNumber("0414557988")), new HashSet<>(sharded.findByNumber("0414557988")));
+
+            List<String> names = Arrays.asList("Angela McDowell", "name b", "Missing Name", "Name c");
+            assertEquals(single.removeEntries(names), sharded.removeEntries(names));
+            assertEquals(print(single), print(sharded));
+        }
+    }
+
+    @Test
+    void givenShardedBooks_whenPrintUniqueEntries_thenNamesMatchASingleBook() throws IOException {
+        List<String> first = lines(0, 1_500);
+        List<String> second = lines(1_000, 2_500);
+        Phonebook firstBook = new Phonebook(directory.resolve("first.txt").toString());
+        firstBook.addEntries(first);
+        Phonebook secondBook = new Phonebook(directory.resolve("second.txt").toString());
+        secondBook.addEntries(second);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        firstBook.printUniqueEntries(secondBook, new PrintStream(expected));
+
+        ShardedPhonebook.write(directory.resolve("first").toString(), firstBook.getPhonebookEntryList(), 16, false);
+        ShardedPhonebook.write(directory.resolve("second").toString(), secondBook.getPhonebookEntryList(), 5, true);
+        try (ShardedPhonebook firstShards = new ShardedPhonebook(directory.resolve("first").toString());
+             ShardedPhonebook secondShards = new ShardedPhonebook(directory.resolve("second").toString())) {
+            assertEquals(5, secondShards.getShardCount());
+            assertTrue(BinaryPhonebook.isBinary(secondShards.shardPath(0)));
+            for (PhonebookStore other : Arrays.<PhonebookStore>asList(secondBook, secondShards)) {
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                PhonebookEntryWriter writer = new PhonebookEntryWriter(new PrintStream(actual));
+                firstShards.printUniqueEntries(other, writer);
+                writer.flush();
+                assertEquals(expected.toString(), actual.toString());
+            }
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            secondBook.printUniqueEntries(firstShards, new PrintStream(actual));
+            assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    void givenDirectory_whenUsedThroughTheService_thenItIsOpenedAsShardedBook() throws IOException {
+        PhonebookService service = new PhonebookService();
+        String books = directory.resolve("books").toString();
+        Files.createDirectories(Paths.get(books));
+        assertTrue(service.addEntries(books, lines(0, 100)));
+        assertTrue(service.removeEntry(books, "name a"));
+        assertTrue(Files.exists(Paths.get(books, ShardedPhonebook.MANIFEST)));
+
+        String exported = directory.resolve("exported.txt").toString();
+        assertTrue(service.convertPhonebook(books, exported, false));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        assertTrue(service.printPhonebook(exported, new PrintStream(expected)));
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        assertTrue(service.printPhonebook(books, new PrintStream(actual)));
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(99, new Phonebook(exported).getPhonebookEntryList().size());
+        try (Stream<PhonebookEntry> entries = service.streamPhonebook(books)) {
+            assertEquals(Files.readAllLines(Paths.get(exported)), entries.map(PhonebookEntry::toString).collect(Collectors.toList()));
+        }
+        try (Stream<String> names = service.streamUniqueName(books, DUPLICATES.toString())) {
+            assertEquals(new Phonebook(DUPLICATES.toString()).getPhonebookEntryList().stream().map(PhonebookEntry::getName)
+                            .distinct().sorted().collect(Collectors.toList()),
+                    names.filter(name -> !name.toLowerCase().startsWith("name ")).collect(Collectors.toList()));
+        }
+
+        ByteArrayOutputStream unique = new ByteArrayOutputStream();
+        assertTrue(service.printUniqueName(exported, books, new PrintStream(unique)));
+        assertEquals("", unique.toString());
+
+        ByteArrayOutputStream intersection = new ByteArrayOutputStream();
+        PhonebookEntryWriter writer = new PhonebookEntryWriter(new PrintStream(intersection));
+        assertTrue(service.printSetOperation(Arrays.asList(books, exported), SetOperation.intersection(), writer));
+        writer.flush();
+        assertEquals(new Phonebook(exported).getPhonebookEntryList().stream().map(PhonebookEntry::getName).sorted()
+                .collect(Collectors.toList()), Arrays.asList(intersection.toString().split(System.lineSeparator())));
+    }
+
+    @Test
+    void givenInvalidManifest_whenOpened_thenRuntimeException() throws IOException {
+        Files.write(directory.resolve(ShardedPhonebook.MANIFEST), Arrays.asList("version=2", "shards=4"));
+        assertThrows(RuntimeException.class, () -> new ShardedPhonebook(directory.toString()));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedPhonebook(directory.toString(), 0, ForkJoinPool.commonPool()));
+    }
+}
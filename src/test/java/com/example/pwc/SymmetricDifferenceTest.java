@@ -0,0 +1,142 @@
+package com.example.pwc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymmetricDifferenceTest {
+    private static final String FIRST = "src/test/resources/unique/input/first.txt";
+    private static final String SECOND = "src/test/resources/unique/input/second.txt";
+    private static final String MISSING = "src/test/resources/unique/input/missing.txt";
+
+    @Test
+    void givenSortedNamesWithDuplicates_whenMerge_thenNamesInOnlyOneInputAreEmittedOnceInOrder() {
+        List<String> result = new ArrayList<>();
+        int count = SymmetricDifference.merge(Arrays.asList("A", "A", "B", "D", "D").iterator(),
+                Arrays.asList("B", "B", "C", "D", "E", "E").iterator(), result::add);
+        assertEquals(Arrays.asList("A", "C", "E"), result);
+        assertEquals(3, count);
+    }
+
+    @Test
+    void givenOneEmptyInput_whenMerge_thenDistinctNamesOfTheOtherAreEmitted() {
+        List<String> result = new ArrayList<>();
+        SymmetricDifference.merge(Collections.emptyIterator(), Arrays.asList("A", "A", "b").iterator(), result::add);
+        assertEquals(Arrays.asList("A", "b"), result);
+    }
+
+    @Test
+    void givenUnsortedInput_whenMerge_thenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> SymmetricDifference.merge(Arrays.asList("B", "A").iterator(),
+                Collections.emptyIterator(), name -> {
+                }));
+    }
+
+    @Test
+    void givenTwoBooks_whenPrintUniqueEntries_thenOutputMatchesSetImplementation() {
+        Phonebook first = new Phonebook(FIRST);
+        Phonebook second = new Phonebook(SECOND);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        first.printUniqueEntries(second, new PrintStream(out));
+        String expected = String.join(System.lineSeparator(), "Danny O'Connell", "Dr. William Vo",
+                "George W. Bush Junior", "Shanz Gate", "john citizen") + System.lineSeparator();
+        assertEquals(expected, out.toString());
+        assertEquals(setDifference(first.getPhonebookEntryList(), second.getPhonebookEntryList()),
+                lines(out.toString()));
+    }
+
+    @Test
+    void givenBudgetForOneName_whenStreamFiles_thenOutputMatchesInMemory() throws IOException {
+        assertStreamingMatchesInMemory(Paths.get(FIRST), Paths.get(SECOND), 1);
+        assertStreamingMatchesInMemory(Paths.get(SECOND), Paths.get(FIRST), 1);
+        assertStreamingMatchesInMemory(Paths.get(FIRST), Paths.get(SECOND), ExternalSortPrinter.DEFAULT_MEMORY_BUDGET);
+    }
+
+    @Test
+    void givenMissingFile_whenStreamFiles_thenAllNamesOfTheOtherAreEmitted() throws IOException {
+        assertStreamingMatchesInMemory(Paths.get(MISSING), Paths.get(SECOND), 1);
+        List<String> result = new ArrayList<>();
+        assertEquals(0, SymmetricDifference.of(Paths.get(MISSING), Paths.get(MISSING), 1, null, result::add));
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void givenBudgetForOneName_whenStreamIsClosedEarly_thenRunsAreDeleted() throws IOException {
+        List<String> expected = new ArrayList<>();
+        SymmetricDifference.of(Paths.get(FIRST), Paths.get(SECOND), 1, null, expected::add);
+        Path tempDirectory = Files.createTempDirectory("pwc-unique");
+        try {
+            try (Stream<String> names = SymmetricDifference.stream(Paths.get(FIRST), Paths.get(SECOND), 1, tempDirectory)) {
+                assertEquals(expected, names.collect(Collectors.toList()));
+            }
+            try (Stream<String> names = SymmetricDifference.stream(Paths.get(FIRST), Paths.get(SECOND), 1, tempDirectory)) {
+                assertEquals(expected.subList(0, 2), names.limit(2).collect(Collectors.toList()));
+            }
+            try (Stream<Path> files = Files.list(tempDirectory)) {
+                assertEquals(0, files.count());
+            }
+        } finally {
+            Files.delete(tempDirectory);
+        }
+        try (Stream<String> names = SymmetricDifference.stream(new Phonebook(FIRST).getPhonebookEntryList(),
+                new Phonebook(SECOND).getPhonebookEntryList())) {
+            assertEquals(expected, names.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void givenRandomBooks_whenOf_thenResultMatchesSetImplementation() {
+        Random random = new Random(20200601L);
+        String[] names = {"Al", "al", "Bo", "Cy", "Di", "di", "Ed", "Flo", "Gus", "Hal"};
+        for (int i = 0; i < 1_000; i++) {
+            List<PhonebookEntry> first = randomEntries(random, names);
+            List<PhonebookEntry> second = randomEntries(random, names);
+            List<String> result = new ArrayList<>();
+            SymmetricDifference.of(first, second, result::add);
+            assertEquals(setDifference(first, second), result);
+        }
+    }
+
+    private static void assertStreamingMatchesInMemory(Path first, Path second, long memoryBudget) throws IOException {
+        List<String> expected = new ArrayList<>();
+        SymmetricDifference.of(new Phonebook(first.toString()).getPhonebookEntryList(),
+                new Phonebook(second.toString()).getPhonebookEntryList(), expected::add);
+        List<String> actual = new ArrayList<>();
+        SymmetricDifference.of(first, second, memoryBudget, null, actual::add);
+        assertEquals(expected, actual);
+    }
+
+    private static List<PhonebookEntry> randomEntries(Random random, String[] names) {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        for (int i = random.nextInt(12); i > 0; i--) {
+            entries.add(PhonebookEntry.builder().name(names[random.nextInt(names.length)]).number("0400000000").build());
+        }
+        return entries;
+    }
+
+    /**
+     * The set based implementation {@link Phonebook#printUniqueEntries(PhonebookStore)} used before.
+     */
+    private static List<String> setDifference(List<PhonebookEntry> first, List<PhonebookEntry> second) {
+        Set<String> firstNames = first.stream().map(PhonebookEntry::getName).collect(Collectors.toSet());
+        Set<String> secondNames = second.stream().map(PhonebookEntry::getName).collect(Collectors.toSet());
+        Set<String> complements = new HashSet<>();
+        firstNames.stream().filter(n -> !secondNames.contains(n)).forEach(complements::add);
+        secondNames.stream().filter(n -> !firstNames.contains(n)).forEach(complements::add);
+        return complements.stream().sorted().collect(Collectors.toList());
+    }
+
+    private static List<String> lines(String output) {
+        return output.isEmpty() ? Collections.emptyList() : Arrays.asList(output.split(System.lineSeparator()));
+    }
+}